@@ -0,0 +1,86 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.servicio.MigradorEsquema;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Arranque en frío hasta la primera consulta sobre una base en archivo ya migrada: una sola medición por JVM
+// (cada fork es un arranque). update es el modo anterior; migrar lee el historial de migraciones con
+// hbm2ddl en none (como Main); validar además compara el esquema con el mapeo (VALIDAR_ESQUEMA en Main).
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class ArranqueBenchmark {
+
+    @Param({"update", "validar", "migrar"})
+    String modo;
+
+    private Path directorio;
+    private String url;
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, SQLException {
+        // Solo JDBC: el arranque medido es el primero que carga Hibernate en la JVM
+        directorio = Files.createTempDirectory("arranque-bench-");
+        url = "jdbc:h2:file:" + directorio.resolve("hospidb") + ";DB_CLOSE_DELAY=-1";
+        try (Connection conexion = DriverManager.getConnection(url, "sa", "")) {
+            new MigradorEsquema().migrar(conexion);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path archivo : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(archivo);
+            }
+        }
+    }
+
+    @Benchmark
+    public long arrancar() {
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("jakarta.persistence.jdbc.url", url);
+        propiedades.put("hibernate.hbm2ddl.auto", modo.equals("update") ? "update" : "none");
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        propiedades.put("hibernate.highlight_sql", "false");
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit", propiedades);
+        if (!modo.equals("update")) {
+            MigradorEsquema.migrar(emf);
+            if (modo.equals("validar")) {
+                emf.unwrap(SessionFactory.class).getSchemaManager().validateMappedObjects();
+            }
+        }
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("select count(c) from Cita c", Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.BuscadorTurnos;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.example.servicio.TurnoLibre;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Próximos turnos libres de una especialidad (2 departamentos de 40 médicos y 40 salas) en un mes.
+// "llena": todos los turnos de los primeros 29 días están tomados, así que se recorre el mes entero
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuscadorTurnosBenchmark {
+
+    private static final int DEPARTAMENTOS = 2;
+    private static final int MEDICOS_POR_DEPARTAMENTO = 40;
+    private static final int DIAS = 30;
+
+    @Param({"vacia", "llena"})
+    String agenda;
+
+    @Param({"10", "200"})
+    int turnos;
+
+    private BuscadorTurnos buscador;
+
+    @Setup(Level.Trial)
+    public void preparar() throws CitaException {
+        Hospital hospital = Datos.hospital();
+        CitaManager manager = new CitaManager();
+        Paciente paciente = Datos.paciente(hospital, 1);
+        for (int d = 0; d < DEPARTAMENTOS; d++) {
+            Departamento departamento = Datos.departamento(hospital, EspecialidadMedica.CARDIOLOGIA);
+            for (int i = 0; i < MEDICOS_POR_DEPARTAMENTO; i++) {
+                int indice = d * MEDICOS_POR_DEPARTAMENTO + i;
+                Medico medico = Datos.medico(departamento, indice);
+                Sala sala = Datos.sala(departamento, indice);
+                if (agenda.equals("llena")) {
+                    // 08:00 a 18:00 cada dos horas: no queda ningún inicio libre entre apertura y cierre
+                    for (int dia = 0; dia < DIAS - 1; dia++) {
+                        for (int hora = 8; hora <= 18; hora += 2) {
+                            manager.programarCita(paciente, medico, sala,
+                                    Datos.INICIO.plusDays(dia).withHour(hora), Datos.COSTO);
+                        }
+                    }
+                }
+            }
+        }
+        buscador = new BuscadorTurnos(hospital, manager);
+    }
+
+    @Benchmark
+    public List<TurnoLibre> buscarTurnosLibres() {
+        LocalDateTime desde = Datos.INICIO.withHour(0);
+        return buscador.buscarTurnosLibres(EspecialidadMedica.CARDIOLOGIA, desde, desde.plusDays(DIAS), turnos);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.example.servicio.CargaMasivaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Alta de un hospital con muchos pacientes (cada uno con su historia clínica por cascada)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CargaMasivaBenchmark {
+
+    @Param({"10000", "100000"})
+    int pacientes;
+
+    private EntityManagerFactory emf;
+    private int corrida;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit",
+                ConsultasJpaBenchmark.propiedadesEnMemoria("carga" + corrida++));
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrar() {
+        emf.close();
+    }
+
+    private List<Paciente> nuevosPacientes(Hospital hospital) {
+        List<Paciente> lista = new ArrayList<>(pacientes);
+        for (int i = 0; i < pacientes; i++) {
+            Paciente paciente = Datos.paciente(null, i);
+            paciente.setHospital(hospital);
+            lista.add(paciente);
+        }
+        return lista;
+    }
+
+    @Benchmark
+    public void persistirPorCascada() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        nuevosPacientes(hospital);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @Benchmark
+    public void persistirEnLotes() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        em.persist(hospital);
+        // Los pacientes se crean a medida que se persisten: el hospital (detached tras el primer lote)
+        // no debe arrastrarlos a todos por cascada
+        Iterable<Paciente> lista = () -> IntStream.range(0, pacientes)
+                .mapToObj(i -> {
+                    Paciente paciente = Datos.paciente(null, i);
+                    paciente.setHospital(hospital);
+                    return paciente;
+                })
+                .iterator();
+        new CargaMasivaService(em).persistirEnLotes(lista);
+        em.getTransaction().commit();
+        em.close();
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Agenda del día de un médico con años de historia: getCitasDelDia contra lo de antes, getCitas() (copia de
+// toda la colección, y en un médico gestionado además su carga) filtrado por fecha. 'desconectado' usa el
+// médico de la carga, con la colección en memoria; 'gestionado' lo busca en un EntityManager nuevo.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CitasDelDiaBenchmark {
+
+    private static final int CITAS_POR_DIA = 8;
+
+    @Param({"2000", "20000"})
+    int citas;
+
+    private EntityManagerFactory emf;
+    private Medico medico;
+    private Object medicoId;
+    private int dias;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit",
+                ConsultasJpaBenchmark.propiedadesEnMemoria("citasdeldia"));
+        EntityManager carga = emf.createEntityManager();
+        carga.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        Departamento departamento = Datos.departamento(hospital, EspecialidadMedica.CARDIOLOGIA);
+        medico = Datos.medico(departamento, 0);
+        Sala sala = Datos.sala(departamento, 0);
+        List<Paciente> pacientes = Datos.pacientes(hospital, 50);
+        carga.persist(hospital);
+        for (int i = 0; i < citas; i++) {
+            Cita cita = Cita.builder()
+                    .paciente(pacientes.get(i % pacientes.size()))
+                    .medico(medico)
+                    .sala(sala)
+                    .fechaHora(Datos.INICIO.plusDays(i / CITAS_POR_DIA).plusHours(i % CITAS_POR_DIA))
+                    .costo(Datos.COSTO)
+                    .build();
+            carga.persist(cita);
+            medico.addCita(cita);
+        }
+        carga.getTransaction().commit();
+        medicoId = emf.getPersistenceUnitUtil().getIdentifier(medico);
+        carga.close();
+        dias = citas / CITAS_POR_DIA;
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public int desconectadoDelDia() {
+        return medico.getCitasDelDia(dia()).size();
+    }
+
+    @Benchmark
+    public long desconectadoCopiaYFiltro() {
+        return copiaYFiltro(medico, dia());
+    }
+
+    @Benchmark
+    public int gestionadoDelDia() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(Medico.class, medicoId).getCitasDelDia(dia()).size();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public long gestionadoCopiaYFiltro() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return copiaYFiltro(em.find(Medico.class, medicoId), dia());
+        } finally {
+            em.close();
+        }
+    }
+
+    private LocalDate dia() {
+        return Datos.INICIO.toLocalDate().plusDays(siguiente++ % dias);
+    }
+
+    private static long copiaYFiltro(Medico medico, LocalDate dia) {
+        return medico.getCitas().stream().filter(c -> c.getFechaHora().toLocalDate().equals(dia)).count();
+    }
+}
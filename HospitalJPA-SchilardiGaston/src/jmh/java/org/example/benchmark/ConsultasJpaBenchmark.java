@@ -0,0 +1,199 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.*;
+import org.example.servicio.CitaResumen;
+import org.example.servicio.ListadosService;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Las consultas JPQL de Main contra una H2 en memoria con la misma unidad de persistencia
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsultasJpaBenchmark {
+
+    private static final int MEDICOS_POR_DEPARTAMENTO = 20;
+    private static final int PACIENTES = 2_000;
+
+    @Param({"1000", "50000"})
+    int citas;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private ListadosService listados;
+    private int consulta;
+
+    static Map<String, Object> propiedadesEnMemoria(String nombreBase) {
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("jakarta.persistence.jdbc.url", "jdbc:h2:mem:" + nombreBase + ";DB_CLOSE_DELAY=-1");
+        propiedades.put("hibernate.hbm2ddl.auto", "create-drop");
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        propiedades.put("hibernate.highlight_sql", "false");
+        return propiedades;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit", propiedadesEnMemoria("consultas"));
+        EntityManager carga = emf.createEntityManager();
+        carga.getTransaction().begin();
+
+        Hospital hospital = Datos.hospital();
+        EspecialidadMedica[] especialidades = {EspecialidadMedica.NEUROLOGIA, EspecialidadMedica.DERMATOLOGIA};
+        Departamento[] departamentos = new Departamento[especialidades.length];
+        int n = 0;
+        for (int d = 0; d < especialidades.length; d++) {
+            departamentos[d] = Datos.departamento(hospital, especialidades[d]);
+            for (int i = 0; i < MEDICOS_POR_DEPARTAMENTO; i++, n++) {
+                Datos.medico(departamentos[d], n);
+                Datos.sala(departamentos[d], n);
+            }
+        }
+        List<Paciente> pacientes = Datos.pacientes(hospital, PACIENTES);
+        carga.persist(hospital);
+
+        for (int i = 0; i < citas; i++) {
+            Departamento departamento = departamentos[i % departamentos.length];
+            int m = (i / departamentos.length) % MEDICOS_POR_DEPARTAMENTO;
+            carga.persist(Cita.builder()
+                    .paciente(pacientes.get(i % PACIENTES))
+                    .medico(departamento.getMedicos().get(m))
+                    .sala(departamento.getSalas().get(m))
+                    .fechaHora(Datos.INICIO.plusHours(2L * i))
+                    .costo(Datos.COSTO)
+                    .build());
+            if (i % 1_000 == 0) {
+                carga.flush();
+            }
+        }
+        carga.getTransaction().commit();
+        carga.close();
+
+        em = emf.createEntityManager();
+        listados = new ListadosService(em);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    private int siguiente(int limite) {
+        consulta = (consulta + 1) % limite;
+        return consulta;
+    }
+
+    @Benchmark
+    public List<Cita> proximasCitas() {
+        List<Cita> proximas = em.createQuery(
+                        "SELECT c FROM Cita c WHERE c.fechaHora > :now ORDER BY c.fechaHora ASC", Cita.class)
+                .setParameter("now", LocalDateTime.now())
+                .getResultList();
+        em.clear();
+        return proximas;
+    }
+
+    // Listado recorriendo el paciente de cada cita: lazy (con default_batch_fetch_size), grafo y proyección
+    @Benchmark
+    public int proximasCitasConPaciente() {
+        int total = 0;
+        for (Cita cita : em.createQuery(
+                        "SELECT c FROM Cita c WHERE c.fechaHora > :now ORDER BY c.fechaHora ASC", Cita.class)
+                .setParameter("now", LocalDateTime.now())
+                .getResultList()) {
+            total += cita.getPaciente().getApellido().length();
+        }
+        em.clear();
+        return total;
+    }
+
+    @Benchmark
+    public int proximasCitasConGrafo() {
+        int total = 0;
+        for (Cita cita : listados.proximasCitasCompletas(LocalDateTime.now(), Integer.MAX_VALUE)) {
+            total += cita.getPaciente().getApellido().length();
+        }
+        em.clear();
+        return total;
+    }
+
+    @Benchmark
+    public List<CitaResumen> proximasCitasResumen() {
+        return listados.proximasCitas(LocalDateTime.now(), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Medico> medicosPorEspecialidad() {
+        List<Medico> medicos = em.createQuery(
+                        "SELECT DISTINCT m FROM Medico m WHERE m.especialidadMedica = :esp ORDER BY m.apellido", Medico.class)
+                .setParameter("esp", EspecialidadMedica.DERMATOLOGIA)
+                .setMaxResults(10)
+                .getResultList();
+        em.clear();
+        return medicos;
+    }
+
+    @Benchmark
+    public Medico medicoPorMatricula() {
+        Medico medico = em.createQuery("SELECT m FROM Medico m WHERE m.matricula.numero = :n", Medico.class)
+                .setParameter("n", "MP-" + (100_000 + siguiente(2 * MEDICOS_POR_DEPARTAMENTO)))
+                .getSingleResult();
+        em.clear();
+        return medico;
+    }
+
+    @Benchmark
+    public Paciente pacientePorDni() {
+        Paciente paciente = em.createQuery("SELECT p FROM Paciente p WHERE p.dni = :dni", Paciente.class)
+                .setParameter("dni", String.valueOf(20_000_000 + siguiente(PACIENTES)))
+                .getSingleResult();
+        em.clear();
+        return paciente;
+    }
+
+    @Benchmark
+    public Sala salaPorNumero() {
+        Sala sala = em.createQuery("SELECT s FROM Sala s WHERE s.numero = :n", Sala.class)
+                .setParameter("n", "S-" + siguiente(2 * MEDICOS_POR_DEPARTAMENTO))
+                .getSingleResult();
+        em.clear();
+        return sala;
+    }
+
+    @Benchmark
+    public Paciente pacientePorNaturalId() {
+        Paciente paciente = em.unwrap(Session.class).bySimpleNaturalId(Paciente.class)
+                .load(String.valueOf(20_000_000 + siguiente(PACIENTES)));
+        em.clear();
+        return paciente;
+    }
+
+    @Benchmark
+    public Sala salaPorNaturalId() {
+        Sala sala = em.unwrap(Session.class).bySimpleNaturalId(Sala.class)
+                .load("S-" + siguiente(2 * MEDICOS_POR_DEPARTAMENTO));
+        em.clear();
+        return sala;
+    }
+
+    @Benchmark
+    public Long citasCompletadas() {
+        return em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.estado = :st", Long.class)
+                .setParameter("st", EstadoCita.COMPLETADA)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.AlmacenColumnarCitas;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// guardarCitas / cargarCitas (CSV) y guardarSnapshot / cargarSnapshot (binario) sobre 10k, 1M y 10M filas.
+// Las variantes *Columnar cargan lo mismo en AlmacenColumnarCitas (sin un objeto Cita por fila).
+// Para los tamaños grandes conviene acotar: gradle jmh -Pjmh.incluir=CsvCitas -Pjmh.args="-p filas=10000"
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class CsvCitasBenchmark {
+
+    private static final int MEDICOS = 500;
+    private static final int PACIENTES = 20_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    int filas;
+
+    private final Map<String, Paciente> pacientes = new HashMap<>();
+    private final Map<String, Medico> medicos = new HashMap<>();
+    private final Map<String, Sala> salas = new HashMap<>();
+    private Path origen;
+    private Path destino;
+    private Path snapshot;
+    private CitaManager cargado;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, ClassNotFoundException, CitaException {
+        Departamento departamento = Datos.departamento(null, EspecialidadMedica.PEDIATRIA);
+        for (int i = 0; i < MEDICOS; i++) {
+            Medico medico = Datos.medico(departamento, i);
+            Sala sala = Datos.sala(departamento, i);
+            medicos.put(medico.getDni(), medico);
+            salas.put(sala.getNumero(), sala);
+        }
+        List<Paciente> listaPacientes = Datos.pacientes(null, PACIENTES);
+        for (Paciente paciente : listaPacientes) {
+            pacientes.put(paciente.getDni(), paciente);
+        }
+
+        // El archivo se escribe fila a fila para no tener que mantener todas las citas en memoria
+        origen = Files.createTempFile("citas-bench-", ".csv");
+        destino = Files.createTempFile("citas-bench-salida-", ".csv");
+        List<Medico> listaMedicos = List.copyOf(medicos.values());
+        List<Sala> listaSalas = List.copyOf(salas.values());
+        try (BufferedWriter writer = Files.newBufferedWriter(origen, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < filas; i++) {
+                int m = i % MEDICOS;
+                Cita cita = Cita.builder()
+                        .paciente(listaPacientes.get(i % PACIENTES))
+                        .medico(listaMedicos.get(m))
+                        .sala(listaSalas.get(m))
+                        .fechaHora(Datos.INICIO.plus(CitaManager.DURACION_CITA.multipliedBy(i / MEDICOS)))
+                        .costo(Datos.COSTO)
+                        .observaciones(i % 10 == 0 ? "Control, traer estudios" : "")
+                        .build();
+                writer.write(cita.toCsvString());
+                writer.newLine();
+            }
+        }
+
+        cargado = new CitaManager();
+        cargado.cargarCitas(origen.toString(), pacientes, medicos, salas);
+        snapshot = Files.createTempFile("citas-bench-", ".snap");
+        cargado.guardarSnapshot(snapshot.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(origen);
+        Files.deleteIfExists(destino);
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public CitaManager cargarCitas() throws IOException, ClassNotFoundException, CitaException {
+        CitaManager manager = new CitaManager();
+        manager.cargarCitas(origen.toString(), pacientes, medicos, salas);
+        return manager;
+    }
+
+    @Benchmark
+    public void guardarCitas() throws IOException {
+        cargado.guardarCitas(destino.toString());
+    }
+
+    @Benchmark
+    public CitaManager cargarSnapshot() throws IOException, CitaException {
+        CitaManager manager = new CitaManager();
+        manager.cargarSnapshot(snapshot.toString(), pacientes, medicos, salas);
+        return manager;
+    }
+
+    @Benchmark
+    public void guardarSnapshot() throws IOException {
+        cargado.guardarSnapshot(destino.toString());
+    }
+
+    @Benchmark
+    public AlmacenColumnarCitas cargarCitasColumnar() throws IOException, ClassNotFoundException, CitaException {
+        AlmacenColumnarCitas almacen = new AlmacenColumnarCitas();
+        almacen.cargarCitas(origen.toString(), pacientes, medicos, salas);
+        return almacen;
+    }
+
+    @Benchmark
+    public AlmacenColumnarCitas cargarSnapshotColumnar() throws IOException, CitaException {
+        AlmacenColumnarCitas almacen = new AlmacenColumnarCitas();
+        almacen.cargarSnapshot(snapshot.toString(), pacientes, medicos, salas);
+        return almacen;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+// Generador de datos sintéticos para los benchmarks (DNIs, matrículas y salas únicos por índice)
+final class Datos {
+
+    static final LocalDateTime INICIO = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+    static final BigDecimal COSTO = new BigDecimal("15000.00");
+
+    private Datos() {
+    }
+
+    static Hospital hospital() {
+        return Hospital.builder()
+                .nombre("Hospital Benchmark")
+                .direccion("Calle Falsa 123")
+                .telefono("+54 261 555-0000")
+                .build();
+    }
+
+    static Departamento departamento(Hospital hospital, EspecialidadMedica especialidad) {
+        Departamento departamento = Departamento.builder()
+                .nombre(especialidad.getDescripcion())
+                .especialidad(especialidad)
+                .build();
+        if (hospital != null) {
+            hospital.agregarDepartamento(departamento);
+        }
+        return departamento;
+    }
+
+    static Sala sala(Departamento departamento, int i) {
+        return departamento.crearSala("S-" + i, "Consultorio " + i);
+    }
+
+    static Medico medico(Departamento departamento, int i) {
+        Medico medico = Medico.builder()
+                .nombre("Medico").apellido("Apellido" + i).dni(String.valueOf(10_000_000 + i))
+                .fechaNacimiento(LocalDate.of(1980, Month.MARCH, 1))
+                .tipoSangre(TipoSangre.O_POSITIVO)
+                .especialidadMedica(departamento.getEspecialidadMedica())
+                .matricula(new Matricula("MP-" + (100_000 + i)))
+                .build();
+        departamento.agregarMedico(medico);
+        return medico;
+    }
+
+    static Paciente paciente(Hospital hospital, int i) {
+        Paciente paciente = Paciente.builder()
+                .nombre("Paciente").apellido("Apellido" + i).dni(String.valueOf(20_000_000 + i))
+                .fechaNacimiento(LocalDate.of(1990, Month.JUNE, 15))
+                .tipoSangre(TipoSangre.A_POSITIVO)
+                .telefono("+54 261 600-0000")
+                .direccion("Calle " + i)
+                .build();
+        if (hospital != null) {
+            hospital.agregarPaciente(paciente);
+        }
+        return paciente;
+    }
+
+    static List<Paciente> pacientes(Hospital hospital, int cantidad) {
+        List<Paciente> pacientes = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            pacientes.add(paciente(hospital, i));
+        }
+        return pacientes;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.example.servicio.DiarioCitas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Costo del diario en reservas concurrentes: sin diario, y con cada política de durabilidad. Con SINCRONA el
+// group commit hace que varios hilos compartan un fsync (ver diario.sincronizaciones frente a diario.eventos).
+// El diario se crea en el directorio temporal; para medir otro disco: -jvmArgsAppend -Djava.io.tmpdir=/ruta
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiarioCitasBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Compartido {
+        @Param({"SIN_DIARIO", "SINCRONA", "PERIODICA", "SIN_FSYNC"})
+        String durabilidad;
+
+        final AtomicInteger siguiente = new AtomicInteger();
+        CitaManager manager;
+        Path directorio;
+
+        @Setup(Level.Trial)
+        public void preparar() throws IOException, CitaException {
+            manager = new CitaManager();
+            directorio = Files.createTempDirectory("diario-bench-");
+            if (!durabilidad.equals("SIN_DIARIO")) {
+                manager.abrirDiario(directorio.resolve("citas.snap").toString(),
+                        directorio.resolve("citas.diario").toString(),
+                        DiarioCitas.Durabilidad.valueOf(durabilidad), Map.of(), Map.of(), Map.of());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void limpiar() throws IOException {
+            manager.cerrarDiario();
+            try (var archivos = Files.list(directorio)) {
+                for (Path archivo : archivos.toList()) {
+                    Files.delete(archivo);
+                }
+            }
+            Files.delete(directorio);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PorHilo {
+        Paciente paciente;
+        Medico medico;
+        Sala sala;
+        LocalDateTime proximoTurno;
+
+        @Setup(Level.Trial)
+        public void preparar(Compartido compartido) {
+            int i = compartido.siguiente.incrementAndGet();
+            Departamento departamento = Datos.departamento(null, EspecialidadMedica.MEDICINA_GENERAL);
+            medico = Datos.medico(departamento, i);
+            sala = Datos.sala(departamento, i);
+            paciente = Datos.paciente(null, i);
+            proximoTurno = Datos.INICIO;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Cita reservar(Compartido compartido, PorHilo hilo) throws CitaException {
+        Cita cita = compartido.manager.programarCita(hilo.paciente, hilo.medico, hilo.sala, hilo.proximoTurno, Datos.COSTO);
+        hilo.proximoTurno = hilo.proximoTurno.plus(CitaManager.DURACION_CITA);
+        return cita;
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Flush de un contexto de persistencia grande (citas, médicos y pacientes cargados, como en la transacción
+// de Main) en el que cambiaron pocas citas. Sin enhancement Hibernate compara cada entidad contra su snapshot
+// en cada flush; con dirty tracking solo revisa las que marcaron sus setters. Para comparar:
+//   gradle jmh -Pjmh.incluir=Flush -Pjmh.etiqueta=con-enhancement
+//   gradle jmh -Pjmh.incluir=Flush -Phibernate.enhance=false -Pjmh.etiqueta=sin-enhancement
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FlushBenchmark {
+
+    private static final int MEDICOS = 40;
+    private static final int PACIENTES = 2_000;
+
+    @Param({"50000"})
+    int citas;
+
+    @Param({"1", "100"})
+    int cambios;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private List<Cita> cargadas;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit",
+                ConsultasJpaBenchmark.propiedadesEnMemoria("flush"));
+        EntityManager carga = emf.createEntityManager();
+        carga.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        Departamento departamento = Datos.departamento(hospital, EspecialidadMedica.CARDIOLOGIA);
+        for (int i = 0; i < MEDICOS; i++) {
+            Datos.medico(departamento, i);
+            Datos.sala(departamento, i);
+        }
+        List<Paciente> pacientes = Datos.pacientes(hospital, PACIENTES);
+        carga.persist(hospital);
+        for (int i = 0; i < citas; i++) {
+            int m = i % MEDICOS;
+            carga.persist(Cita.builder()
+                    .paciente(pacientes.get(i % PACIENTES))
+                    .medico(departamento.getMedicos().get(m))
+                    .sala(departamento.getSalas().get(m))
+                    .fechaHora(Datos.INICIO.plusHours(2L * (i / MEDICOS)))
+                    .costo(Datos.COSTO)
+                    .build());
+            if (i % 1_000 == 0) {
+                carga.flush();
+            }
+        }
+        carga.getTransaction().commit();
+        carga.close();
+
+        // Un contexto con todo cargado y una transacción abierta durante el trial
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        cargadas = em.createQuery("select c from Cita c", Cita.class).getResultList();
+        em.createQuery("select m from Medico m", Medico.class).getResultList();
+        em.createQuery("select p from Paciente p", Paciente.class).getResultList();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.getTransaction().rollback();
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        for (int i = 0; i < cambios; i++) {
+            Cita cita = cargadas.get(siguiente++ % cargadas.size());
+            cita.setEstado(cita.getEstado() == EstadoCita.PROGRAMADA ? EstadoCita.COMPLETADA : EstadoCita.PROGRAMADA);
+        }
+        em.flush();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.example.servicio.SolicitudCita;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Guardado periódico de una agenda grande en la que cambiaron pocas citas: guardarCitas reescribe todo,
+// guardarIncremental escribe solo un segmento con las cambiadas (la compactación corre en segundo plano).
+// Para 5M conviene acotar: gradle jmh -Pjmh.incluir=GuardadoIncremental -Pjmh.args="-p filas=1000000"
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class GuardadoIncrementalBenchmark {
+
+    private static final int MEDICOS = 500;
+
+    @Param({"1000000", "5000000"})
+    int filas;
+
+    @Param({"1000"})
+    int cambios;
+
+    private final Random random = new Random(42);
+    private CitaManager manager;
+    private List<Cita> citas;
+    private Path directorio;
+    private String base;
+    private String completo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        Departamento departamento = Datos.departamento(null, EspecialidadMedica.CARDIOLOGIA);
+        List<Medico> medicos = new ArrayList<>();
+        List<Sala> salas = new ArrayList<>();
+        for (int i = 0; i < MEDICOS; i++) {
+            medicos.add(Datos.medico(departamento, i));
+            salas.add(Datos.sala(departamento, i));
+        }
+        List<Paciente> pacientes = Datos.pacientes(null, 20_000);
+        List<SolicitudCita> solicitudes = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            int m = i % MEDICOS;
+            solicitudes.add(new SolicitudCita(pacientes.get(i % pacientes.size()), medicos.get(m), salas.get(m),
+                    Datos.INICIO.plus(CitaManager.DURACION_CITA.multipliedBy(i / MEDICOS)), Datos.COSTO));
+        }
+        manager = new CitaManager();
+        manager.programarCitas(solicitudes);
+        citas = manager.getCitas();
+
+        directorio = Files.createTempDirectory("guardado-bench-");
+        base = directorio.resolve("citas.csv").toString();
+        completo = directorio.resolve("completo.csv").toString();
+        manager.guardarIncremental(base);
+    }
+
+    @Setup(Level.Invocation)
+    public void modificar() {
+        EstadoCita[] estados = EstadoCita.values();
+        for (int i = 0; i < cambios; i++) {
+            manager.cambiarEstado(citas.get(random.nextInt(citas.size())), estados[random.nextInt(estados.length)]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        manager.cerrarIncremental();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path archivo : archivos.toList()) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+        Files.deleteIfExists(directorio);
+    }
+
+    @Benchmark
+    public void guardarCitas() throws IOException {
+        manager.guardarCitas(completo);
+    }
+
+    @Benchmark
+    public void guardarIncremental() throws IOException {
+        manager.guardarIncremental(base);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.HistoriaClinica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.example.servicio.HistoriaClinicaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Agregar un diagnóstico a la historia de un paciente crónico y leer la primera página, según cuántas entradas
+// tenga ya la historia. Con las colecciones de antes (bags) agregar uno borraba y reinsertaba todos; con
+// EntradaHistoria el costo no depende de 'entradas'.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoriaClinicaBenchmark {
+
+    @Param({"100", "500"})
+    int entradas;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private HistoriaClinicaService servicio;
+    private HistoriaClinica historia;
+    private long siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit",
+                ConsultasJpaBenchmark.propiedadesEnMemoria("historia"));
+        EntityManager carga = emf.createEntityManager();
+        carga.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        Paciente paciente = Datos.pacientes(hospital, 1).get(0);
+        carga.persist(hospital);
+        HistoriaClinicaService alta = new HistoriaClinicaService(carga);
+        for (int i = 0; i < entradas; i++) {
+            alta.agregarDiagnostico(paciente.getHistoriaClinica(), "Diagnóstico " + i);
+        }
+        carga.getTransaction().commit();
+        Object id = emf.getPersistenceUnitUtil().getIdentifier(paciente.getHistoriaClinica());
+        carga.close();
+
+        em = emf.createEntityManager();
+        servicio = new HistoriaClinicaService(em);
+        historia = em.getReference(HistoriaClinica.class, id);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    // Un alta en su propia transacción, como la hace el servicio
+    @Benchmark
+    public EntradaHistoria agregar() {
+        EntradaHistoria entrada = servicio.agregarDiagnostico(historia, "Control " + siguiente++);
+        em.detach(entrada);
+        return entrada;
+    }
+
+    @Benchmark
+    public List<EntradaHistoria> primeraPagina() {
+        List<EntradaHistoria> pagina = servicio.pagina(historia, null, null);
+        pagina.forEach(em::detach);
+        return pagina;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.benchmark;
+
+import org.example.entidades.TipoEntradaHistoria;
+import org.example.servicio.IndiceHistorias;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Búsquedas en el índice de historias con un millón de pacientes: cada uno con dos diagnósticos y un tratamiento,
+// y un 30% con una alergia (penicilina es la más común, ~4% de los pacientes). El chequeo antes de una cirugía
+// es alergiaTermino/alergiaFrase; agregar es el costo que suma cada alta en HistoriaClinicaService.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class IndiceHistoriasBenchmark {
+
+    private static final String[] ALERGENOS = {"penicilina", "penicilina", "amoxicilina", "ibuprofeno", "aspirina",
+            "látex", "mariscos", "maní", "sulfamidas", "polen", "ácaros", "yodo", "cefalosporinas"};
+    private static final String[] DIAGNOSTICOS = {"Hipertensión arterial", "Diabetes mellitus tipo 2",
+            "Asma bronquial", "Fractura de radio distal", "Gastritis crónica", "Migraña sin aura",
+            "Hipotiroidismo", "Lumbalgia mecánica", "Neumonía adquirida en la comunidad", "Insuficiencia cardíaca",
+            "Anemia ferropénica", "Otitis media aguda", "Faringitis estreptocócica", "Dermatitis atópica",
+            "Apendicitis aguda", "Cálculo renal", "Artrosis de rodilla", "Depresión leve", "Obesidad grado 1",
+            "Infección urinaria baja"};
+    private static final String[] TRATAMIENTOS = {"Enalapril 10 mg cada 12 horas", "Metformina 850 mg con las comidas",
+            "Salbutamol inhalado a demanda", "Inmovilización con yeso por 6 semanas", "Omeprazol 20 mg en ayunas",
+            "Levotiroxina 50 mcg", "Kinesiología 10 sesiones", "Amoxicilina 500 mg cada 8 horas por 7 días",
+            "Furosemida 40 mg", "Sulfato ferroso 1 comprimido diario"};
+
+    @Param({"1000000"})
+    int pacientes;
+
+    private IndiceHistorias indice;
+    private long siguienteEntrada;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(42);
+        indice = new IndiceHistorias();
+        for (long paciente = 1; paciente <= pacientes; paciente++) {
+            for (int i = 0; i < 2; i++) {
+                indice.agregar(++siguienteEntrada, paciente, TipoEntradaHistoria.DIAGNOSTICO,
+                        DIAGNOSTICOS[random.nextInt(DIAGNOSTICOS.length)]);
+            }
+            indice.agregar(++siguienteEntrada, paciente, TipoEntradaHistoria.TRATAMIENTO,
+                    TRATAMIENTOS[random.nextInt(TRATAMIENTOS.length)]);
+            if (random.nextInt(10) < 3) {
+                String alergeno = ALERGENOS[random.nextInt(ALERGENOS.length)];
+                indice.agregar(++siguienteEntrada, paciente, TipoEntradaHistoria.ALERGIA, random.nextBoolean()
+                        ? "Alergia a la " + alergeno : "Reacción con urticaria tras " + alergeno);
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] alergiaTermino() {
+        return indice.buscarTermino("penicilina", TipoEntradaHistoria.ALERGIA);
+    }
+
+    @Benchmark
+    public long[] alergiaFrase() {
+        return indice.buscarFrase("alergia a la penicilina", TipoEntradaHistoria.ALERGIA);
+    }
+
+    @Benchmark
+    public long[] prefijo() {
+        return indice.buscarPrefijo("amoxi", null);
+    }
+
+    // Término frecuente (~10% de los pacientes) en todos los tipos
+    @Benchmark
+    public long[] diagnosticoFrecuente() {
+        return indice.buscarTermino("hipertension", null);
+    }
+
+    @Benchmark
+    public void agregar() {
+        indice.agregar(++siguienteEntrada, siguienteEntrada % pacientes + 1, TipoEntradaHistoria.DIAGNOSTICO,
+                "Control de hipertensión arterial sin cambios");
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.Hospital;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Transacción corta de mostrador (abrir EntityManager, una lectura, commit) con 8 hilos:
+// mide cuánto pesa obtener la conexión con HikariCP (con y sin detección de fugas) frente al pool interno de Hibernate
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class PoolConexionesBenchmark {
+
+    @Param({"hikari", "hikari-sin-fugas", "interno"})
+    String pool;
+
+    private EntityManagerFactory emf;
+    private long idHospital;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Map<String, Object> propiedades = ConsultasJpaBenchmark.propiedadesEnMemoria("pool-" + pool);
+        if (pool.equals("hikari-sin-fugas")) {
+            propiedades.put("hibernate.hikari.leakDetectionThreshold", "0");
+        } else if (pool.equals("interno")) {
+            propiedades.put("hibernate.connection.provider_class",
+                    "org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl");
+            propiedades.put("hibernate.connection.pool_size", "10");
+        }
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit", propiedades);
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        idHospital = hospital.getIdH();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public Long transaccionCorta() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Long departamentos = em.createQuery(
+                            "SELECT COUNT(d) FROM Departamento d WHERE d.hospital.idH = :id", Long.class)
+                    .setParameter("id", idHospital)
+                    .getSingleResult();
+            em.getTransaction().commit();
+            return departamentos;
+        } finally {
+            em.close();
+        }
+    }
+}
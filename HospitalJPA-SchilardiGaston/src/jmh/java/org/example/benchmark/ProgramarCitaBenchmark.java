@@ -0,0 +1,62 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Costo de una reserva según cuántas citas tiene ya el médico (y la sala) en su agenda
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramarCitaBenchmark {
+
+    @Param({"0", "1000", "100000"})
+    int citasPrevias;
+
+    private CitaManager manager;
+    private Paciente paciente;
+    private Medico medico;
+    private Sala sala;
+    private LocalDateTime proximoTurno;
+
+    // Se reconstruye en cada iteración para que la agenda no crezca sin control entre mediciones
+    @Setup(Level.Iteration)
+    public void preparar() throws CitaException {
+        Departamento departamento = Datos.departamento(null, EspecialidadMedica.CARDIOLOGIA);
+        medico = Datos.medico(departamento, 1);
+        sala = Datos.sala(departamento, 1);
+        paciente = Datos.paciente(null, 1);
+        manager = new CitaManager();
+
+        proximoTurno = Datos.INICIO;
+        for (int i = 0; i < citasPrevias; i++) {
+            manager.programarCita(paciente, medico, sala, proximoTurno, Datos.COSTO);
+            proximoTurno = proximoTurno.plus(CitaManager.DURACION_CITA);
+        }
+    }
+
+    @Benchmark
+    public Cita programarCita() throws CitaException {
+        Cita cita = manager.programarCita(paciente, medico, sala, proximoTurno, Datos.COSTO);
+        proximoTurno = proximoTurno.plus(CitaManager.DURACION_CITA);
+        return cita;
+    }
+
+    @Benchmark
+    public boolean rechazarPorConflicto() {
+        // Siempre choca con la primera cita de la agenda (o con ninguna si está vacía)
+        try {
+            manager.programarCita(paciente, medico, sala, Datos.INICIO.plusMinutes(30), Datos.COSTO);
+            return true;
+        } catch (CitaException e) {
+            return false;
+        }
+    }
+}
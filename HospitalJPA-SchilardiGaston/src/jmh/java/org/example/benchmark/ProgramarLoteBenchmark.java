@@ -0,0 +1,99 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.example.servicio.ResultadoSolicitud;
+import org.example.servicio.SolicitudCita;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Importación de una grilla semanal (100 médicos, 6 turnos por día, 1 de cada 10 en conflicto) sobre una
+// agenda que ya tiene citas: una llamada a programarCita por solicitud frente a un único programarCitas
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProgramarLoteBenchmark {
+
+    private static final int MEDICOS = 100;
+    private static final int TURNOS_POR_DIA = 6;
+
+    @Param({"1", "10"})
+    int semanas;
+
+    @Param({"10000"})
+    int citasPrevias;
+
+    private final List<Medico> medicos = new ArrayList<>();
+    private final List<Sala> salas = new ArrayList<>();
+    private final List<Paciente> pacientes = new ArrayList<>();
+    private List<SolicitudCita> solicitudes;
+    private CitaManager manager;
+
+    // Entidades nuevas en cada iteración: programarCita también agrega la cita a sus listas
+    @Setup(Level.Iteration)
+    public void preparar() throws CitaException {
+        medicos.clear();
+        salas.clear();
+        pacientes.clear();
+        Departamento departamento = Datos.departamento(null, EspecialidadMedica.TRAUMATOLOGIA);
+        for (int i = 0; i < MEDICOS; i++) {
+            medicos.add(Datos.medico(departamento, i));
+            salas.add(Datos.sala(departamento, i));
+        }
+        pacientes.addAll(Datos.pacientes(null, 1_000));
+
+        // La grilla empieza después de las citas previas; cada décima solicitud repite el turno anterior
+        int diaInicial = citasPrevias / (MEDICOS * TURNOS_POR_DIA) + 1;
+        solicitudes = new ArrayList<>();
+        for (int dia = 0; dia < semanas * 7; dia++) {
+            for (int turno = 0; turno < TURNOS_POR_DIA; turno++) {
+                for (int m = 0; m < MEDICOS; m++) {
+                    int t = solicitudes.size() % 10 == 9 ? Math.max(0, turno - 1) : turno;
+                    solicitudes.add(new SolicitudCita(pacientes.get(solicitudes.size() % pacientes.size()),
+                            medicos.get(m), salas.get(m),
+                            Datos.INICIO.plusDays(diaInicial + dia).plus(CitaManager.DURACION_CITA.multipliedBy(t)),
+                            Datos.COSTO));
+                }
+            }
+        }
+
+        manager = new CitaManager();
+        for (int i = 0; i < citasPrevias; i++) {
+            int m = i % MEDICOS;
+            manager.programarCita(pacientes.get(i % pacientes.size()), medicos.get(m), salas.get(m),
+                    Datos.INICIO.plus(CitaManager.DURACION_CITA.multipliedBy(i / MEDICOS)), Datos.COSTO);
+        }
+    }
+
+    @Benchmark
+    public int individual() {
+        int aceptadas = 0;
+        for (SolicitudCita s : solicitudes) {
+            try {
+                manager.programarCita(s.paciente(), s.medico(), s.sala(), s.fechaHora(), s.costo());
+                aceptadas++;
+            } catch (CitaException e) {
+                // rechazada por conflicto
+            }
+        }
+        return aceptadas;
+    }
+
+    @Benchmark
+    public int lote() {
+        int aceptadas = 0;
+        for (ResultadoSolicitud resultado : manager.programarCitas(solicitudes)) {
+            if (resultado.isAceptada()) {
+                aceptadas++;
+            }
+        }
+        return aceptadas;
+    }
+}
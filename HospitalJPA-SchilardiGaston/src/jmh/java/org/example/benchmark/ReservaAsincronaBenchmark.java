@@ -0,0 +1,141 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.*;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaJpaService;
+import org.example.servicio.CitaManager;
+import org.example.servicio.ReservaAsincronaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Ráfaga de reservas a la apertura: se encolan todas de golpe y se mide hasta que termina la última.
+// "fachada": ReservaAsincronaService (hilos virtuales en 21+, pool acotado al de conexiones en 17).
+// "plataforma": un hilo de plataforma por pedido hasta 200 (estilo contenedor web), sin semáforo:
+// los hilos que no consiguen conexión esperan en Hikari y pueden vencer connectionTimeout.
+// Al final de cada iteración se informan los rechazos y el pico de hilos de la JVM.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservaAsincronaBenchmark {
+
+    private static final int MEDICOS = 50;
+    private static final int HILOS_PLATAFORMA = 200;
+
+    @Param({"fachada", "plataforma"})
+    String ejecutor;
+
+    @Param({"2000"})
+    int pedidos;
+
+    private EntityManagerFactory emf;
+    private ReservaAsincronaService fachada;
+    private ExecutorService plataforma;
+    private final List<Medico> medicos = new ArrayList<>();
+    private final List<Sala> salas = new ArrayList<>();
+    private Paciente paciente;
+    private int fallidas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit",
+                ConsultasJpaBenchmark.propiedadesEnMemoria("reserva-asincrona-" + ejecutor));
+        EntityManager carga = emf.createEntityManager();
+        carga.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        Departamento departamento = Datos.departamento(hospital, EspecialidadMedica.PEDIATRIA);
+        for (int i = 0; i < MEDICOS; i++) {
+            medicos.add(Datos.medico(departamento, i));
+            salas.add(Datos.sala(departamento, i));
+        }
+        paciente = Datos.paciente(hospital, 1);
+        carga.persist(hospital);
+        carga.getTransaction().commit();
+        carga.close();
+
+        if (ejecutor.equals("fachada")) {
+            fachada = new ReservaAsincronaService(emf);
+        } else {
+            plataforma = Executors.newFixedThreadPool(HILOS_PLATAFORMA);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void vaciarCitas() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.createQuery("DELETE FROM Cita").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+        fallidas = 0;
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void informar() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        System.out.printf("  [%s] fallidas=%d picoHilos=%d%n", ejecutor, fallidas, hilos.getPeakThreadCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws InterruptedException {
+        if (fachada != null) {
+            fachada.close();
+        } else {
+            plataforma.shutdown();
+            plataforma.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        emf.close();
+    }
+
+    @Benchmark
+    public int rafaga() {
+        List<CompletableFuture<Cita>> futuros = new ArrayList<>(pedidos);
+        for (int i = 0; i < pedidos; i++) {
+            int m = i % MEDICOS;
+            futuros.add(reservar(medicos.get(m), salas.get(m),
+                    Datos.INICIO.plus(CitaManager.DURACION_CITA.multipliedBy(i / MEDICOS))));
+        }
+        int confirmadas = 0;
+        for (CompletableFuture<Cita> futuro : futuros) {
+            try {
+                futuro.join();
+                confirmadas++;
+            } catch (CompletionException e) {
+                fallidas++;
+            }
+        }
+        return confirmadas;
+    }
+
+    private CompletableFuture<Cita> reservar(Medico medico, Sala sala, LocalDateTime fechaHora) {
+        if (fachada != null) {
+            return fachada.programarCita(paciente, medico, sala, fechaHora, Datos.COSTO);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return new CitaJpaService(em).programarCita(paciente, medico, sala, fechaHora, Datos.COSTO);
+            } catch (CitaException e) {
+                throw new CompletionException(e);
+            } finally {
+                em.close();
+            }
+        }, plataforma);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.benchmark;
+
+import org.example.entidades.*;
+import org.example.servicio.CitaException;
+import org.example.servicio.CitaManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Throughput de reservas con varios hilos sobre un mismo CitaManager, cada hilo con su propio
+// médico, sala y paciente. Con lock striping el total debería crecer con la cantidad de hilos.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservaConcurrenteBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Compartido {
+        final CitaManager manager = new CitaManager();
+        final AtomicInteger siguiente = new AtomicInteger();
+    }
+
+    @State(Scope.Thread)
+    public static class PorHilo {
+        Paciente paciente;
+        Medico medico;
+        Sala sala;
+        LocalDateTime proximoTurno;
+
+        @Setup(Level.Trial)
+        public void preparar(Compartido compartido) {
+            int i = compartido.siguiente.incrementAndGet();
+            Departamento departamento = Datos.departamento(null, EspecialidadMedica.MEDICINA_GENERAL);
+            medico = Datos.medico(departamento, i);
+            sala = Datos.sala(departamento, i);
+            paciente = Datos.paciente(null, i);
+            proximoTurno = Datos.INICIO;
+        }
+    }
+
+    private static Cita reservar(Compartido compartido, PorHilo hilo) throws CitaException {
+        Cita cita = compartido.manager.programarCita(hilo.paciente, hilo.medico, hilo.sala, hilo.proximoTurno, Datos.COSTO);
+        hilo.proximoTurno = hilo.proximoTurno.plus(CitaManager.DURACION_CITA);
+        return cita;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Cita hilos01(Compartido compartido, PorHilo hilo) throws CitaException {
+        return reservar(compartido, hilo);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Cita hilos02(Compartido compartido, PorHilo hilo) throws CitaException {
+        return reservar(compartido, hilo);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Cita hilos04(Compartido compartido, PorHilo hilo) throws CitaException {
+        return reservar(compartido, hilo);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Cita hilos08(Compartido compartido, PorHilo hilo) throws CitaException {
+        return reservar(compartido, hilo);
+    }
+}
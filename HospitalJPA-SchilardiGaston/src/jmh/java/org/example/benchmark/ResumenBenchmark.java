@@ -0,0 +1,154 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicio.AgregadosCitas;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Tablero del resumen (pacientes, salas, citas por estado, ingresos por especialidad y ocupación de una sala en un
+// día): las consultas COUNT/SUM que hacía Main contra los getters de AgregadosCitas. 'confirmarCambio' mide lo que
+// los listeners agregan a una transacción que cambia el estado de una cita.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResumenBenchmark {
+
+    private static final int SALAS = 10;
+    private static final int CITAS_POR_DIA = 6;
+
+    @Param({"10000", "100000"})
+    int citas;
+
+    private EntityManagerFactory emf;
+    private AgregadosCitas agregados;
+    private long salaId;
+    private Long citaId;
+    private int dias;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = Persistence.createEntityManagerFactory("hospital-persistence-unit",
+                ConsultasJpaBenchmark.propiedadesEnMemoria("resumen"));
+        EntityManager carga = emf.createEntityManager();
+        carga.getTransaction().begin();
+        Hospital hospital = Datos.hospital();
+        Departamento departamento = Datos.departamento(hospital, EspecialidadMedica.CARDIOLOGIA);
+        Medico medico = Datos.medico(departamento, 0);
+        Sala[] salas = new Sala[SALAS];
+        for (int i = 0; i < SALAS; i++) {
+            salas[i] = Datos.sala(departamento, i);
+        }
+        List<Paciente> pacientes = Datos.pacientes(hospital, 200);
+        carga.persist(hospital);
+        carga.flush();
+        // Por lotes con clear(): las citas van con referencias a los ids ya insertados
+        Object medicoId = medico.getIdM();
+        Object[] salaIds = Arrays.stream(salas).map(Sala::getIdS).toArray();
+        Object[] pacienteIds = pacientes.stream().map(Paciente::getIdP).toArray();
+        salaId = salas[0].getIdS();
+        carga.clear();
+        EstadoCita[] estados = EstadoCita.values();
+        for (int i = 0; i < citas; i++) {
+            int dia = i / (SALAS * CITAS_POR_DIA);
+            int turno = i / SALAS % CITAS_POR_DIA;
+            carga.persist(Cita.builder()
+                    .paciente(carga.getReference(Paciente.class, pacienteIds[i % pacienteIds.length]))
+                    .medico(carga.getReference(Medico.class, medicoId))
+                    .sala(carga.getReference(Sala.class, salaIds[i % SALAS]))
+                    .fechaHora(Datos.INICIO.plusDays(dia).plusHours(2L * turno))
+                    .costo(Datos.COSTO)
+                    .estado(estados[i % estados.length])
+                    .build());
+            if (i % 1000 == 999) {
+                carga.flush();
+                carga.clear();
+            }
+        }
+        carga.getTransaction().commit();
+        citaId = carga.createQuery("SELECT MIN(c.id) FROM Cita c", Long.class).getSingleResult();
+        carga.close();
+        agregados = AgregadosCitas.registrar(emf);
+        dias = citas / (SALAS * CITAS_POR_DIA);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public long consultas() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            long total = em.createQuery("SELECT COUNT(p) FROM Paciente p", Long.class).getSingleResult();
+            total += em.createQuery("SELECT COUNT(s) FROM Sala s", Long.class).getSingleResult();
+            for (Object[] fila : em.createQuery("SELECT c.estado, COUNT(c) FROM Cita c GROUP BY c.estado",
+                    Object[].class).getResultList()) {
+                total += (Long) fila[1];
+            }
+            BigDecimal ingresos = em.createQuery("SELECT SUM(c.costo) FROM Cita c JOIN c.sala s JOIN s.departamento d "
+                            + "WHERE c.estado = :completada AND d.especialidadMedica = :especialidad", BigDecimal.class)
+                    .setParameter("completada", EstadoCita.COMPLETADA)
+                    .setParameter("especialidad", EspecialidadMedica.CARDIOLOGIA)
+                    .getSingleResult();
+            LocalDate dia = dia();
+            total += em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.sala.idS = :sala AND c.estado <> :cancelada "
+                            + "AND c.fechaHora >= :desde AND c.fechaHora < :hasta", Long.class)
+                    .setParameter("sala", salaId)
+                    .setParameter("cancelada", EstadoCita.CANCELADA)
+                    .setParameter("desde", dia.atStartOfDay())
+                    .setParameter("hasta", dia.plusDays(1).atStartOfDay())
+                    .getSingleResult();
+            return total + ingresos.longValue();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public long agregados() {
+        long total = agregados.getPacientes() + agregados.getSalas();
+        for (EstadoCita estado : EstadoCita.values()) {
+            total += agregados.getCitas(estado);
+        }
+        total += agregados.getCitasSala(salaId, dia());
+        return total + agregados.getIngresosEspecialidad(EspecialidadMedica.CARDIOLOGIA).longValue();
+    }
+
+    @Benchmark
+    public Object confirmarCambio() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Cita cita = em.find(Cita.class, citaId);
+            cita.setEstado(cita.getEstado() == EstadoCita.COMPLETADA ? EstadoCita.PROGRAMADA : EstadoCita.COMPLETADA);
+            em.getTransaction().commit();
+            return cita.getEstado();
+        } finally {
+            em.close();
+        }
+    }
+
+    private LocalDate dia() {
+        return Datos.INICIO.toLocalDate().plusDays(siguiente++ % dias);
+    }
+}
@@ -3,21 +3,35 @@ package org.example;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
-import jakarta.persistence.TypedQuery;
 
 import org.example.entidades.*;
-import org.example.servicio.CitaManager;
+import org.example.metricas.MetricasHibernate;
+import org.example.metricas.MetricasPoolConexiones;
+import org.example.metricas.RegistroMetricas;
+import org.example.servicio.AgregadosCitas;
+import org.example.servicio.CitaJpaService;
 import org.example.servicio.CitaException; // 👈 IMPORTANTE
+import org.example.servicio.CitaResumen;
+import org.example.servicio.EstadisticasCache;
+import org.example.servicio.FiltroCitas;
+import org.example.servicio.ListadosService;
+import org.example.servicio.MedicoResumen;
+import org.example.servicio.MigradorEsquema;
+import org.example.servicio.PaginadorCitas;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
-import java.util.List;
 
 public class Main {
 
     private static final boolean RESET_DB = false;
+    // Compara el esquema migrado con el mapeo de las entidades al arrancar (lo que hacía hbm2ddl validate)
+    private static final boolean VALIDAR_ESQUEMA = false;
 
     public static void main(String[] args) {
         System.out.println("--- SISTEMA DE GESTION HOSPITALARIA (EDICION DEMO) ---");
@@ -27,16 +41,40 @@ public class Main {
 
         try {
             emf = Persistence.createEntityManagerFactory("hospital-persistence-unit");
-            em  = emf.createEntityManager();
-
-            em.getTransaction().begin();
 
-            // Opción: reset de base de datos si está habilitado
+            // Opción: reset de base de datos si está habilitado. Va antes de migrar: así también recupera una
+            // base que no migra (p. ej. con DNI repetidos que V4 rechaza) y el esquema se recrea desde V1
             if (RESET_DB) {
-                em.createNativeQuery("DROP ALL OBJECTS").executeUpdate(); // Limpia todo en H2
-                em.clear();
+                EntityManager reset = emf.createEntityManager();
+                try {
+                    reset.getTransaction().begin();
+                    reset.createNativeQuery("DROP ALL OBJECTS").executeUpdate(); // Limpia todo en H2
+                    reset.getTransaction().commit();
+                } finally {
+                    reset.close();
+                }
+            }
+
+            // Esquema por migraciones versionadas (hbm2ddl.auto=none en persistence.xml)
+            int migraciones = MigradorEsquema.migrar(emf);
+            if (migraciones > 0) {
+                System.out.println("Esquema: " + migraciones + " migraciones aplicadas");
+            }
+            if (VALIDAR_ESQUEMA) {
+                emf.unwrap(SessionFactory.class).getSchemaManager().validateMappedObjects();
             }
 
+            // Totales del resumen: se cargan una vez y se actualizan con cada commit
+            AgregadosCitas agregados = AgregadosCitas.registrar(emf);
+
+            em  = emf.createEntityManager();
+
+            // Métricas de reservas, pool y Hibernate por JMX (org.example.hospital:type=Metricas)
+            RegistroMetricas.global().publicarJmx();
+            MetricasHibernate.registrar(RegistroMetricas.global(), emf);
+
+            em.getTransaction().begin();
+
             // Verificar si ya hay hospital creado
             Long hayHospital = em.createQuery(
                             "SELECT COUNT(h) FROM Hospital h WHERE h.nombre = :n", Long.class)
@@ -62,50 +100,57 @@ public class Main {
                 System.out.println("==> Ya existen citas futuras. No se reprograman.");
             }
 
-            // Consultas de ejemplo
+            // Consultas de ejemplo (proyecciones a records: un solo SELECT por listado)
+            ListadosService listados = new ListadosService(em);
+
             System.out.println("\n-- Médicos por especialidad (DERMATOLOGIA) --");
-            TypedQuery<Medico> qMedDerma = em.createQuery(
-                    "SELECT DISTINCT m FROM Medico m WHERE m.especialidadMedica = :esp ORDER BY m.apellido",
-                    Medico.class);
-            qMedDerma.setParameter("esp", EspecialidadMedica.DERMATOLOGIA);
-            qMedDerma.setMaxResults(10);
-            for (Medico med : qMedDerma.getResultList()) {
-                System.out.println("   * " + med.getApellido().toUpperCase() + ", " + med.getNombre()
-                        + " | Mat: " + med.getMatricula().getNumero());
+            for (MedicoResumen med : listados.medicosPorEspecialidad(EspecialidadMedica.DERMATOLOGIA, 10)) {
+                System.out.println("   * " + med.apellido().toUpperCase() + ", " + med.nombre()
+                        + " | Mat: " + med.matricula());
             }
 
+            // Toda la agenda futura, de a una página por vez (keyset sobre fechaHora, id)
             System.out.println("\n-- Próximas citas (ordenadas por fecha asc) --");
-            TypedQuery<Cita> qCitasProx = em.createQuery(
-                    "SELECT c FROM Cita c WHERE c.fechaHora > :now ORDER BY c.fechaHora ASC",
-                    Cita.class);
-            qCitasProx.setParameter("now", LocalDateTime.now());
-            List<Cita> proximas = qCitasProx.getResultList();
-            for (Cita c : proximas) {
-                System.out.println("   • " + c.getFechaHora() + " | Paciente: " + c.getPaciente().getApellido()
-                        + " | " + c.getEstado());
+            FiltroCitas futuras = FiltroCitas.builder().desde(LocalDateTime.now()).build();
+            Long primera = null;
+            for (CitaResumen c : (Iterable<CitaResumen>) new PaginadorCitas(em).streamResumen(futuras)::iterator) {
+                if (primera == null) {
+                    primera = c.id();
+                }
+                System.out.println("   • " + c.fechaHora() + " | Paciente: " + c.pacienteApellido()
+                        + " | " + c.estado());
             }
 
-            if (!proximas.isEmpty()) {
-                Cita aActualizar = proximas.get(0);
+            if (primera != null) {
+                Cita aActualizar = em.find(Cita.class, primera);
                 System.out.println("\nEstado anterior cita #" + aActualizar.getId() + ": " + aActualizar.getEstado());
                 aActualizar.setEstado(EstadoCita.COMPLETADA);
                 System.out.println("Nuevo estado: " + aActualizar.getEstado());
             }
 
-            // Estadísticas
-            Long totalPacientes = em.createQuery("SELECT COUNT(p) FROM Paciente p", Long.class).getSingleResult();
-            Long totalCitasComp = em.createQuery(
-                            "SELECT COUNT(c) FROM Cita c WHERE c.estado = :st", Long.class)
-                    .setParameter("st", EstadoCita.COMPLETADA)
-                    .getSingleResult();
-            Long totalSalas = em.createQuery("SELECT COUNT(s) FROM Sala s", Long.class).getSingleResult();
+            System.out.println("\n=== CACHÉ DE SEGUNDO NIVEL ===");
+            System.out.print(new EstadisticasCache(emf).resumen());
 
-            System.out.println("\n=== RESUMEN DEL SISTEMA ===");
-            System.out.println("Pacientes registrados      : " + totalPacientes);
-            System.out.println("Citas COMPLETADAS          : " + totalCitasComp);
-            System.out.println("Salas registradas          : " + totalSalas);
+            System.out.println("\n=== POOL DE CONEXIONES ===");
+            MetricasPoolConexiones.pools().forEach(pool -> System.out.print(pool.resumen()));
+
+            System.out.println("\n=== MÉTRICAS ===");
+            System.out.print(RegistroMetricas.global().resumen());
 
             em.getTransaction().commit();
+
+            // Después del commit: los agregados solo incluyen transacciones confirmadas
+            System.out.println("\n=== RESUMEN DEL SISTEMA ===");
+            System.out.println("Pacientes registrados      : " + agregados.getPacientes());
+            System.out.println("Citas COMPLETADAS          : " + agregados.getCitas(EstadoCita.COMPLETADA));
+            System.out.println("Citas PROGRAMADAS          : " + agregados.getCitas(EstadoCita.PROGRAMADA));
+            System.out.println("Salas registradas          : " + agregados.getSalas());
+            for (EspecialidadMedica especialidad : EspecialidadMedica.values()) {
+                BigDecimal ingresos = agregados.getIngresosEspecialidad(especialidad);
+                if (ingresos.signum() != 0) {
+                    System.out.println("Ingresos " + especialidad + " : " + ingresos);
+                }
+            }
             System.out.println("\n>>> SISTEMA EJECUTADO EXITOSAMENTE (DEMO ALTERNATIVA) <<<");
 
         } catch (Exception ex) {
@@ -116,6 +161,7 @@ public class Main {
             ex.printStackTrace();
         } finally {
             if (em != null) em.close();
+            MetricasHibernate.quitar(RegistroMetricas.global());
             if (emf != null) emf.close();
         }
     }
@@ -221,32 +267,27 @@ public class Main {
     }
 
     private static void programarCitas(EntityManager em) {
-        Medico m1 = em.createQuery("SELECT m FROM Medico m WHERE m.matricula.numero = :n", Medico.class)
-                .setParameter("n", "MP-45678").getSingleResult();
-        Medico m2 = em.createQuery("SELECT m FROM Medico m WHERE m.matricula.numero = :n", Medico.class)
-                .setParameter("n", "MP-334455").getSingleResult();
-        Medico m3 = em.createQuery("SELECT m FROM Medico m WHERE m.matricula.numero = :n", Medico.class)
-                .setParameter("n", "MP-778899").getSingleResult();
-
-        Paciente p1 = em.createQuery("SELECT p FROM Paciente p WHERE p.dni = :dni", Paciente.class)
-                .setParameter("dni", "40222111").getSingleResult();
-        Paciente p2 = em.createQuery("SELECT p FROM Paciente p WHERE p.dni = :dni", Paciente.class)
-                .setParameter("dni", "38999123").getSingleResult();
-        Paciente p3 = em.createQuery("SELECT p FROM Paciente p WHERE p.dni = :dni", Paciente.class)
-                .setParameter("dni", "37777123").getSingleResult();
-
-        Sala sNeu_201 = em.createQuery("SELECT s FROM Sala s WHERE s.numero = :n", Sala.class)
-                .setParameter("n", "S-201").getSingleResult();
-        Sala sCir_305 = em.createQuery("SELECT s FROM Sala s WHERE s.numero = :n", Sala.class)
-                .setParameter("n", "S-305").getSingleResult();
-        Sala sDer_112 = em.createQuery("SELECT s FROM Sala s WHERE s.numero = :n", Sala.class)
-                .setParameter("n", "S-112").getSingleResult();
-
-        LocalDateTime f1 = LocalDateTime.of(2025, 11, 10, 9, 30);
-        LocalDateTime f2 = LocalDateTime.of(2025, 12, 2, 14, 0);
-        LocalDateTime f3 = LocalDateTime.of(2025, 12, 15, 11, 15);
-
-        CitaManager cm = new CitaManager();
+        // Búsquedas cacheadas: en ejecuciones sucesivas se resuelven sin ir a la base
+        Medico m1 = buscarMedico(em, "MP-45678");
+        Medico m2 = buscarMedico(em, "MP-334455");
+        Medico m3 = buscarMedico(em, "MP-778899");
+
+        Paciente p1 = buscarPaciente(em, "40222111");
+        Paciente p2 = buscarPaciente(em, "38999123");
+        Paciente p3 = buscarPaciente(em, "37777123");
+
+        Sala sNeu_201 = buscarSala(em, "S-201");
+        Sala sCir_305 = buscarSala(em, "S-305");
+        Sala sDer_112 = buscarSala(em, "S-112");
+
+        // Relativas a hoy: con fechas fijas la demo deja de arrancar cuando pasan (no se programan citas en el pasado)
+        LocalDate hoy = LocalDate.now();
+        LocalDateTime f1 = hoy.plusWeeks(3).atTime(9, 30);
+        LocalDateTime f2 = hoy.plusWeeks(6).atTime(14, 0);
+        LocalDateTime f3 = hoy.plusWeeks(8).atTime(11, 15);
+
+        // Se une a la transacción de main: las citas se persisten con el resto y se validan contra la base
+        CitaJpaService cm = new CitaJpaService(em);
 
         try { // 👇 Manejo seguro de excepciones
             cm.programarCita(p1, m1, sNeu_201, f1, new BigDecimal("18000.00"));
@@ -258,4 +299,20 @@ public class Main {
             throw new RuntimeException(e);
         }
     }
+
+    private static Medico buscarMedico(EntityManager em, String matricula) {
+        return em.createQuery("SELECT m FROM Medico m WHERE m.matricula.numero = :n", Medico.class)
+                .setParameter("n", matricula)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getSingleResult();
+    }
+
+    // dni y número de sala son @NaturalId: se resuelven por el caché de la sesión (y el de segundo nivel en salas)
+    private static Paciente buscarPaciente(EntityManager em, String dni) {
+        return em.unwrap(Session.class).bySimpleNaturalId(Paciente.class).load(dni);
+    }
+
+    private static Sala buscarSala(EntityManager em, String numero) {
+        return em.unwrap(Session.class).bySimpleNaturalId(Sala.class).load(numero);
+    }
 }
@@ -12,17 +12,35 @@ import java.util.Map;
 import java.util.Objects;
 
 @Getter
-@ToString(exclude = {"paciente", "medico", "sala"})
-@Builder
+@ToString(exclude = {"paciente", "medico", "sala", "observador"})
 @NoArgsConstructor(access = AccessLevel.PROTECTED, force = true) // Crea el constructor vacío para JPA.
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
 
 @Entity
-@Table(name="Citas")
+@Table(name="Citas", indexes = {
+        // Próximas citas, conteos por fecha y recorrido por keyset (fechaHora, id) en PaginadorCitas
+        @Index(name = "ix_citas_fecha", columnList = "fechaHora, id"),
+        // Chequeo de solapamiento al reservar: búsqueda por rango dentro de un médico o una sala
+        @Index(name = "ix_citas_medico_fecha", columnList = "medico_id, fechaHora"),
+        @Index(name = "ix_citas_sala_fecha", columnList = "sala_id, fechaHora"),
+        // Paciente.getCitasEntre con la colección sin cargar
+        @Index(name = "ix_citas_paciente_fecha", columnList = "paciente_id, fechaHora"),
+        @Index(name = "ix_citas_estado", columnList = "estado")
+})
+// Listados que muestran datos del paciente/médico/sala: se traen en el mismo SELECT (evita N+1).
+// La historia clínica va en el grafo porque Paciente.historiaClinica (lado inverso del 1:1) no puede ser lazy.
+@NamedEntityGraph(name = Cita.GRAFO_COMPLETO, attributeNodes = {
+        @NamedAttributeNode(value = "paciente", subgraph = "paciente"),
+        @NamedAttributeNode("medico"),
+        @NamedAttributeNode("sala")
+}, subgraphs = @NamedSubgraph(name = "paciente", attributeNodes = @NamedAttributeNode("historiaClinica")))
 public class Cita implements Serializable {
+    public static final String GRAFO_COMPLETO = "Cita.completa";
+
     @Setter(AccessLevel.NONE)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Secuencia con pool de 50: permite batch de INSERTs (IDENTITY obliga a un round trip por fila)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "citas_seq")
+    @SequenceGenerator(name = "citas_seq", sequenceName = "citas_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(
@@ -55,6 +73,18 @@ public class Cita implements Serializable {
 
     private String observaciones;
 
+    // Quien mantiene la cita en memoria (CitaManager) se entera de los cambios hechos con los setters.
+    // Si el observador rechaza el cambio (lanza una excepción), el setter vuelve al valor anterior.
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private transient Observador observador;
+
+    public interface Observador {
+        void estadoCambiado(Cita cita);
+
+        void observacionesCambiadas(Cita cita);
+    }
+
     private Cita(CitaBuilder builder) {
         this.paciente = Objects.requireNonNull(builder.paciente, "El paciente no puede ser nulo");
         this.medico = Objects.requireNonNull(builder.medico, "El médico no puede ser nulo");
@@ -65,6 +95,10 @@ public class Cita implements Serializable {
         this.observaciones = builder.observaciones != null ? builder.observaciones : "";
     }
 
+    public static CitaBuilder builder() {
+        return new CitaBuilder();
+    }
+
     public static class CitaBuilder {
         private Paciente paciente;
         private Medico medico;
@@ -115,11 +149,35 @@ public class Cita implements Serializable {
     }
 
     public void setEstado(EstadoCita estado) {
+        EstadoCita anterior = this.estado;
         this.estado = Objects.requireNonNull(estado, "El estado no puede ser nulo");
+        Observador actual = observador;
+        if (actual != null) {
+            try {
+                actual.estadoCambiado(this);
+            } catch (RuntimeException e) {
+                this.estado = anterior;
+                throw e;
+            }
+        }
     }
 
     public void setObservaciones(String observaciones) {
+        String anteriores = this.observaciones;
         this.observaciones = observaciones != null ? observaciones : "";
+        Observador actual = observador;
+        if (actual != null) {
+            try {
+                actual.observacionesCambiadas(this);
+            } catch (RuntimeException e) {
+                this.observaciones = anteriores;
+                throw e;
+            }
+        }
+    }
+
+    public void setObservador(Observador observador) {
+        this.observador = observador;
     }
 
 
@@ -131,14 +189,14 @@ public class Cita implements Serializable {
                 fechaHora.toString(),
                 costo.toString(),
                 estado.name(),
-                observaciones.replaceAll(",", ";"));
+                observaciones.replace(',', ';'));
     }
 
     public static Cita fromCsvString(String csvString,
                                      Map<String, Paciente> pacientes,
                                      Map<String, Medico> medicos,
                                      Map<String, Sala> salas) throws CitaException {
-        String[] values = csvString.split(",");
+        String[] values = csvString.split(",", -1); // -1: conserva las observaciones vacías
         if (values.length != 7) {
             throw new CitaException("Formato de CSV inválido para Cita: " + csvString);
         }
@@ -149,7 +207,7 @@ public class Cita implements Serializable {
         LocalDateTime fechaHora = LocalDateTime.parse(values[3]);
         BigDecimal costo = new BigDecimal(values[4]);
         EstadoCita estado = EstadoCita.valueOf(values[5]);
-        String observaciones = values[6].replaceAll(";", ",");
+        String observaciones = values[6].replace(';', ',');
 
         Paciente paciente = pacientes.get(dniPaciente);
         Medico medico = medicos.get(dniMedico);
@@ -0,0 +1,98 @@
+package org.example.entidades;
+
+import org.hibernate.collection.spi.AbstractPersistentCollection;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+// Rangos de fechaHora sobre las citas de un médico, paciente o sala sin copiar ni cargar toda la colección.
+// Con la colección en memoria (entidad nueva, desconectada o con la colección ya cargada) las citas se ordenan una
+// vez y cada rango es una vista de solo lectura de esa lista, sin copia: vale hasta el próximo addCita (después
+// lanza ConcurrentModificationException, como subList); para guardarla, copiarla. Con la colección perezosa sin
+// inicializar y la sesión abierta, el rango es una consulta por (dueño, fechaHora) y la colección no se carga.
+final class CitasPorFecha {
+
+    private static final Comparator<Cita> POR_FECHA = Comparator.comparing(Cita::getFechaHora);
+
+    // Atributo de Cita que apunta al dueño: "medico", "paciente" o "sala"
+    private final String atributo;
+    // null hasta el primer rango en memoria
+    private List<Cita> ordenadas;
+    // Colección y tamaño de los que salió 'ordenadas': si Hibernate reemplaza la colección o se agregan citas sin
+    // addCita (p. ej. el association management del enhancer), se vuelve a ordenar
+    private List<Cita> origen;
+    private int tamanoOrigen;
+
+    CitasPorFecha(String atributo) {
+        this.atributo = atributo;
+    }
+
+    // Citas con fechaHora en [desde, hasta), en orden de fechaHora
+    List<Cita> entre(Object duenio, List<Cita> citas, LocalDateTime desde, LocalDateTime hasta) {
+        Objects.requireNonNull(desde, "La fecha desde no puede ser nula");
+        Objects.requireNonNull(hasta, "La fecha hasta no puede ser nula");
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha hasta no puede ser anterior a la fecha desde");
+        }
+        if (citas instanceof AbstractPersistentCollection<?> persistente && !persistente.wasInitialized()) {
+            SharedSessionContractImplementor sesion = persistente.getSession();
+            if (sesion != null && sesion.isOpen()) {
+                return Collections.unmodifiableList(sesion.createSelectionQuery(
+                                "SELECT c FROM Cita c WHERE c." + atributo + " = :duenio "
+                                        + "AND c.fechaHora >= :desde AND c.fechaHora < :hasta ORDER BY c.fechaHora", Cita.class)
+                        .setParameter("duenio", duenio)
+                        .setParameter("desde", desde)
+                        .setParameter("hasta", hasta)
+                        .getResultList());
+            }
+        }
+        List<Cita> lista = ordenadas(citas);
+        return Collections.unmodifiableList(lista.subList(primeraDesde(lista, desde), primeraDesde(lista, hasta)));
+    }
+
+    // Llamar después de agregar la cita a la colección
+    void agregada(List<Cita> citas, Cita cita) {
+        if (ordenadas == null) {
+            return;
+        }
+        if (citas != origen || citas.size() != tamanoOrigen + 1) {
+            ordenadas = null;
+            return;
+        }
+        // Después de las de igual fechaHora: las citas en orden cronológico se agregan al final sin mover nada
+        int posicion = primeraDesde(ordenadas, cita.getFechaHora().plusNanos(1));
+        ordenadas.add(posicion, cita);
+        tamanoOrigen++;
+    }
+
+    private List<Cita> ordenadas(List<Cita> citas) {
+        if (ordenadas == null || citas != origen || citas.size() != tamanoOrigen) {
+            List<Cita> lista = new ArrayList<>(citas);
+            lista.sort(POR_FECHA);
+            ordenadas = lista;
+            origen = citas;
+            tamanoOrigen = citas.size();
+        }
+        return ordenadas;
+    }
+
+    // Posición de la primera cita con fechaHora >= fecha
+    private static int primeraDesde(List<Cita> lista, LocalDateTime fecha) {
+        int bajo = 0;
+        int alto = lista.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (lista.get(medio).getFechaHora().isBefore(fecha)) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+}
@@ -3,6 +3,8 @@ package org.example.entidades;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -16,10 +18,13 @@ import java.util.Objects;
 
 @Entity
 @Table(name="Departamentos")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.departamentos")
 public class Departamento {
     @Setter(AccessLevel.NONE)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "departamentos_seq")
+    @SequenceGenerator(name = "departamentos_seq", sequenceName = "departamentos_seq", allocationSize = 50)
     private long iddto;
     @Setter(AccessLevel.NONE)
     private final String nombre;
@@ -28,11 +33,13 @@ public class Departamento {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "hospital_id")
     private Hospital hospital;
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.departamentos.medicos")
     @OneToMany(
             mappedBy = "departamento", // La relación ya está mapeada por el atributo "departamento" en la clase Medico.
             cascade = CascadeType.ALL
     )
     private final List<Medico> medicos = new ArrayList<>();
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.departamentos.salas")
     @OneToMany(
             mappedBy = "departamento", // La relación ya está mapeada por el atributo "departamento" en la clase Sala.
             cascade = CascadeType.ALL
@@ -69,7 +76,8 @@ public class Departamento {
                 this.hospital.getInternalDepartamentos().remove(this);
             }
             this.hospital = hospital;
-            if (hospital != null) {
+            // Con association management del enhancer la escritura del campo ya puede haberlo agregado
+            if (hospital != null && !hospital.getInternalDepartamentos().contains(this)) {
                 hospital.getInternalDepartamentos().add(this);
             }
         }
@@ -88,7 +96,9 @@ public class Departamento {
                 .tipo(tipo)
                 .departamento(this)
                 .build();
-        salas.add(sala);
+        if (!salas.contains(sala)) {
+            salas.add(sala);
+        }
         return sala;
     }
 
@@ -0,0 +1,90 @@
+package org.example.entidades;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Entrada de la historia clínica (diagnóstico, tratamiento o alergia). Solo se agregan: agregar una es un
+// INSERT, sin leer ni reescribir las anteriores (ver HistoriaClinicaService). @Immutable: Hibernate no
+// las compara en el flush ni genera UPDATE.
+@Getter
+@ToString(exclude = {"historia"})
+@Builder
+@NoArgsConstructor(access = AccessLevel.PROTECTED, force = true) // Crea el constructor vacío para JPA.
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Entity
+@Immutable
+// Páginas de un tipo de la más nueva a la más vieja, con keyset sobre (fecha, id); sin tipo alcanza con el índice
+// de la FK historia_id
+@Table(name = "historia_entradas", indexes = @Index(name = "ix_historia_entradas_tipo_fecha",
+        columnList = "historia_id, tipo, fecha DESC, id DESC"))
+public class EntradaHistoria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historia_entradas_seq")
+    @SequenceGenerator(name = "historia_entradas_seq", sequenceName = "historia_entradas_seq", allocationSize = 50)
+    private Long id;
+
+    // Al borrar la historia la base borra sus entradas (ON DELETE CASCADE en la FK)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "historia_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private final HistoriaClinica historia;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private final TipoEntradaHistoria tipo;
+
+    @Column(nullable = false)
+    private final String texto;
+
+    @Column(nullable = false)
+    private final LocalDateTime fecha;
+
+    private EntradaHistoria(EntradaHistoriaBuilder builder) {
+        this.historia = Objects.requireNonNull(builder.historia, "La historia clínica no puede ser nula");
+        this.tipo = Objects.requireNonNull(builder.tipo, "El tipo de entrada no puede ser nulo");
+        Objects.requireNonNull(builder.texto, "El texto de la entrada no puede ser nulo");
+        if (builder.texto.trim().isEmpty()) {
+            throw new IllegalArgumentException("El texto de la entrada no puede estar vacío");
+        }
+        this.texto = builder.texto;
+        this.fecha = builder.fecha != null ? builder.fecha : LocalDateTime.now();
+    }
+
+    public static class EntradaHistoriaBuilder {
+        private HistoriaClinica historia;
+        private TipoEntradaHistoria tipo;
+        private String texto;
+        private LocalDateTime fecha;
+
+        public EntradaHistoriaBuilder historia(HistoriaClinica historia) {
+            this.historia = historia;
+            return this;
+        }
+
+        public EntradaHistoriaBuilder tipo(TipoEntradaHistoria tipo) {
+            this.tipo = tipo;
+            return this;
+        }
+
+        public EntradaHistoriaBuilder texto(String texto) {
+            this.texto = texto;
+            return this;
+        }
+
+        public EntradaHistoriaBuilder fecha(LocalDateTime fecha) {
+            this.fecha = fecha;
+            return this;
+        }
+
+        public EntradaHistoria build() {
+            return new EntradaHistoria(this);
+        }
+    }
+}
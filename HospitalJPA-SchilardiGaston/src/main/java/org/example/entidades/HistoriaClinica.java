@@ -8,9 +8,6 @@ import lombok.Builder;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 
 @Builder
@@ -22,7 +19,8 @@ import java.util.Objects;
 public class HistoriaClinica {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historias_clinicas_seq")
+    @SequenceGenerator(name = "historias_clinicas_seq", sequenceName = "historias_clinicas_seq", allocationSize = 50)
     private long idHC;
     private final String numeroHistoria;
 
@@ -31,21 +29,7 @@ public class HistoriaClinica {
     private final Paciente paciente;
 
     private final LocalDateTime fechaCreacion;
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "historia_diagnosticos", joinColumns = @JoinColumn(name = "historia_id"))
-    @Column(name = "diagnostico")
-    private final List<String> diagnosticos = new ArrayList<>();
-
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "historia_tratamientos", joinColumns = @JoinColumn(name = "historia_id"))
-    @Column(name = "tratamiento")
-    private final List<String> tratamientos = new ArrayList<>();
-
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "historia_alergias", joinColumns = @JoinColumn(name = "historia_id"))
-    @Column(name = "alergia")
-    private final List<String> alergias = new ArrayList<>();
-
+    // Diagnósticos, tratamientos y alergias: EntradaHistoria, se agregan y leen con HistoriaClinicaService
 
     private HistoriaClinica(HistoriaClinicaBuilder builder) {
         this.paciente = Objects.requireNonNull(builder.paciente, "El paciente no puede ser nulo");
@@ -76,34 +60,4 @@ public class HistoriaClinica {
         return "HC-" + paciente.getDni() + "-" + fechaCreacion.getYear();
     }
 
-    public void agregarDiagnostico(String diagnostico) {
-        if (diagnostico != null && !diagnostico.trim().isEmpty()) {
-            diagnosticos.add(diagnostico);
-        }
-    }
-
-    public void agregarTratamiento(String tratamiento) {
-        if (tratamiento != null && !tratamiento.trim().isEmpty()) {
-            tratamientos.add(tratamiento);
-        }
-    }
-
-    public void agregarAlergia(String alergia) {
-        if (alergia != null && !alergia.trim().isEmpty()) {
-            alergias.add(alergia);
-        }
-    }
-
-    public List<String> getDiagnosticos() {
-        return Collections.unmodifiableList(diagnosticos);
-    }
-
-    public List<String> getTratamientos() {
-        return Collections.unmodifiableList(tratamientos);
-    }
-
-    public List<String> getAlergias() {
-        return Collections.unmodifiableList(alergias);
-    }
-
 }
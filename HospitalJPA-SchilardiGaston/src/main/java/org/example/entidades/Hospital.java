@@ -4,6 +4,8 @@ package org.example.entidades;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -17,16 +19,20 @@ import java.util.Objects;
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Entity
 @Table(name="Hospitales")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.hospitales")
 public class Hospital {
     @Setter(AccessLevel.NONE)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hospitales_seq")
+    @SequenceGenerator(name = "hospitales_seq", sequenceName = "hospitales_seq", allocationSize = 50)
     private long idH;
     @Setter(AccessLevel.NONE)
     private final String nombre;
     @Setter(AccessLevel.NONE)
     private final String direccion;
     private final String telefono;
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.hospitales.departamentos")
     @OneToMany(
             mappedBy = "hospital", // La relación ya está mapeada por el atributo
             cascade = CascadeType.ALL, // Si se borra un Hospital, se borran sus departamentos.
@@ -1,5 +1,6 @@
 package org.example.entidades;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import lombok.*;
 
@@ -11,6 +12,7 @@ import java.util.Objects;
 
 @Embeddable
 public class Matricula {
+    @Column(name = "numero", nullable = false, length = 9)
     private final String numero;
 
     public Matricula(String numero) {
@@ -6,7 +6,12 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalIdCache;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -19,11 +24,16 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PROTECTED, force=true)
 
 @Entity
-@Table(name="Medicos")
+@Table(name="Medicos",
+        uniqueConstraints = @UniqueConstraint(name = "uk_medicos_matricula", columnNames = "numero"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.medicos")
+@NaturalIdCache(region = "referencia.medicos.dni")
 public class Medico extends Persona {
     @Setter(AccessLevel.NONE)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medicos_seq")
+    @SequenceGenerator(name = "medicos_seq", sequenceName = "medicos_seq", allocationSize = 50)
     private long idM;
 
     @Embedded
@@ -43,6 +53,11 @@ public class Medico extends Persona {
     )
     private List<Cita> citas;  // se inicializa en el constructor protegido
 
+    // Rangos por fecha sin copiar la colección (getCitasEntre, getCitasDelDia)
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private final CitasPorFecha citasPorFecha = new CitasPorFecha("medico");
+
 
     protected Medico(MedicoBuilder<?, ?> builder) {
         super(builder);
@@ -90,9 +105,19 @@ public class Medico extends Persona {
     // Métodos de colección
     public void addCita (Cita cita){
         this.citas.add(cita);
+        citasPorFecha.agregada(citas, cita);
     }
 
     public List<Cita> getCitas () {
         return Collections.unmodifiableList(new ArrayList<>(citas));
     }
+
+    // Citas con fechaHora en [desde, hasta) ordenadas por fecha, sin copiar toda la colección (ver CitasPorFecha)
+    public List<Cita> getCitasEntre(LocalDateTime desde, LocalDateTime hasta) {
+        return citasPorFecha.entre(this, citas, desde, hasta);
+    }
+
+    public List<Cita> getCitasDelDia(LocalDate fecha) {
+        return getCitasEntre(fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+    }
 }
\ No newline at end of file
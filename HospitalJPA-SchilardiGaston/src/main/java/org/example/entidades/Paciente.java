@@ -7,6 +7,8 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -23,7 +25,8 @@ public class Paciente extends Persona {
 
     @Setter(AccessLevel.NONE)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pacientes_seq")
+    @SequenceGenerator(name = "pacientes_seq", sequenceName = "pacientes_seq", allocationSize = 50)
     private long idP;
     @OneToOne(mappedBy = "paciente", cascade = CascadeType.ALL, orphanRemoval = true)
     private HistoriaClinica historiaClinica;
@@ -35,6 +38,10 @@ public class Paciente extends Persona {
     @OneToMany(mappedBy = "paciente", cascade = CascadeType.ALL)
     private List<Cita> citas;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private final CitasPorFecha citasPorFecha = new CitasPorFecha("paciente");
+
 
     protected Paciente(PacienteBuilder<?, ?> builder) {
         super(builder);
@@ -68,7 +75,8 @@ public class Paciente extends Persona {
                 this.hospital.getInternalPacientes().remove(this);
             }
             this.hospital = hospital;
-            if (hospital != null) {
+            // Con association management del enhancer la escritura del campo ya puede haberlo agregado
+            if (hospital != null && !hospital.getInternalPacientes().contains(this)) {
                 hospital.getInternalPacientes().add(this);
             }
         }
@@ -76,12 +84,22 @@ public class Paciente extends Persona {
 
     public void addCita(Cita cita) {
         this.citas.add(cita);
+        citasPorFecha.agregada(citas, cita);
     }
 
     public List<Cita> getCitas() {
         return Collections.unmodifiableList(new ArrayList<>(citas));
     }
 
+    // Citas del paciente con fechaHora en [desde, hasta), de la más vieja a la más nueva
+    public List<Cita> getCitasEntre(LocalDateTime desde, LocalDateTime hasta) {
+        return citasPorFecha.entre(this, citas, desde, hasta);
+    }
+
+    public List<Cita> getCitasDelDia(LocalDate fecha) {
+        return getCitasEntre(fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+    }
+
     private String validarString(String valor, String mensajeError) {
         Objects.requireNonNull(valor, mensajeError);
         if (valor.trim().isEmpty()) {
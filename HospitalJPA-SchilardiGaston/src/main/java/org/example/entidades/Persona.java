@@ -1,12 +1,14 @@
 package org.example.entidades;
 
 
+import jakarta.persistence.Column;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.MappedSuperclass;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.NaturalId;
 
 import java.time.LocalDate;
 import java.util.Objects;
@@ -24,6 +26,9 @@ public abstract class Persona {
 
     protected final String nombre;
     protected final String apellido;
+    // Clave de negocio: se resuelve con bySimpleNaturalId y queda con índice único en cada tabla
+    @NaturalId
+    @Column(nullable = false, length = 8)
     protected final String dni;
     protected final LocalDate fechaNacimiento;
     @Enumerated(EnumType.STRING)
@@ -3,7 +3,13 @@ package org.example.entidades;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -11,18 +17,24 @@ import java.util.Objects;
 
 
 @Getter
-@ToString(exclude = {"citas"})
+@ToString(exclude = {"citas", "citasPorFecha"})
 @Builder
 @NoArgsConstructor(access = AccessLevel.PROTECTED, force = true) // Crea el constructor vacío para JPA.
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Entity
 @Table(name="Salas")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "referencia.salas")
+@NaturalIdCache(region = "referencia.salas.numero")
 public class Sala {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "salas_seq")
+    @SequenceGenerator(name = "salas_seq", sequenceName = "salas_seq", allocationSize = 50)
     private long idS;
     @Setter(AccessLevel.NONE)
+    @NaturalId
+    @Column(nullable = false)
     private final String numero;
     private final String tipo;
     @ManyToOne(fetch = FetchType.LAZY)
@@ -31,6 +43,10 @@ public class Sala {
     @OneToMany(mappedBy = "sala")
     private List<Cita> citas;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private final CitasPorFecha citasPorFecha = new CitasPorFecha("sala");
+
     private Sala(SalaBuilder builder) {
         this.numero = validarString(builder.numero, "El número de sala no puede ser nulo ni vacío");
         this.tipo = validarString(builder.tipo, "El tipo de sala no puede ser nulo ni vacío");
@@ -65,12 +81,22 @@ public class Sala {
 
     public void addCita(Cita cita) {
         this.citas.add(cita);
+        citasPorFecha.agregada(citas, cita);
     }
 
     public List<Cita> getCitas() {
         return Collections.unmodifiableList(new ArrayList<>(citas));
     }
 
+    // Ocupación de la sala en [desde, hasta), por fecha
+    public List<Cita> getCitasEntre(LocalDateTime desde, LocalDateTime hasta) {
+        return citasPorFecha.entre(this, citas, desde, hasta);
+    }
+
+    public List<Cita> getCitasDelDia(LocalDate fecha) {
+        return getCitasEntre(fecha.atStartOfDay(), fecha.plusDays(1).atStartOfDay());
+    }
+
     private String validarString(String valor, String mensajeError) {
         Objects.requireNonNull(valor, mensajeError);
         if (valor.trim().isEmpty()) {
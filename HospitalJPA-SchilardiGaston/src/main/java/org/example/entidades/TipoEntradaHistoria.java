@@ -0,0 +1,8 @@
+package org.example.entidades;
+
+// Tipos de entrada de la historia clínica (EntradaHistoria)
+public enum TipoEntradaHistoria {
+    DIAGNOSTICO,
+    TRATAMIENTO,
+    ALERGIA
+}
\ No newline at end of file
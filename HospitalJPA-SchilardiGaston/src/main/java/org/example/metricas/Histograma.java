@@ -0,0 +1,92 @@
+package org.example.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latencias sin locks, en nanosegundos. Cubetas log-lineales: 8 por cada potencia de 2,
+// así cada percentil se informa con un error relativo de a lo sumo 12,5% y el tamaño es fijo (~4 KB).
+public class Histograma {
+
+    private static final int SUBCUBETAS = 8;
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(valor));
+        cantidad.increment();
+        suma.add(valor);
+        if (valor > maximo.get()) {
+            maximo.accumulateAndGet(valor, Math::max);
+        }
+    }
+
+    // Para medir con try/finally: long inicio = System.nanoTime(); ... registrarDesde(inicio)
+    public void registrarDesde(long inicioNanos) {
+        registrar(System.nanoTime() - inicioNanos);
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) ((valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1));
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + sub;
+    }
+
+    // Mayor valor que cae en la cubeta
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long ancho = 1L << (exponente - BITS_SUBCUBETA);
+        long inferior = (SUBCUBETAS + indice % SUBCUBETAS) * ancho;
+        return inferior + ancho - 1;
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    public double getMediaNanos() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    public long getMaximoNanos() {
+        return maximo.get();
+    }
+
+    // percentil en (0, 100]; con registros concurrentes el resultado es aproximado
+    public long percentilNanos(double percentil) {
+        if (percentil <= 0 || percentil > 100) {
+            throw new IllegalArgumentException("El percentil debe estar en (0, 100]");
+        }
+        long total = 0;
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+}
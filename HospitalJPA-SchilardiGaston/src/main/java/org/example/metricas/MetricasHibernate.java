@@ -0,0 +1,39 @@
+package org.example.metricas;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+// Expone las Statistics de Hibernate (requiere hibernate.generate_statistics=true) como indicadores del registro.
+// Los valores se leen en cada consulta: no hay copia ni hilo de muestreo.
+public final class MetricasHibernate {
+
+    public static final String PREFIJO = "hibernate.";
+
+    private MetricasHibernate() {
+    }
+
+    public static void registrar(RegistroMetricas registro, EntityManagerFactory emf) {
+        Statistics estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        registro.indicador(PREFIJO + "consultas", estadisticas::getQueryExecutionCount);
+        registro.indicador(PREFIJO + "consultaMasLentaMillis", estadisticas::getQueryExecutionMaxTime);
+        registro.indicador(PREFIJO + "consultaMasLenta",
+                () -> String.valueOf(estadisticas.getQueryExecutionMaxTimeQueryString()));
+        registro.indicador(PREFIJO + "sentenciasPreparadas", estadisticas::getPrepareStatementCount);
+        registro.indicador(PREFIJO + "entidadesCargadas", estadisticas::getEntityLoadCount);
+        registro.indicador(PREFIJO + "entidadesBuscadas", estadisticas::getEntityFetchCount);
+        registro.indicador(PREFIJO + "entidadesInsertadas", estadisticas::getEntityInsertCount);
+        registro.indicador(PREFIJO + "entidadesActualizadas", estadisticas::getEntityUpdateCount);
+        registro.indicador(PREFIJO + "coleccionesCargadas", estadisticas::getCollectionLoadCount);
+        registro.indicador(PREFIJO + "flushes", estadisticas::getFlushCount);
+        registro.indicador(PREFIJO + "transacciones", estadisticas::getTransactionCount);
+        registro.indicador(PREFIJO + "sesionesAbiertas", estadisticas::getSessionOpenCount);
+        registro.indicador(PREFIJO + "cache2.aciertos", estadisticas::getSecondLevelCacheHitCount);
+        registro.indicador(PREFIJO + "cache2.fallos", estadisticas::getSecondLevelCacheMissCount);
+    }
+
+    // Al cerrar el EntityManagerFactory, para no seguir leyendo estadísticas de una fábrica cerrada
+    public static void quitar(RegistroMetricas registro) {
+        registro.quitarIndicadores(PREFIJO);
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.metricas;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Métricas del pool HikariCP: ocupación (activas, libres, hilos esperando) y tiempos de espera/uso.
+// Hikari instancia esta clase por nombre (hibernate.hikari.metricsTrackerFactory en persistence.xml),
+// por eso cada pool creado queda registrado acá y se consulta por su poolName.
+public class MetricasPoolConexiones implements MetricsTrackerFactory {
+
+    private static final Map<String, Registro> POOLS = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Registro registro = new Registro(poolName, poolStats);
+        POOLS.put(poolName, registro);
+        registro.publicarEn(RegistroMetricas.global());
+        return registro;
+    }
+
+    public static Optional<Registro> pool(String nombre) {
+        return Optional.ofNullable(POOLS.get(nombre));
+    }
+
+    public static Collection<Registro> pools() {
+        return POOLS.values();
+    }
+
+    public static final class Registro implements IMetricsTracker {
+        private final String nombre;
+        private final PoolStats estado;
+
+        private final LongAdder adquisiciones = new LongAdder();
+        private final LongAdder esperaTotalNanos = new LongAdder();
+        private final AtomicLong esperaMaximaNanos = new AtomicLong();
+        private final LongAdder usoTotalMillis = new LongAdder();
+        private final AtomicLong usoMaximoMillis = new AtomicLong();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder conexionesCreadas = new LongAdder();
+
+        private Registro(String nombre, PoolStats estado) {
+            this.nombre = nombre;
+            this.estado = estado;
+        }
+
+        // Tiempo que el hilo esperó por una conexión del pool
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            adquisiciones.increment();
+            esperaTotalNanos.add(elapsedAcquiredNanos);
+            esperaMaximaNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        // Tiempo desde que se tomó la conexión hasta que volvió al pool
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usoTotalMillis.add(elapsedBorrowedMillis);
+            usoMaximoMillis.accumulateAndGet(elapsedBorrowedMillis, Math::max);
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            conexionesCreadas.increment();
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        @Override
+        public void close() {
+            if (POOLS.remove(nombre, this)) {
+                RegistroMetricas.global().quitarIndicadores(prefijo());
+            }
+        }
+
+        private String prefijo() {
+            return "pool." + nombre + ".";
+        }
+
+        // Ocupación y esperas como indicadores del registro general (y por lo tanto en su MBean)
+        private void publicarEn(RegistroMetricas metricas) {
+            metricas.indicador(prefijo() + "activas", this::getActivas);
+            metricas.indicador(prefijo() + "libres", this::getLibres);
+            metricas.indicador(prefijo() + "hilosEsperando", this::getHilosEsperando);
+            metricas.indicador(prefijo() + "adquisiciones", this::getAdquisiciones);
+            metricas.indicador(prefijo() + "esperaPromedioMicros", this::getEsperaPromedioMicros);
+            metricas.indicador(prefijo() + "esperaMaximaMicros", this::getEsperaMaximaMicros);
+            metricas.indicador(prefijo() + "timeouts", this::getTimeouts);
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        // Ocupación: Hikari refresca estos valores como mucho una vez por segundo
+        public int getActivas() {
+            return estado.getActiveConnections();
+        }
+
+        public int getLibres() {
+            return estado.getIdleConnections();
+        }
+
+        public int getTotal() {
+            return estado.getTotalConnections();
+        }
+
+        public int getMaximo() {
+            return estado.getMaxConnections();
+        }
+
+        public int getHilosEsperando() {
+            return estado.getPendingThreads();
+        }
+
+        public long getAdquisiciones() {
+            return adquisiciones.sum();
+        }
+
+        public double getEsperaPromedioMicros() {
+            long cantidad = adquisiciones.sum();
+            return cantidad == 0 ? 0 : esperaTotalNanos.sum() / 1_000.0 / cantidad;
+        }
+
+        public long getEsperaMaximaMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(esperaMaximaNanos.get());
+        }
+
+        public double getUsoPromedioMillis() {
+            long cantidad = adquisiciones.sum();
+            return cantidad == 0 ? 0 : (double) usoTotalMillis.sum() / cantidad;
+        }
+
+        public long getUsoMaximoMillis() {
+            return usoMaximoMillis.get();
+        }
+
+        public long getTimeouts() {
+            return timeouts.sum();
+        }
+
+        public long getConexionesCreadas() {
+            return conexionesCreadas.sum();
+        }
+
+        public String resumen() {
+            return String.format(
+                    "Pool %-22s: %d activas, %d libres, %d/%d abiertas, %d hilos esperando%n"
+                            + "  %d adquisiciones, espera prom. %.1f us (máx. %d us), uso prom. %.1f ms (máx. %d ms), %d timeouts%n",
+                    nombre, getActivas(), getLibres(), getTotal(), getMaximo(), getHilosEsperando(),
+                    getAdquisiciones(), getEsperaPromedioMicros(), getEsperaMaximaMicros(),
+                    getUsoPromedioMillis(), getUsoMaximoMillis(), getTimeouts());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.metricas;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Registro de métricas de la aplicación: histogramas de latencia, contadores e indicadores (valores que se
+// leen al consultarlos, p. ej. estadísticas de Hibernate). Se publica por JMX como un único MBean
+// (org.example.hospital:type=Metricas) cuyos atributos son las métricas; se puede ver con jconsole o VisualVM.
+public class RegistroMetricas implements DynamicMBean {
+
+    public static final String NOMBRE_JMX = "org.example.hospital:type=Metricas";
+
+    private static final RegistroMetricas GLOBAL = new RegistroMetricas();
+
+    private final Map<String, Histograma> histogramas = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> contadores = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<?>> indicadores = new ConcurrentHashMap<>();
+
+    public static RegistroMetricas global() {
+        return GLOBAL;
+    }
+
+    public Histograma histograma(String nombre) {
+        return histogramas.computeIfAbsent(nombre, n -> new Histograma());
+    }
+
+    public LongAdder contador(String nombre) {
+        return contadores.computeIfAbsent(nombre, n -> new LongAdder());
+    }
+
+    // El proveedor debe devolver un Number o un String y ser barato: se invoca en cada lectura por JMX
+    public void indicador(String nombre, Supplier<?> valor) {
+        indicadores.put(nombre, valor);
+    }
+
+    public void quitarIndicadores(String prefijo) {
+        indicadores.keySet().removeIf(nombre -> nombre.startsWith(prefijo));
+    }
+
+    // Idempotente: si ya está publicado no hace nada
+    public synchronized void publicarJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(this, nombre);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudo publicar las métricas por JMX", e);
+        }
+    }
+
+    // Todas las métricas aplanadas: cada histograma aporta cantidad, media, p50, p99 y máximo (en µs)
+    public Map<String, Object> instantanea() {
+        Map<String, Object> valores = new TreeMap<>();
+        histogramas.forEach((nombre, h) -> {
+            valores.put(nombre + ".cantidad", h.getCantidad());
+            valores.put(nombre + ".mediaMicros", h.getMediaNanos() / 1_000.0);
+            valores.put(nombre + ".p50Micros", h.percentilNanos(50) / 1_000.0);
+            valores.put(nombre + ".p99Micros", h.percentilNanos(99) / 1_000.0);
+            valores.put(nombre + ".maximoMicros", h.getMaximoNanos() / 1_000.0);
+        });
+        contadores.forEach((nombre, c) -> valores.put(nombre, c.sum()));
+        indicadores.forEach((nombre, v) -> valores.put(nombre, leer(v)));
+        return valores;
+    }
+
+    public String resumen() {
+        StringBuilder sb = new StringBuilder();
+        instantanea().forEach((nombre, valor) -> sb.append(String.format("  %-48s %s%n", nombre,
+                valor instanceof Double d ? String.format("%.1f", d) : valor)));
+        return sb.toString();
+    }
+
+    private static Object leer(Supplier<?> indicador) {
+        Object valor = indicador.get();
+        return valor instanceof Number || valor instanceof String ? valor : String.valueOf(valor);
+    }
+
+    // ========================= DynamicMBean =========================
+
+    @Override
+    public Object getAttribute(String atributo) throws AttributeNotFoundException {
+        Object valor = instantanea().get(atributo);
+        if (valor == null) {
+            throw new AttributeNotFoundException(atributo);
+        }
+        return valor;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] atributos) {
+        Map<String, Object> valores = instantanea();
+        AttributeList lista = new AttributeList();
+        for (String atributo : atributos) {
+            if (valores.containsKey(atributo)) {
+                lista.add(new Attribute(atributo, valores.get(atributo)));
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> atributos = new ArrayList<>();
+        instantanea().forEach((nombre, valor) -> atributos.add(new MBeanAttributeInfo(
+                nombre, valor.getClass().getName(), nombre, true, false, false)));
+        return new MBeanInfo(getClass().getName(), "Métricas de reservas, cargas y Hibernate",
+                atributos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Las métricas son de solo lectura: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+}
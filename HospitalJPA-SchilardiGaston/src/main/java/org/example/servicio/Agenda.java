@@ -0,0 +1,89 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Agenda de un médico o de una sala: las citas en orden de alta más un índice por hora de inicio.
+// Todas las citas duran lo mismo, así que alcanza con mirar la cita que empieza justo antes del fin
+// del turno pedido para saber si hay superposición (O(log n)).
+final class Agenda {
+
+    private final Duration duracion;
+    private final List<Cita> citas = new ArrayList<>();
+    private final NavigableMap<LocalDateTime, Cita> porInicio = new TreeMap<>();
+
+    Agenda(Duration duracion) {
+        this.duracion = duracion;
+    }
+
+    // Construye la agenda de una sola vez a partir de citas ya cargadas (en orden de archivo)
+    Agenda(Duration duracion, List<Cita> existentes) {
+        this.duracion = duracion;
+        for (Cita cita : existentes) {
+            agregar(cita);
+        }
+    }
+
+    void agregar(Cita cita) {
+        citas.add(cita);
+        // Si un CSV trae dos citas con el mismo inicio, cualquiera de ellas sirve como conflicto
+        porInicio.putIfAbsent(cita.getFechaHora(), cita);
+    }
+
+    // Alta de varias citas ordenadas por fecha (programarCitas)
+    void agregarTodas(List<Cita> ordenadas) {
+        citas.addAll(ordenadas);
+        for (Cita cita : ordenadas) {
+            porInicio.putIfAbsent(cita.getFechaHora(), cita);
+        }
+    }
+
+    // Devuelve una cita que se superpone con [fechaHora, fechaHora + duracion), o null si el turno está libre
+    Cita buscarConflicto(LocalDateTime fechaHora) {
+        Map.Entry<LocalDateTime, Cita> anterior = porInicio.lowerEntry(fechaHora.plus(duracion));
+        if (anterior != null && anterior.getKey().plus(duracion).isAfter(fechaHora)) {
+            return anterior.getValue();
+        }
+        return null;
+    }
+
+    // La cita que empieza exactamente en 'inicio', o null (p. ej. al reproducir el diario)
+    Cita buscar(LocalDateTime inicio) {
+        return porInicio.get(inicio);
+    }
+
+    // Si esta instancia está en la agenda. El índice por inicio tiene una sola cita por hora, así que con
+    // inicios repetidos (un CSV cargado) o con otra cita en el mismo inicio se recorre la lista
+    boolean contiene(Cita cita) {
+        Cita indexada = porInicio.get(cita.getFechaHora());
+        if (indexada == cita) {
+            return true;
+        }
+        if (indexada == null) {
+            return false;
+        }
+        for (Cita otra : citas) {
+            if (otra == cita) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Inicios en [desde, hasta) en orden; con inicios repetidos (solo posibles al cargar un CSV) aparece uno
+    List<LocalDateTime> iniciosEntre(LocalDateTime desde, LocalDateTime hasta) {
+        return new ArrayList<>(porInicio.subMap(desde, true, hasta, false).keySet());
+    }
+
+    List<Cita> getCitas() {
+        return Collections.unmodifiableList(citas);
+    }
+}
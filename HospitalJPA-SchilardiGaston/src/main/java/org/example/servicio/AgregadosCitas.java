@@ -0,0 +1,310 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Totales del tablero (RESUMEN DEL SISTEMA en Main) mantenidos al día en lugar de un COUNT/SUM por lectura:
+// citas por estado, ingresos (costo de las citas COMPLETADA) por departamento y por especialidad, citas por sala
+// y día (las no CANCELADA ocupan la sala) y cantidad de pacientes y salas. Las lecturas no van a la base.
+//
+// Se actualizan con listeners de Hibernate: cada alta, cambio de estado (Cita.setEstado sobre una cita
+// gestionada, también vía CitaJpaService.programarCita) o baja deja su diferencia pendiente en la sesión y se
+// aplica solo si la transacción se confirma. No ven los UPDATE/DELETE masivos por JPQL ni los cambios hechos
+// por otros procesos: para eso está reconciliar(), que recalcula todo desde la base. Mientras reconcilia, las
+// transacciones con cambios para los totales esperan antes del commit, así cada una queda en la base antes de
+// las consultas (y en los totales nuevos por ellas) o se confirma y se aplica después del reemplazo.
+public final class AgregadosCitas {
+
+    // Minutos de sala de un día hábil, para getUtilizacionSala
+    static final long MINUTOS_JORNADA =
+            Duration.between(BuscadorTurnos.APERTURA_POR_DEFECTO, BuscadorTurnos.CIERRE_POR_DEFECTO).toMinutes();
+
+    private final EntityManagerFactory emf;
+    // Departamento de cada sala, para no cargar la sala en cada evento
+    private final Map<Long, DepartamentoSala> departamentosPorSala = new ConcurrentHashMap<>();
+    private volatile Totales totales = new Totales();
+    // Lectura: una transacción desde antes de su commit hasta aplicar su cambio. Escritura: reconciliar()
+    private final ReentrantReadWriteLock confirmaciones = new ReentrantReadWriteLock();
+
+    private AgregadosCitas(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    // Empieza a seguir los cambios de esta fábrica y carga los totales de la base (en ese orden: lo que se
+    // confirme en el medio queda cubierto por la reconciliación)
+    public static AgregadosCitas registrar(EntityManagerFactory emf) {
+        AgregadosCitas agregados = new AgregadosCitas(Objects.requireNonNull(emf, "La fábrica no puede ser nula"));
+        Escucha escucha = agregados.new Escucha();
+        EventListenerRegistry registro = emf.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registro.appendListeners(EventType.POST_INSERT, escucha);
+        registro.appendListeners(EventType.POST_UPDATE, escucha);
+        registro.appendListeners(EventType.POST_DELETE, escucha);
+        agregados.reconciliar();
+        return agregados;
+    }
+
+    public long getCitas(EstadoCita estado) {
+        return totales.porEstado.get(estado).sum();
+    }
+
+    public BigDecimal getIngresosDepartamento(long departamentoId) {
+        return totales.ingresosPorDepartamento.getOrDefault(departamentoId, BigDecimal.ZERO);
+    }
+
+    public BigDecimal getIngresosEspecialidad(EspecialidadMedica especialidad) {
+        return totales.ingresosPorEspecialidad.getOrDefault(especialidad, BigDecimal.ZERO);
+    }
+
+    public long getCitasSala(long salaId, LocalDate fecha) {
+        return totales.citasPorSalaDia.getOrDefault(new SalaDia(salaId, fecha), 0L);
+    }
+
+    // Fracción de la jornada (apertura a cierre por defecto de BuscadorTurnos) ocupada por citas
+    public double getUtilizacionSala(long salaId, LocalDate fecha) {
+        return (double) getCitasSala(salaId, fecha) * CitaManager.DURACION_CITA.toMinutes() / MINUTOS_JORNADA;
+    }
+
+    public long getPacientes() {
+        return totales.pacientes.sum();
+    }
+
+    public long getSalas() {
+        return totales.salas.sum();
+    }
+
+    // Recalcula los totales con consultas agrupadas y los reemplaza. Devuelve cuántos valores no coincidían
+    // (0 si los incrementales estaban al día). Los commits con cambios para los totales esperan mientras tanto.
+    public int reconciliar() {
+        Totales nuevos = new Totales();
+        confirmaciones.writeLock().lock();
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (Object[] fila : em.createQuery("SELECT s.idS, d.iddto, d.especialidadMedica "
+                    + "FROM Sala s JOIN s.departamento d", Object[].class).getResultList()) {
+                departamentosPorSala.put((Long) fila[0],
+                        new DepartamentoSala((Long) fila[1], (EspecialidadMedica) fila[2]));
+            }
+            for (Object[] fila : em.createQuery("SELECT c.estado, COUNT(c) FROM Cita c GROUP BY c.estado",
+                    Object[].class).getResultList()) {
+                nuevos.porEstado.get((EstadoCita) fila[0]).add((Long) fila[1]);
+            }
+            for (Object[] fila : em.createQuery("SELECT d.iddto, d.especialidadMedica, SUM(c.costo) "
+                            + "FROM Cita c JOIN c.sala s JOIN s.departamento d WHERE c.estado = :completada "
+                            + "GROUP BY d.iddto, d.especialidadMedica", Object[].class)
+                    .setParameter("completada", EstadoCita.COMPLETADA)
+                    .getResultList()) {
+                nuevos.ingresosPorDepartamento.merge((Long) fila[0], (BigDecimal) fila[2], BigDecimal::add);
+                nuevos.ingresosPorEspecialidad.merge((EspecialidadMedica) fila[1], (BigDecimal) fila[2],
+                        BigDecimal::add);
+            }
+            for (Object[] fila : em.createQuery("SELECT c.sala.idS, CAST(c.fechaHora AS LocalDate), COUNT(c) "
+                            + "FROM Cita c WHERE c.estado <> :cancelada "
+                            + "GROUP BY c.sala.idS, CAST(c.fechaHora AS LocalDate)", Object[].class)
+                    .setParameter("cancelada", EstadoCita.CANCELADA)
+                    .getResultList()) {
+                nuevos.citasPorSalaDia.put(new SalaDia((Long) fila[0], (LocalDate) fila[1]), (Long) fila[2]);
+            }
+            nuevos.pacientes.add(em.createQuery("SELECT COUNT(p) FROM Paciente p", Long.class).getSingleResult());
+            nuevos.salas.add(em.createQuery("SELECT COUNT(s) FROM Sala s", Long.class).getSingleResult());
+            int diferencias = totales.diferencias(nuevos);
+            totales = nuevos;
+            return diferencias;
+        } finally {
+            em.close();
+            confirmaciones.writeLock().unlock();
+        }
+    }
+
+    // Una cita vista por los totales: lo que no cambia (sala, fecha, costo) y su estado
+    private void aplicar(Cita cita, EstadoCita estado, int signo) {
+        Totales actuales = totales;
+        actuales.porEstado.get(estado).add(signo);
+        long salaId = cita.getSala().getIdS();
+        if (estado == EstadoCita.COMPLETADA) {
+            DepartamentoSala departamento = departamentosPorSala.computeIfAbsent(salaId,
+                    id -> DepartamentoSala.de(cita.getSala().getDepartamento()));
+            BigDecimal costo = signo > 0 ? cita.getCosto() : cita.getCosto().negate();
+            actuales.ingresosPorDepartamento.merge(departamento.id(), costo, BigDecimal::add);
+            actuales.ingresosPorEspecialidad.merge(departamento.especialidad(), costo, BigDecimal::add);
+        }
+        if (estado != EstadoCita.CANCELADA) {
+            SalaDia salaDia = new SalaDia(salaId, cita.getFechaHora().toLocalDate());
+            actuales.citasPorSalaDia.merge(salaDia, (long) signo, Long::sum);
+        }
+    }
+
+    // Las diferencias se calculan durante el flush (con la sesión abierta) y se aplican después del commit
+    private final class Escucha implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            Object entidad = event.getEntity();
+            if (entidad instanceof Cita cita) {
+                EstadoCita estado = cita.getEstado();
+                alConfirmar(event, () -> aplicar(cita, estado, 1));
+            } else if (entidad instanceof Paciente) {
+                alConfirmar(event, () -> totales.pacientes.increment());
+            } else if (entidad instanceof Sala sala) {
+                DepartamentoSala departamento = DepartamentoSala.de(sala.getDepartamento());
+                alConfirmar(event, () -> {
+                    departamentosPorSala.put(sala.getIdS(), departamento);
+                    totales.salas.increment();
+                });
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            if (!(event.getEntity() instanceof Cita cita)) {
+                return;
+            }
+            EstadoCita nuevo = cita.getEstado();
+            Object[] anterior = event.getOldState();
+            if (anterior == null) {
+                // Update sin estado previo (p. ej. merge de una cita desvinculada): el cambio no se puede
+                // descontar; queda para la próxima reconciliación
+                return;
+            }
+            int indice = event.getPersister().getEntityMetamodel().getPropertyIndex("estado");
+            EstadoCita viejo = (EstadoCita) anterior[indice];
+            if (viejo != nuevo) {
+                alConfirmar(event, () -> {
+                    aplicar(cita, viejo, -1);
+                    aplicar(cita, nuevo, 1);
+                });
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            Object entidad = event.getEntity();
+            if (entidad instanceof Cita cita) {
+                EstadoCita estado = cita.getEstado();
+                alConfirmar(event, () -> aplicar(cita, estado, -1));
+            } else if (entidad instanceof Paciente) {
+                alConfirmar(event, () -> totales.pacientes.decrement());
+            } else if (entidad instanceof Sala) {
+                alConfirmar(event, () -> totales.salas.decrement());
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        // El read lock se toma justo antes del commit en la base y se suelta al aplicar el cambio (o al fallar
+        // la transacción). Si la transacción termina sin pasar por el commit, no se llegó a tomar.
+        private void alConfirmar(AbstractEvent event, Runnable cambio) {
+            ActionQueue cola = event.getSession().getActionQueue();
+            boolean[] tomado = new boolean[1];
+            cola.registerProcess(sesion -> {
+                confirmaciones.readLock().lock();
+                tomado[0] = true;
+            });
+            cola.registerProcess((exito, sesion) -> {
+                try {
+                    if (exito) {
+                        cambio.run();
+                    }
+                } finally {
+                    if (tomado[0]) {
+                        tomado[0] = false;
+                        confirmaciones.readLock().unlock();
+                    }
+                }
+            });
+        }
+    }
+
+    private record SalaDia(long sala, LocalDate fecha) {
+    }
+
+    private record DepartamentoSala(long id, EspecialidadMedica especialidad) {
+        static DepartamentoSala de(Departamento departamento) {
+            return new DepartamentoSala(departamento.getIddto(), departamento.getEspecialidadMedica());
+        }
+    }
+
+    private static final class Totales {
+        final Map<EstadoCita, LongAdder> porEstado = new EnumMap<>(EstadoCita.class);
+        final Map<Long, BigDecimal> ingresosPorDepartamento = new ConcurrentHashMap<>();
+        final Map<EspecialidadMedica, BigDecimal> ingresosPorEspecialidad = new ConcurrentHashMap<>();
+        final Map<SalaDia, Long> citasPorSalaDia = new ConcurrentHashMap<>();
+        final LongAdder pacientes = new LongAdder();
+        final LongAdder salas = new LongAdder();
+
+        Totales() {
+            for (EstadoCita estado : EstadoCita.values()) {
+                porEstado.put(estado, new LongAdder());
+            }
+        }
+
+        int diferencias(Totales otros) {
+            int diferencias = 0;
+            for (EstadoCita estado : EstadoCita.values()) {
+                diferencias += porEstado.get(estado).sum() != otros.porEstado.get(estado).sum() ? 1 : 0;
+            }
+            diferencias += diferencias(ingresosPorDepartamento, otros.ingresosPorDepartamento);
+            diferencias += diferencias(ingresosPorEspecialidad, otros.ingresosPorEspecialidad);
+            diferencias += diferencias(citasPorSalaDia, otros.citasPorSalaDia);
+            diferencias += pacientes.sum() != otros.pacientes.sum() ? 1 : 0;
+            diferencias += salas.sum() != otros.salas.sum() ? 1 : 0;
+            return diferencias;
+        }
+
+        // Una clave ausente vale cero (los incrementales dejan claves en cero que la consulta no devuelve)
+        private static <K, V extends Comparable<V>> int diferencias(Map<K, V> propios, Map<K, V> otros) {
+            Set<K> claves = new HashSet<>(propios.keySet());
+            claves.addAll(otros.keySet());
+            int diferencias = 0;
+            for (K clave : claves) {
+                V propio = propios.get(clave);
+                V otro = otros.get(clave);
+                boolean iguales = esCero(propio) ? esCero(otro)
+                        : otro != null && propio.compareTo(otro) == 0;
+                if (!iguales) {
+                    diferencias++;
+                }
+            }
+            return diferencias;
+        }
+
+        private static boolean esCero(Object valor) {
+            return valor == null || (valor instanceof BigDecimal d && d.signum() == 0)
+                    || (valor instanceof Long l && l == 0);
+        }
+    }
+}
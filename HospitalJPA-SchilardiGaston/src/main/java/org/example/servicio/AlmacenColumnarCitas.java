@@ -0,0 +1,505 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.metricas.RegistroMetricas;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Alternativa a CitaManager para millones de citas: cada cita es una fila en arreglos paralelos de primitivos
+// (minutos desde epoch, centavos, estado) y paciente/médico/sala se guardan como ids sustitutos int.
+// Los índices por entidad son listas de int (por médico y sala, ordenadas por fecha para el chequeo de
+// solapamiento). Los objetos Cita se arman solo cuando se piden y son copias: modificarlos no cambia el almacén.
+// Precisión de minuto y de centavo, igual que SnapshotCitas. Lecturas concurrentes; escrituras exclusivas.
+public class AlmacenColumnarCitas implements CitaService {
+
+    private static final long DURACION_MINUTOS = CitaManager.DURACION_CITA.toMinutes();
+    private static final EstadoCita[] ESTADOS = EstadoCita.values();
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MetricasCitas metricas;
+
+    // Columnas (fila = posición)
+    private int cantidad;
+    private int[] paciente;
+    private int[] medico;
+    private int[] sala;
+    private long[] minutos;
+    private long[] centavos;
+    private byte[] estado;
+    private int[] observaciones;
+
+    // ids sustitutos; el id es la posición en la lista correspondiente
+    private Diccionario<Paciente> pacientes;
+    private Diccionario<Medico> medicos;
+    private Diccionario<Sala> salas;
+    private Diccionario<String> textos;
+
+    // Filas por id sustituto: por paciente en orden de alta, por médico y sala ordenadas por minutos
+    private List<ListaEnteros> filasPorPaciente;
+    private List<ListaEnteros> filasPorMedico;
+    private List<ListaEnteros> filasPorSala;
+
+    public AlmacenColumnarCitas() {
+        this(RegistroMetricas.global());
+    }
+
+    public AlmacenColumnarCitas(RegistroMetricas registro) {
+        this.metricas = new MetricasCitas(registro, "almacenColumnar.");
+        vaciar(CAPACIDAD_INICIAL);
+    }
+
+    private void vaciar(int capacidad) {
+        cantidad = 0;
+        paciente = new int[capacidad];
+        medico = new int[capacidad];
+        sala = new int[capacidad];
+        minutos = new long[capacidad];
+        centavos = new long[capacidad];
+        estado = new byte[capacidad];
+        observaciones = new int[capacidad];
+        pacientes = new Diccionario<>();
+        medicos = new Diccionario<>();
+        salas = new Diccionario<>();
+        textos = new Diccionario<>();
+        textos.id(""); // id 0: sin observaciones
+        filasPorPaciente = new ArrayList<>();
+        filasPorMedico = new ArrayList<>();
+        filasPorSala = new ArrayList<>();
+    }
+
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+                              LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        long inicio = System.nanoTime();
+        try {
+            Cita cita = programar(paciente, medico, sala, fechaHora, costo);
+            metricas.programadas.increment();
+            return cita;
+        } catch (CitaException e) {
+            metricas.rechazo(e);
+            throw e;
+        } finally {
+            metricas.programar.registrarDesde(inicio);
+        }
+    }
+
+    private Cita programar(Paciente paciente, Medico medico, Sala sala,
+                           LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        CitaManager.validarCita(fechaHora, costo);
+        CitaManager.validarEspecialidad(medico, sala);
+        long minutosCita = SnapshotCitas.aMinutos(fechaHora);
+        long centavosCita;
+        try {
+            centavosCita = SnapshotCitas.aCentavos(costo);
+        } catch (IllegalArgumentException e) {
+            throw new CitaException(e.getMessage(), CitaException.Motivo.COSTO_INVALIDO);
+        }
+
+        lock.writeLock().lock();
+        try {
+            int conflictoMedico = buscarConflicto(filas(filasPorMedico, medicos.buscar(medico)), minutosCita);
+            if (conflictoMedico >= 0) {
+                throw new CitaException("El médico no está disponible en la fecha y hora solicitadas (cita existente: "
+                        + SnapshotCitas.deMinutos(minutos[conflictoMedico]) + ").",
+                        CitaException.Motivo.MEDICO_OCUPADO, materializar(conflictoMedico));
+            }
+
+            int conflictoSala = buscarConflicto(filas(filasPorSala, salas.buscar(sala)), minutosCita);
+            if (conflictoSala >= 0) {
+                throw new CitaException("La sala no está disponible en la fecha y hora solicitadas (cita existente: "
+                        + SnapshotCitas.deMinutos(minutos[conflictoSala]) + ").",
+                        CitaException.Motivo.SALA_OCUPADA, materializar(conflictoSala));
+            }
+
+            int fila = agregarFila(pacientes.id(paciente), medicos.id(medico), salas.id(sala),
+                    minutosCita, centavosCita, EstadoCita.PROGRAMADA, 0);
+            return materializar(fila);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Fila de la primera cita que empieza en (t - duración, t + duración), o -1
+    private int buscarConflicto(ListaEnteros filas, long t) {
+        if (filas == null) {
+            return -1;
+        }
+        int posicion = primeraPosterior(filas, t - DURACION_MINUTOS);
+        if (posicion < filas.tamano() && minutos[filas.get(posicion)] < t + DURACION_MINUTOS) {
+            return filas.get(posicion);
+        }
+        return -1;
+    }
+
+    // Primera posición cuya cita empieza estrictamente después de t (búsqueda binaria)
+    private int primeraPosterior(ListaEnteros filas, long t) {
+        int desde = 0;
+        int hasta = filas.tamano();
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (minutos[filas.get(medio)] <= t) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    private static ListaEnteros filas(List<ListaEnteros> indice, int id) {
+        return id >= 0 && id < indice.size() ? indice.get(id) : null;
+    }
+
+    // Se llama con el write lock tomado (o durante una carga, antes de publicar el almacén)
+    private int agregarFila(int idPaciente, int idMedico, int idSala, long minutosCita, long centavosCita,
+                            EstadoCita estadoCita, int idObservaciones) {
+        if (cantidad == minutos.length) {
+            crecer();
+        }
+        int fila = cantidad++;
+        paciente[fila] = idPaciente;
+        medico[fila] = idMedico;
+        sala[fila] = idSala;
+        minutos[fila] = minutosCita;
+        centavos[fila] = centavosCita;
+        estado[fila] = (byte) estadoCita.ordinal();
+        observaciones[fila] = idObservaciones;
+
+        lista(filasPorPaciente, idPaciente).agregar(fila);
+        insertarOrdenada(lista(filasPorMedico, idMedico), fila);
+        insertarOrdenada(lista(filasPorSala, idSala), fila);
+        return fila;
+    }
+
+    private static ListaEnteros lista(List<ListaEnteros> indice, int id) {
+        while (indice.size() <= id) {
+            indice.add(new ListaEnteros());
+        }
+        return indice.get(id);
+    }
+
+    // Lo habitual es agregar en orden cronológico: la posición cae al final y no hay corrimiento
+    private void insertarOrdenada(ListaEnteros filas, int fila) {
+        int tamano = filas.tamano();
+        if (tamano == 0 || minutos[filas.get(tamano - 1)] <= minutos[fila]) {
+            filas.agregar(fila);
+        } else {
+            filas.insertar(primeraPosterior(filas, minutos[fila]), fila);
+        }
+    }
+
+    private void crecer() {
+        int capacidad = Math.max(CAPACIDAD_INICIAL, minutos.length + (minutos.length >> 1));
+        paciente = Arrays.copyOf(paciente, capacidad);
+        medico = Arrays.copyOf(medico, capacidad);
+        sala = Arrays.copyOf(sala, capacidad);
+        minutos = Arrays.copyOf(minutos, capacidad);
+        centavos = Arrays.copyOf(centavos, capacidad);
+        estado = Arrays.copyOf(estado, capacidad);
+        observaciones = Arrays.copyOf(observaciones, capacidad);
+    }
+
+    // ========================= Lectura =========================
+
+    public int getCantidad() {
+        lock.readLock().lock();
+        try {
+            return cantidad;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copia de la fila como Cita (sin id de base de datos)
+    public Cita getCita(int fila) {
+        lock.readLock().lock();
+        try {
+            if (fila < 0 || fila >= cantidad) {
+                throw new IndexOutOfBoundsException("Fila inexistente: " + fila);
+            }
+            return materializar(fila);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public EstadoCita getEstado(int fila) {
+        lock.readLock().lock();
+        try {
+            return ESTADOS[estado[fila]];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEstado(int fila, EstadoCita nuevo) {
+        lock.writeLock().lock();
+        try {
+            if (fila < 0 || fila >= cantidad) {
+                throw new IndexOutOfBoundsException("Fila inexistente: " + fila);
+            }
+            estado[fila] = (byte) nuevo.ordinal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Filas (no objetos) de cada entidad, para recorrer columnas sin materializar citas
+    public int[] getFilasPorPaciente(Paciente p) {
+        return filasDe(filasPorPaciente, p, pacientes);
+    }
+
+    public int[] getFilasPorMedico(Medico m) {
+        return filasDe(filasPorMedico, m, medicos);
+    }
+
+    public int[] getFilasPorSala(Sala s) {
+        return filasDe(filasPorSala, s, salas);
+    }
+
+    private <T> int[] filasDe(List<ListaEnteros> indice, T entidad, Diccionario<T> diccionario) {
+        lock.readLock().lock();
+        try {
+            ListaEnteros filas = filas(indice, diccionario.buscar(entidad));
+            return filas != null ? filas.toArray() : new int[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente p) {
+        return citasDe(filasPorPaciente, p, pacientes);
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico m) {
+        return citasDe(filasPorMedico, m, medicos);
+    }
+
+    @Override
+    public List<Cita> getCitasPorSala(Sala s) {
+        return citasDe(filasPorSala, s, salas);
+    }
+
+    @Override
+    public List<LocalDateTime> getIniciosPorMedico(Medico m, LocalDateTime desde, LocalDateTime hasta) {
+        return iniciosDe(filasPorMedico, m, medicos, desde, hasta);
+    }
+
+    @Override
+    public List<LocalDateTime> getIniciosPorSala(Sala s, LocalDateTime desde, LocalDateTime hasta) {
+        return iniciosDe(filasPorSala, s, salas, desde, hasta);
+    }
+
+    // Las listas por médico y sala están ordenadas por minutos: búsqueda binaria del primer inicio >= desde
+    private <T> List<LocalDateTime> iniciosDe(List<ListaEnteros> indice, T entidad, Diccionario<T> diccionario,
+                                              LocalDateTime desde, LocalDateTime hasta) {
+        lock.readLock().lock();
+        try {
+            ListaEnteros filas = filas(indice, diccionario.buscar(entidad));
+            if (filas == null) {
+                return Collections.emptyList();
+            }
+            long hastaMinutos = SnapshotCitas.aMinutos(hasta);
+            List<LocalDateTime> inicios = new ArrayList<>();
+            for (int i = primeraPosterior(filas, SnapshotCitas.aMinutos(desde) - 1); i < filas.tamano(); i++) {
+                long inicio = minutos[filas.get(i)];
+                if (inicio >= hastaMinutos) {
+                    break;
+                }
+                inicios.add(SnapshotCitas.deMinutos(inicio));
+            }
+            return inicios;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> List<Cita> citasDe(List<ListaEnteros> indice, T entidad, Diccionario<T> diccionario) {
+        lock.readLock().lock();
+        try {
+            ListaEnteros filas = filas(indice, diccionario.buscar(entidad));
+            if (filas == null) {
+                return Collections.emptyList();
+            }
+            List<Cita> citas = new ArrayList<>(filas.tamano());
+            for (int i = 0; i < filas.tamano(); i++) {
+                citas.add(materializar(filas.get(i)));
+            }
+            return Collections.unmodifiableList(citas);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Cita materializar(int fila) {
+        return Cita.builder()
+                .paciente(pacientes.get(paciente[fila]))
+                .medico(medicos.get(medico[fila]))
+                .sala(salas.get(sala[fila]))
+                .fechaHora(SnapshotCitas.deMinutos(minutos[fila]))
+                .costo(SnapshotCitas.deCentavos(centavos[fila]))
+                .estado(ESTADOS[estado[fila]])
+                .observaciones(textos.get(observaciones[fila]))
+                .build();
+    }
+
+    // ========================= Persistencia =========================
+
+    // Mismo formato que Cita.toCsvString(), escrito directo desde las columnas
+    @Override
+    public void guardarCitas(String filename) throws IOException {
+        long inicio = System.nanoTime();
+        lock.readLock().lock();
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new FileWriter(filename, StandardCharsets.UTF_8), 1 << 16))) {
+            for (int fila = 0; fila < cantidad; fila++) {
+                writer.print(pacientes.get(paciente[fila]).getDni());
+                writer.print(',');
+                writer.print(medicos.get(medico[fila]).getDni());
+                writer.print(',');
+                writer.print(salas.get(sala[fila]).getNumero());
+                writer.print(',');
+                writer.print(SnapshotCitas.deMinutos(minutos[fila]));
+                writer.print(',');
+                writer.print(SnapshotCitas.deCentavos(centavos[fila]));
+                writer.print(',');
+                writer.print(ESTADOS[estado[fila]].name());
+                writer.print(',');
+                writer.println(textos.get(observaciones[fila]).replace(',', ';'));
+            }
+            metricas.guardadas.add(cantidad);
+        } finally {
+            lock.readLock().unlock();
+            metricas.guardar.registrarDesde(inicio);
+        }
+    }
+
+    // Reemplaza el contenido. Cada línea se parsea con Cita.fromCsvString y se pasa a columnas;
+    // para cargas grandes conviene cargarSnapshot, que no crea objetos Cita
+    @Override
+    public void cargarCitas(String filename, Map<String, Paciente> pacientesPorDni,
+                            Map<String, Medico> medicosPorDni, Map<String, Sala> salasPorNumero)
+            throws IOException, ClassNotFoundException, CitaException {
+        long inicio = System.nanoTime();
+        lock.writeLock().lock();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8), 1 << 16)) {
+            vaciar(CAPACIDAD_INICIAL);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Cita cita;
+                try {
+                    cita = Cita.fromCsvString(line, pacientesPorDni, medicosPorDni, salasPorNumero);
+                } catch (CitaException e) {
+                    System.err.println("Error al cargar cita desde CSV: " + line + " - " + e.getMessage());
+                    throw e;
+                }
+                agregarFila(pacientes.id(cita.getPaciente()), medicos.id(cita.getMedico()), salas.id(cita.getSala()),
+                        SnapshotCitas.aMinutos(cita.getFechaHora()), SnapshotCitas.aCentavos(cita.getCosto()),
+                        cita.getEstado(), textos.id(cita.getObservaciones()));
+            }
+            metricas.cargadas.add(cantidad);
+        } catch (CitaException | IOException | RuntimeException e) {
+            // Cualquier falla (también un costo que no entra en centavos) deja el almacén vacío, no a medias
+            vaciar(CAPACIDAD_INICIAL);
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+            metricas.cargar.registrarDesde(inicio);
+        }
+    }
+
+    public void guardarSnapshot(String filename) throws IOException {
+        lock.readLock().lock();
+        try (SnapshotCitas.Escritor escritor = new SnapshotCitas.Escritor(Path.of(filename))) {
+            for (int fila = 0; fila < cantidad; fila++) {
+                escritor.escribir(pacientes.get(paciente[fila]).getDni(), medicos.get(medico[fila]).getDni(),
+                        salas.get(sala[fila]).getNumero(), minutos[fila], centavos[fila],
+                        ESTADOS[estado[fila]], textos.get(observaciones[fila]));
+            }
+            escritor.terminar();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Reemplaza el contenido: los registros del snapshot van directo a las columnas, sin crear objetos Cita.
+    // Los índices del diccionario del snapshot se traducen una sola vez a ids sustitutos.
+    public void cargarSnapshot(String filename, Map<String, Paciente> pacientesPorDni,
+                               Map<String, Medico> medicosPorDni, Map<String, Sala> salasPorNumero)
+            throws IOException, CitaException {
+        lock.writeLock().lock();
+        try (SnapshotCitas.Lector lector = new SnapshotCitas.Lector(Path.of(filename))) {
+            vaciar((int) Math.min(Math.max(lector.getCantidad(), CAPACIDAD_INICIAL), Integer.MAX_VALUE - 8));
+            int[] idPaciente = traducir(lector.getPacientes(), pacientesPorDni, pacientes, "Paciente no encontrado: ");
+            int[] idMedico = traducir(lector.getMedicos(), medicosPorDni, medicos, "Médico no encontrado: ");
+            int[] idSala = traducir(lector.getSalas(), salasPorNumero, salas, "Sala no encontrada: ");
+            lector.recorrer((p, m, s, minutosCita, centavosCita, estadoCita, textoObservaciones) ->
+                    agregarFila(idPaciente[p], idMedico[m], idSala[s], minutosCita, centavosCita, estadoCita,
+                            textoObservaciones.isEmpty() ? 0 : textos.id(textoObservaciones)));
+        } catch (CitaException | IOException | RuntimeException e) {
+            vaciar(CAPACIDAD_INICIAL);
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static <T> int[] traducir(String[] claves, Map<String, T> entidades, Diccionario<T> diccionario,
+                                      String mensaje) throws CitaException {
+        int[] ids = new int[claves.length];
+        for (int i = 0; i < claves.length; i++) {
+            T entidad = entidades.get(claves[i]);
+            if (entidad == null) {
+                throw new CitaException(mensaje + claves[i]);
+            }
+            ids[i] = diccionario.id(entidad);
+        }
+        return ids;
+    }
+
+    // Asigna ids consecutivos desde 0 a cada valor distinto
+    private static final class Diccionario<T> {
+        private final Map<T, Integer> ids = new HashMap<>();
+        private final List<T> valores = new ArrayList<>();
+
+        int id(T valor) {
+            Integer id = ids.get(valor);
+            if (id == null) {
+                id = valores.size();
+                ids.put(valor, id);
+                valores.add(valor);
+            }
+            return id;
+        }
+
+        int buscar(T valor) {
+            Integer id = ids.get(valor);
+            return id != null ? id : -1;
+        }
+
+        T get(int id) {
+            return valores.get(id);
+        }
+    }
+}
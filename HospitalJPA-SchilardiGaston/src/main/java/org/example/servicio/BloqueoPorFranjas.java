@@ -0,0 +1,92 @@
+package org.example.servicio;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Lock striping: cada clave (médico, sala, paciente) cae en una de N franjas según su hash.
+// Las franjas se toman siempre en orden ascendente y sin repetir, así dos hilos que piden
+// las mismas claves en distinto orden no pueden quedar en deadlock.
+final class BloqueoPorFranjas {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+
+    BloqueoPorFranjas(int cantidad) {
+        if (cantidad <= 0 || Integer.bitCount(cantidad) != 1) {
+            throw new IllegalArgumentException("La cantidad de franjas debe ser una potencia de 2");
+        }
+        this.franjas = new ReentrantLock[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.mascara = cantidad - 1;
+    }
+
+    private int indice(Object clave) {
+        int h = clave.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    // Bloquea las franjas de las claves dadas y devuelve los índices tomados, para pasarlos a liberar()
+    int[] bloquear(Object... claves) {
+        if (claves.length > franjas.length) {
+            return bloquearMuchas(claves);
+        }
+        int[] indices = new int[claves.length];
+        for (int i = 0; i < claves.length; i++) {
+            indices[i] = indice(claves[i]);
+        }
+        Arrays.sort(indices);
+        int distintos = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                indices[distintos++] = indices[i];
+            }
+        }
+        int[] tomados = Arrays.copyOf(indices, distintos);
+        for (int i : tomados) {
+            franjas[i].lock();
+        }
+        return tomados;
+    }
+
+    // Con más claves que franjas (p. ej. un lote de reservas) se marcan las franjas en vez de ordenar los índices
+    private int[] bloquearMuchas(Object[] claves) {
+        boolean[] marcadas = new boolean[franjas.length];
+        int distintas = 0;
+        for (Object clave : claves) {
+            int i = indice(clave);
+            if (!marcadas[i]) {
+                marcadas[i] = true;
+                distintas++;
+            }
+        }
+        int[] tomados = new int[distintas];
+        int t = 0;
+        for (int i = 0; i < marcadas.length; i++) {
+            if (marcadas[i]) {
+                tomados[t++] = i;
+                franjas[i].lock();
+            }
+        }
+        return tomados;
+    }
+
+    void liberar(int[] tomados) {
+        for (int i = tomados.length - 1; i >= 0; i--) {
+            franjas[tomados[i]].unlock();
+        }
+    }
+
+    void bloquearTodas() {
+        for (ReentrantLock franja : franjas) {
+            franja.lock();
+        }
+    }
+
+    void liberarTodas() {
+        for (int i = franjas.length - 1; i >= 0; i--) {
+            franjas[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package org.example.servicio;
+
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Sala;
+import org.example.metricas.Histograma;
+import org.example.metricas.RegistroMetricas;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Primeros turnos libres de una especialidad o departamento, sin probar programarCita turno por turno.
+// Por cada día y cada médico/sala se arma un bitmap de un bit por minuto del día: el bit encendido indica
+// que una cita que empiece en ese minuto se superpondría con otra existente. Los días se evalúan en
+// paralelo con fork/join; cada tarea devuelve sus turnos en orden, así que al combinar alcanza con
+// concatenar, y si los días anteriores ya juntaron los n pedidos los posteriores se cancelan.
+// Un turno empareja a un médico con una sala de su mismo departamento.
+public class BuscadorTurnos {
+
+    public static final LocalTime APERTURA_POR_DEFECTO = LocalTime.of(8, 0);
+    public static final LocalTime CIERRE_POR_DEFECTO = LocalTime.of(20, 0);
+    public static final Duration INTERVALO_POR_DEFECTO = Duration.ofMinutes(30);
+
+    private static final int MINUTOS_DIA = 24 * 60;
+    private static final int PALABRAS_DIA = (MINUTOS_DIA + 63) / 64;
+    private static final int DURACION = (int) CitaManager.DURACION_CITA.toMinutes();
+
+    private final Hospital hospital;
+    private final CitaService citas;
+    private final ForkJoinPool pool;
+    private final int apertura;
+    private final int ultimoInicio;
+    private final int intervalo;
+    private final Histograma buscar;
+
+    public BuscadorTurnos(Hospital hospital, CitaService citas) {
+        this(hospital, citas, APERTURA_POR_DEFECTO, CIERRE_POR_DEFECTO, INTERVALO_POR_DEFECTO);
+    }
+
+    // Los turnos empiezan desde la apertura cada intervalo; el último termina a más tardar al cierre
+    public BuscadorTurnos(Hospital hospital, CitaService citas, LocalTime apertura, LocalTime cierre,
+                          Duration intervalo) {
+        this.hospital = Objects.requireNonNull(hospital, "El hospital no puede ser nulo");
+        this.citas = Objects.requireNonNull(citas, "El servicio de citas no puede ser nulo");
+        this.apertura = apertura.toSecondOfDay() / 60;
+        this.ultimoInicio = cierre.toSecondOfDay() / 60 - DURACION;
+        this.intervalo = (int) intervalo.toMinutes();
+        if (this.intervalo <= 0) {
+            throw new IllegalArgumentException("El intervalo entre turnos debe ser de al menos un minuto");
+        }
+        if (this.ultimoInicio < this.apertura) {
+            throw new IllegalArgumentException("Entre la apertura y el cierre no entra ninguna cita");
+        }
+        this.pool = ForkJoinPool.commonPool();
+        this.buscar = RegistroMetricas.global().histograma("buscadorTurnos.buscarTurnosLibres");
+    }
+
+    // Hasta n turnos en [desde, hasta) entre todos los departamentos del hospital con esa especialidad,
+    // ordenados por fecha (a igual hora, por departamento y médico en el orden del hospital)
+    public List<TurnoLibre> buscarTurnosLibres(EspecialidadMedica especialidad, LocalDateTime desde,
+                                               LocalDateTime hasta, int n) {
+        List<Departamento> departamentos = new ArrayList<>();
+        for (Departamento departamento : hospital.getDepartamentos()) {
+            // contains: la lista del hospital puede repetir un departamento (agregarDepartamento + setHospital)
+            if (departamento.getEspecialidadMedica() == especialidad && !departamentos.contains(departamento)) {
+                departamentos.add(departamento);
+            }
+        }
+        return buscar(departamentos, desde, hasta, n);
+    }
+
+    public List<TurnoLibre> buscarTurnosLibres(Departamento departamento, LocalDateTime desde,
+                                               LocalDateTime hasta, int n) {
+        return buscar(List.of(departamento), desde, hasta, n);
+    }
+
+    private List<TurnoLibre> buscar(List<Departamento> departamentos, LocalDateTime desde,
+                                    LocalDateTime hasta, int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("La cantidad de turnos debe ser mayor que cero");
+        }
+        long inicio = System.nanoTime();
+        try {
+            // No se ofrecen turnos en el pasado: programarCita los rechazaría
+            LocalDateTime ahora = LocalDateTime.now();
+            LocalDateTime primero = desde.isBefore(ahora) ? ahora : desde;
+            if (!primero.isBefore(hasta)) {
+                return List.of();
+            }
+            Busqueda busqueda = new Busqueda(departamentos, primero, hasta, n);
+            if (busqueda.medicos.length == 0) {
+                return List.of();
+            }
+            return pool.invoke(new TareaDias(busqueda, 0, busqueda.dias));
+        } finally {
+            buscar.registrarDesde(inicio);
+        }
+    }
+
+    // Estado de una búsqueda: los inicios de citas de cada médico y sala dentro de la ventana (en minutos
+    // desde epoch, ordenados), leídos una sola vez antes de repartir los días entre las tareas
+    private final class Busqueda {
+        private final int n;
+        private final LocalDate primerDia;
+        private final int dias;
+        private final long desdeMinutos;
+        private final long hastaMinutos;
+        private final Medico[] medicos;
+        private final Sala[] salas;
+        // Por departamento, rango [desde, hasta) de sus médicos y de sus salas en los arreglos anteriores
+        private final int[] medicosDesde;
+        private final int[] salasDesde;
+        private final long[][] iniciosMedicos;
+        private final long[][] iniciosSalas;
+
+        Busqueda(List<Departamento> departamentos, LocalDateTime desde, LocalDateTime hasta, int n) {
+            this.n = n;
+            this.desdeMinutos = minutoSiguiente(desde);
+            this.hastaMinutos = minutoSiguiente(hasta);
+            this.primerDia = desde.toLocalDate();
+            this.dias = (int) ChronoUnit.DAYS.between(primerDia, SnapshotCitas.deMinutos(hastaMinutos - 1).toLocalDate()) + 1;
+
+            List<Medico> listaMedicos = new ArrayList<>();
+            List<Sala> listaSalas = new ArrayList<>();
+            List<Integer> cortesMedicos = new ArrayList<>();
+            List<Integer> cortesSalas = new ArrayList<>();
+            for (Departamento departamento : departamentos) {
+                if (departamento.getMedicos().isEmpty() || departamento.getSalas().isEmpty()) {
+                    continue;
+                }
+                cortesMedicos.add(listaMedicos.size());
+                cortesSalas.add(listaSalas.size());
+                listaMedicos.addAll(departamento.getMedicos());
+                listaSalas.addAll(departamento.getSalas());
+            }
+            cortesMedicos.add(listaMedicos.size());
+            cortesSalas.add(listaSalas.size());
+            this.medicos = listaMedicos.toArray(new Medico[0]);
+            this.salas = listaSalas.toArray(new Sala[0]);
+            this.medicosDesde = cortesMedicos.stream().mapToInt(Integer::intValue).toArray();
+            this.salasDesde = cortesSalas.stream().mapToInt(Integer::intValue).toArray();
+
+            // Una cita que empieza en s bloquea los inicios en (s - duración, s + duración)
+            LocalDateTime leerDesde = SnapshotCitas.deMinutos(desdeMinutos - DURACION + 1);
+            LocalDateTime leerHasta = SnapshotCitas.deMinutos(hastaMinutos + DURACION);
+            this.iniciosMedicos = new long[medicos.length][];
+            for (int i = 0; i < medicos.length; i++) {
+                iniciosMedicos[i] = aMinutos(citas.getIniciosPorMedico(medicos[i], leerDesde, leerHasta));
+            }
+            this.iniciosSalas = new long[salas.length][];
+            for (int i = 0; i < salas.length; i++) {
+                iniciosSalas[i] = aMinutos(citas.getIniciosPorSala(salas[i], leerDesde, leerHasta));
+            }
+        }
+
+        List<TurnoLibre> evaluarDia(int dia) {
+            LocalDate fecha = primerDia.plusDays(dia);
+            long inicioDia = SnapshotCitas.aMinutos(fecha.atStartOfDay());
+            // Primer y último minuto candidatos del día, alineados a la grilla de turnos
+            int primero = (int) Math.max(apertura, desdeMinutos - inicioDia);
+            primero = apertura + ceilDiv(primero - apertura, intervalo) * intervalo;
+            int ultimo = (int) Math.min(ultimoInicio, hastaMinutos - 1 - inicioDia);
+            List<TurnoLibre> turnos = new ArrayList<>();
+            if (primero > ultimo) {
+                return turnos;
+            }
+
+            long[] ocupadoMedicos = ocupacion(iniciosMedicos, inicioDia, primero, ultimo);
+            long[] ocupadoSalas = ocupacion(iniciosSalas, inicioDia, primero, ultimo);
+            // Por departamento, minutos en los que al menos una de sus salas está libre
+            int grupos = medicosDesde.length - 1;
+            long[] algunaSalaLibre = new long[grupos * PALABRAS_DIA];
+            for (int g = 0; g < grupos; g++) {
+                for (int s = salasDesde[g]; s < salasDesde[g + 1]; s++) {
+                    for (int w = 0; w < PALABRAS_DIA; w++) {
+                        algunaSalaLibre[g * PALABRAS_DIA + w] |= ~ocupadoSalas[s * PALABRAS_DIA + w];
+                    }
+                }
+            }
+
+            for (int minuto = primero; minuto <= ultimo; minuto += intervalo) {
+                LocalDateTime fechaHora = null;
+                for (int g = 0; g < grupos; g++) {
+                    if (!encendido(algunaSalaLibre, g * PALABRAS_DIA, minuto)) {
+                        continue;
+                    }
+                    for (int m = medicosDesde[g]; m < medicosDesde[g + 1]; m++) {
+                        if (encendido(ocupadoMedicos, m * PALABRAS_DIA, minuto)) {
+                            continue;
+                        }
+                        int s = salasDesde[g];
+                        while (encendido(ocupadoSalas, s * PALABRAS_DIA, minuto)) {
+                            s++;
+                        }
+                        if (fechaHora == null) {
+                            fechaHora = fecha.atStartOfDay().plusMinutes(minuto);
+                        }
+                        turnos.add(new TurnoLibre(fechaHora, medicos[m], salas[s]));
+                        if (turnos.size() == n) {
+                            return turnos;
+                        }
+                    }
+                }
+            }
+            return turnos;
+        }
+
+        // Un bitmap de PALABRAS_DIA palabras por recurso, solo con las citas que afectan a [primero, ultimo]
+        private long[] ocupacion(long[][] inicios, long inicioDia, int primero, int ultimo) {
+            long[] bits = new long[inicios.length * PALABRAS_DIA];
+            for (int r = 0; r < inicios.length; r++) {
+                long[] propios = inicios[r];
+                for (int i = primerMayor(propios, inicioDia + primero - DURACION); i < propios.length; i++) {
+                    long relativo = propios[i] - inicioDia;
+                    if (relativo >= ultimo + DURACION) {
+                        break;
+                    }
+                    marcar(bits, r * PALABRAS_DIA, (int) Math.max(0, relativo - DURACION + 1),
+                            (int) Math.min(MINUTOS_DIA - 1, relativo + DURACION - 1));
+                }
+            }
+            return bits;
+        }
+    }
+
+    // Divide el rango de días a la mitad hasta llegar a un día por tarea
+    private static final class TareaDias extends RecursiveTask<List<TurnoLibre>> {
+        private final Busqueda busqueda;
+        private final int desde;
+        private final int hasta;
+
+        TareaDias(Busqueda busqueda, int desde, int hasta) {
+            this.busqueda = busqueda;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected List<TurnoLibre> compute() {
+            if (hasta - desde == 1) {
+                return busqueda.evaluarDia(desde);
+            }
+            int medio = (desde + hasta) >>> 1;
+            TareaDias posteriores = new TareaDias(busqueda, medio, hasta);
+            posteriores.fork();
+            List<TurnoLibre> turnos = new TareaDias(busqueda, desde, medio).compute();
+            if (turnos.size() >= busqueda.n) {
+                posteriores.cancel(false);
+                return turnos;
+            }
+            List<TurnoLibre> resto = posteriores.join();
+            List<TurnoLibre> combinados = new ArrayList<>(Math.min(busqueda.n, turnos.size() + resto.size()));
+            combinados.addAll(turnos);
+            combinados.addAll(resto.subList(0, Math.min(resto.size(), busqueda.n - turnos.size())));
+            return combinados;
+        }
+    }
+
+    private static long[] aMinutos(List<LocalDateTime> inicios) {
+        long[] minutos = new long[inicios.size()];
+        for (int i = 0; i < minutos.length; i++) {
+            minutos[i] = SnapshotCitas.aMinutos(inicios.get(i));
+        }
+        return minutos;
+    }
+
+    // Primer minuto entero que no es anterior a fechaHora
+    private static long minutoSiguiente(LocalDateTime fechaHora) {
+        LocalDateTime truncada = fechaHora.truncatedTo(ChronoUnit.MINUTES);
+        long minutos = SnapshotCitas.aMinutos(truncada);
+        return truncada.equals(fechaHora) ? minutos : minutos + 1;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    // Primera posición con valor > valor (arreglo ordenado)
+    private static int primerMayor(long[] ordenado, long valor) {
+        int desde = 0;
+        int hasta = ordenado.length;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (ordenado[medio] <= valor) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    private static boolean encendido(long[] bits, int base, int bit) {
+        return (bits[base + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    // Enciende los bits [desde, hasta] (ambos incluidos) palabra por palabra
+    private static void marcar(long[] bits, int base, int desde, int hasta) {
+        int primera = desde >>> 6;
+        int ultima = hasta >>> 6;
+        long mascaraPrimera = -1L << desde;
+        long mascaraUltima = -1L >>> (63 - (hasta & 63));
+        if (primera == ultima) {
+            bits[base + primera] |= mascaraPrimera & mascaraUltima;
+            return;
+        }
+        bits[base + primera] |= mascaraPrimera;
+        for (int w = primera + 1; w < ultima; w++) {
+            bits[base + w] = -1L;
+        }
+        bits[base + ultima] |= mascaraUltima;
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Alta masiva de entidades: persiste en lotes y vacía el contexto de persistencia cada N entidades,
+// así los INSERT salen en batch JDBC y la memoria no crece con la cantidad de filas.
+// Debe usarse dentro de una transacción activa; las entidades quedan detached al terminar cada lote.
+public class CargaMasivaService {
+
+    // Coincide con hibernate.jdbc.batch_size de persistence.xml
+    public static final int TAMANO_LOTE_POR_DEFECTO = 50;
+
+    private final EntityManager em;
+    private final int tamanoLote;
+
+    public CargaMasivaService(EntityManager em) {
+        this(em, TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    public CargaMasivaService(EntityManager em, int tamanoLote) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo");
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que cero");
+        }
+        this.tamanoLote = tamanoLote;
+    }
+
+    // Devuelve la cantidad de entidades persistidas (sin contar las que se agregan por cascada)
+    public int persistirEnLotes(Iterable<?> entidades) {
+        verificarTransaccion();
+        int persistidas = 0;
+        for (Object entidad : entidades) {
+            em.persist(entidad);
+            if (++persistidas % tamanoLote == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return persistidas;
+    }
+
+    // Variante para entidades que apuntan a otras ya gestionadas (p. ej. citas -> paciente/médico/sala):
+    // en lugar de vaciar el contexto solo se desvinculan las entidades del lote, así las referencias
+    // siguen gestionadas y el cascade PERSIST no las encuentra detached en el lote siguiente
+    public int persistirDesvinculando(Iterable<?> entidades) {
+        verificarTransaccion();
+        List<Object> lote = new ArrayList<>(tamanoLote);
+        int persistidas = 0;
+        for (Object entidad : entidades) {
+            em.persist(entidad);
+            lote.add(entidad);
+            persistidas++;
+            if (lote.size() == tamanoLote) {
+                desvincular(lote);
+            }
+        }
+        desvincular(lote);
+        return persistidas;
+    }
+
+    private void desvincular(List<Object> lote) {
+        em.flush();
+        for (Object entidad : lote) {
+            em.detach(entidad);
+        }
+        lote.clear();
+    }
+
+    private void verificarTransaccion() {
+        if (!em.getTransaction().isActive()) {
+            throw new IllegalStateException("La carga masiva requiere una transacción activa");
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Carga paralela del CSV de citas: el archivo se mapea en memoria por bloques alineados a fin de
+// línea, cada bloque se parsea en un ForkJoinPool con un tokenizador a mano (sin split ni regex)
+// y al final se combinan los índices de cada bloque respetando el orden del archivo.
+final class CargadorCsvCitas {
+
+    static final int TAMANO_BLOQUE = 16 * 1024 * 1024;
+    private static final int CAMPOS = 7;
+    private static final EstadoCita[] ESTADOS = EstadoCita.values();
+    private static final byte[][] NOMBRES_ESTADOS = new byte[ESTADOS.length][];
+
+    static {
+        for (int i = 0; i < ESTADOS.length; i++) {
+            NOMBRES_ESTADOS[i] = ESTADOS[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Map<String, Paciente> pacientes;
+    private final Map<String, Medico> medicos;
+    private final Map<String, Sala> salas;
+    private final Duration duracionCita;
+    private final ForkJoinPool pool;
+    private final int tamanoBloque;
+
+    CargadorCsvCitas(Map<String, Paciente> pacientes, Map<String, Medico> medicos, Map<String, Sala> salas,
+                     Duration duracionCita, ForkJoinPool pool, int tamanoBloque) {
+        this.pacientes = pacientes;
+        this.medicos = medicos;
+        this.salas = salas;
+        this.duracionCita = duracionCita;
+        this.pool = pool;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    IndicesCitas cargar(Path archivo) throws IOException, CitaException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            List<long[]> bloques = dividirEnBloques(canal);
+
+            List<ParseoBloque> tareas = new ArrayList<>(bloques.size());
+            for (long[] bloque : bloques) {
+                tareas.add(new ParseoBloque(canal, bloque[0], bloque[1]));
+            }
+            List<Parcial> parciales = new ArrayList<>(tareas.size());
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    invokeAll(tareas);
+                    return null;
+                }
+            });
+            for (ParseoBloque tarea : tareas) {
+                Parcial parcial = tarea.join();
+                if (parcial.error != null) {
+                    // Igual que la carga secuencial: se informa la primera línea inválida del archivo
+                    System.err.println("Error al cargar cita desde CSV: " + parcial.lineaConError + " - "
+                            + parcial.error.getMessage());
+                    throw parcial.error;
+                }
+                if (parcial.errorLectura != null) {
+                    throw parcial.errorLectura;
+                }
+                parciales.add(parcial);
+            }
+            return combinar(parciales);
+        }
+    }
+
+    // Cortes cada ~tamanoBloque bytes, corridos hasta el siguiente '\n' para no partir una línea
+    private List<long[]> dividirEnBloques(FileChannel canal) throws IOException {
+        long tamano = canal.size();
+        List<long[]> bloques = new ArrayList<>();
+        ByteBuffer lectura = ByteBuffer.allocate(8 * 1024);
+        long inicio = 0;
+        while (inicio < tamano) {
+            long fin = Math.min(inicio + tamanoBloque, tamano);
+            while (fin < tamano) {
+                lectura.clear();
+                int leidos = canal.read(lectura, fin);
+                if (leidos <= 0) {
+                    fin = tamano;
+                    break;
+                }
+                int salto = -1;
+                for (int i = 0; i < leidos; i++) {
+                    if (lectura.get(i) == '\n') {
+                        salto = i;
+                        break;
+                    }
+                }
+                if (salto >= 0) {
+                    fin += salto + 1;
+                    break;
+                }
+                fin += leidos;
+            }
+            bloques.add(new long[]{inicio, Math.min(fin, tamano)});
+            inicio = fin;
+        }
+        return bloques;
+    }
+
+    private IndicesCitas combinar(List<Parcial> parciales) {
+        int total = 0;
+        for (Parcial parcial : parciales) {
+            total += parcial.citas.size();
+        }
+        List<Cita> citas = new ArrayList<>(total);
+        Map<Paciente, List<Cita>> porPaciente = new HashMap<>();
+        Map<Medico, List<Cita>> porMedico = new HashMap<>();
+        Map<Sala, List<Cita>> porSala = new HashMap<>();
+        for (Parcial parcial : parciales) {
+            citas.addAll(parcial.citas);
+            agregarTodo(porPaciente, parcial.porPaciente);
+            agregarTodo(porMedico, parcial.porMedico);
+            agregarTodo(porSala, parcial.porSala);
+        }
+        return IndicesCitas.construir(citas, porPaciente, porMedico, porSala, duracionCita, pool);
+    }
+
+    private static <K> void agregarTodo(Map<K, List<Cita>> destino, Map<K, List<Cita>> origen) {
+        for (Map.Entry<K, List<Cita>> entrada : origen.entrySet()) {
+            List<Cita> lista = destino.get(entrada.getKey());
+            if (lista == null) {
+                destino.put(entrada.getKey(), entrada.getValue());
+            } else {
+                lista.addAll(entrada.getValue());
+            }
+        }
+    }
+
+    private static final class Parcial {
+        final List<Cita> citas = new ArrayList<>();
+        final Map<Paciente, List<Cita>> porPaciente = new HashMap<>();
+        final Map<Medico, List<Cita>> porMedico = new HashMap<>();
+        final Map<Sala, List<Cita>> porSala = new HashMap<>();
+        CitaException error;
+        String lineaConError;
+        IOException errorLectura;
+
+        void agregar(Cita cita) {
+            citas.add(cita);
+            porPaciente.computeIfAbsent(cita.getPaciente(), p -> new ArrayList<>()).add(cita);
+            porMedico.computeIfAbsent(cita.getMedico(), m -> new ArrayList<>()).add(cita);
+            porSala.computeIfAbsent(cita.getSala(), s -> new ArrayList<>()).add(cita);
+        }
+    }
+
+    private final class ParseoBloque extends RecursiveTask<Parcial> {
+        private final FileChannel canal;
+        private final long inicio;
+        private final long fin;
+
+        // Posiciones de los campos de la línea actual: [inicio, fin) de cada uno
+        private final int[] desde = new int[CAMPOS];
+        private final int[] hasta = new int[CAMPOS];
+        private byte[] linea = new byte[256];
+
+        ParseoBloque(FileChannel canal, long inicio, long fin) {
+            this.canal = canal;
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+
+        @Override
+        protected Parcial compute() {
+            Parcial parcial = new Parcial();
+            MappedByteBuffer buffer;
+            try {
+                buffer = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+            } catch (IOException e) {
+                parcial.errorLectura = e;
+                return parcial;
+            }
+
+            int limite = buffer.limit();
+            int largo = 0;
+            for (int i = 0; i < limite; i++) {
+                byte b = buffer.get(i);
+                if (b != '\n') {
+                    if (largo == linea.length) {
+                        linea = Arrays.copyOf(linea, largo * 2);
+                    }
+                    linea[largo++] = b;
+                    if (i < limite - 1) {
+                        continue;
+                    }
+                }
+                // Fin de línea (o del bloque): se ignoran '\r' finales y líneas vacías
+                if (largo > 0 && linea[largo - 1] == '\r') {
+                    largo--;
+                }
+                if (largo > 0) {
+                    try {
+                        parcial.agregar(parsear(largo));
+                    } catch (CitaException e) {
+                        parcial.error = e;
+                        parcial.lineaConError = new String(linea, 0, largo, StandardCharsets.UTF_8);
+                        return parcial;
+                    }
+                }
+                largo = 0;
+            }
+            return parcial;
+        }
+
+        private Cita parsear(int largo) throws CitaException {
+            int campo = 0;
+            desde[0] = 0;
+            for (int i = 0; i < largo; i++) {
+                if (linea[i] == ',') {
+                    if (campo == CAMPOS - 1) {
+                        throw formatoInvalido(largo);
+                    }
+                    hasta[campo++] = i;
+                    desde[campo] = i + 1;
+                }
+            }
+            if (campo != CAMPOS - 1) {
+                throw formatoInvalido(largo);
+            }
+            hasta[campo] = largo;
+
+            String dniPaciente = texto(0);
+            String dniMedico = texto(1);
+            String numeroSala = texto(2);
+            LocalDateTime fechaHora;
+            BigDecimal costo;
+            EstadoCita estado;
+            try {
+                fechaHora = fechaHora(desde[3], hasta[3]);
+                costo = costo(desde[4], hasta[4]);
+                estado = estado(desde[5], hasta[5]);
+            } catch (DateTimeException | IllegalArgumentException e) {
+                throw new CitaException("Formato de CSV inválido para Cita: "
+                        + new String(linea, 0, largo, StandardCharsets.UTF_8), e);
+            }
+            String observaciones = texto(6).replace(';', ',');
+
+            Paciente paciente = pacientes.get(dniPaciente);
+            Medico medico = medicos.get(dniMedico);
+            Sala sala = salas.get(numeroSala);
+
+            if (paciente == null) {
+                throw new CitaException("Paciente no encontrado: " + dniPaciente);
+            }
+            if (medico == null) {
+                throw new CitaException("Médico no encontrado: " + dniMedico);
+            }
+            if (sala == null) {
+                throw new CitaException("Sala no encontrada: " + numeroSala);
+            }
+
+            return Cita.builder()
+                    .paciente(paciente)
+                    .medico(medico)
+                    .sala(sala)
+                    .fechaHora(fechaHora)
+                    .costo(costo)
+                    .estado(estado)
+                    .observaciones(observaciones)
+                    .build();
+        }
+
+        private CitaException formatoInvalido(int largo) {
+            return new CitaException("Formato de CSV inválido para Cita: "
+                    + new String(linea, 0, largo, StandardCharsets.UTF_8));
+        }
+
+        private String texto(int campo) {
+            return new String(linea, desde[campo], hasta[campo] - desde[campo], StandardCharsets.UTF_8);
+        }
+
+        // Formato de LocalDateTime.toString(): yyyy-MM-ddTHH:mm[:ss[.fraccion]]
+        private LocalDateTime fechaHora(int d, int h) {
+            int largo = h - d;
+            if ((largo == 16 || largo == 19) && linea[d + 4] == '-' && linea[d + 7] == '-' && linea[d + 10] == 'T'
+                    && linea[d + 13] == ':' && (largo == 16 || linea[d + 16] == ':')) {
+                int anio = digitos(d, 4);
+                int mes = digitos(d + 5, 2);
+                int dia = digitos(d + 8, 2);
+                int hora = digitos(d + 11, 2);
+                int minuto = digitos(d + 14, 2);
+                int segundo = largo == 19 ? digitos(d + 17, 2) : 0;
+                if (anio >= 0 && mes >= 0 && dia >= 0 && hora >= 0 && minuto >= 0 && segundo >= 0) {
+                    return LocalDateTime.of(anio, mes, dia, hora, minuto, segundo);
+                }
+            }
+            // Fracciones de segundo u otros casos raros: se delega en el parser estándar
+            return LocalDateTime.parse(new String(linea, d, largo, StandardCharsets.US_ASCII));
+        }
+
+        private int digitos(int d, int cantidad) {
+            int valor = 0;
+            for (int i = d; i < d + cantidad; i++) {
+                int digito = linea[i] - '0';
+                if (digito < 0 || digito > 9) {
+                    return -1;
+                }
+                valor = valor * 10 + digito;
+            }
+            return valor;
+        }
+
+        // Formato de BigDecimal.toString() sin exponente: [-]digitos[.digitos]
+        private BigDecimal costo(int d, int h) {
+            int i = d;
+            boolean negativo = i < h && linea[i] == '-';
+            if (negativo) {
+                i++;
+            }
+            long sinEscala = 0;
+            int escala = -1;
+            int cifras = 0;
+            for (; i < h; i++) {
+                byte b = linea[i];
+                if (b == '.' && escala < 0) {
+                    escala = 0;
+                } else if (b >= '0' && b <= '9' && cifras < 18) {
+                    sinEscala = sinEscala * 10 + (b - '0');
+                    cifras++;
+                    if (escala >= 0) {
+                        escala++;
+                    }
+                } else {
+                    return new BigDecimal(new String(linea, d, h - d, StandardCharsets.US_ASCII));
+                }
+            }
+            if (cifras == 0) {
+                throw new NumberFormatException("Costo vacío");
+            }
+            return BigDecimal.valueOf(negativo ? -sinEscala : sinEscala, Math.max(escala, 0));
+        }
+
+        private EstadoCita estado(int d, int h) {
+            for (int e = 0; e < ESTADOS.length; e++) {
+                byte[] nombre = NOMBRES_ESTADOS[e];
+                if (nombre.length == h - d && Arrays.equals(linea, d, h, nombre, 0, nombre.length)) {
+                    return ESTADOS[e];
+                }
+            }
+            throw new IllegalArgumentException("Estado de cita desconocido: "
+                    + new String(linea, d, h - d, StandardCharsets.UTF_8));
+        }
+    }
+}
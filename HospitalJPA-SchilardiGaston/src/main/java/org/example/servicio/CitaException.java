@@ -1,12 +1,53 @@
-
-package org.example.servicio;
-
-import lombok.experimental.StandardException;
-
-@StandardException
-
-public class CitaException extends Exception {
-
-
-
-}
+
+package org.example.servicio;
+
+import lombok.experimental.StandardException;
+import org.example.entidades.Cita;
+
+import java.util.Optional;
+
+@StandardException
+
+public class CitaException extends Exception {
+
+    // Por qué se rechazó una reserva (se cuenta por motivo en las métricas)
+    public enum Motivo {
+        FECHA_PASADA,
+        COSTO_INVALIDO,
+        MEDICO_OCUPADO,
+        SALA_OCUPADA,
+        ESPECIALIDAD_INCOMPATIBLE,
+        // El diario de CitaManager no pudo hacer durable un cambio (ver CitaManager.abrirDiario)
+        DIARIO_NO_DISPONIBLE,
+        OTRO
+    }
+
+    private Motivo motivo = Motivo.OTRO;
+
+    // Cita existente que impide la reserva (solo en conflictos de médico o sala)
+    private Cita citaEnConflicto;
+
+    public CitaException(String message, Motivo motivo) {
+        this(message);
+        this.motivo = motivo;
+    }
+
+    public CitaException(String message, Motivo motivo, Throwable cause) {
+        this(message, cause);
+        this.motivo = motivo;
+    }
+
+    public CitaException(String message, Motivo motivo, Cita citaEnConflicto) {
+        this(message, motivo);
+        this.citaEnConflicto = citaEnConflicto;
+    }
+
+    public Motivo getMotivo() {
+        return motivo;
+    }
+
+    public Optional<Cita> getCitaEnConflicto() {
+        return Optional.ofNullable(citaEnConflicto);
+    }
+
+}
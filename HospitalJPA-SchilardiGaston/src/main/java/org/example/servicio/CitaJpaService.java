@@ -0,0 +1,296 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.metricas.RegistroMetricas;
+import org.hibernate.Hibernate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// CitaService sobre la base de datos: la disponibilidad se consulta con una búsqueda por rango
+// sobre los índices (medico_id, fechaHora) y (sala_id, fechaHora) de Citas, sin cargar el historial en memoria.
+// Si el EntityManager ya tiene una transacción activa se usa esa; si no, cada operación abre y confirma la suya.
+public class CitaJpaService implements CitaService {
+
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 100;
+
+    private static final Duration DURACION_CITA = CitaManager.DURACION_CITA;
+
+    private final EntityManager em;
+    private final MetricasCitas metricas;
+
+    public CitaJpaService(EntityManager em) {
+        this(em, RegistroMetricas.global());
+    }
+
+    public CitaJpaService(EntityManager em, RegistroMetricas registro) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo");
+        this.metricas = new MetricasCitas(registro, "citaJpa.");
+    }
+
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+                              LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        long inicio = System.nanoTime();
+        try {
+            Cita cita = programar(paciente, medico, sala, fechaHora, costo);
+            metricas.programadas.increment();
+            return cita;
+        } catch (CitaException e) {
+            metricas.rechazo(e);
+            throw e;
+        } finally {
+            metricas.programar.registrarDesde(inicio);
+        }
+    }
+
+    private Cita programar(Paciente paciente, Medico medico, Sala sala,
+                           LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        CitaManager.validarCita(fechaHora, costo);
+        CitaManager.validarEspecialidad(medico, sala);
+
+        EntityTransaction propia = iniciarTransaccion();
+        try {
+            // Lock de fila sobre médico y sala (siempre en ese orden): dos reservas concurrentes
+            // del mismo médico o sala se serializan hasta el commit, también entre procesos distintos
+            Medico medicoGestionado = gestionada(medico);
+            Sala salaGestionada = gestionada(sala);
+            em.lock(medicoGestionado, LockModeType.PESSIMISTIC_WRITE);
+            em.lock(salaGestionada, LockModeType.PESSIMISTIC_WRITE);
+
+            Cita conflictoMedico = buscarConflicto("c.medico = :recurso", medicoGestionado, fechaHora);
+            if (conflictoMedico != null) {
+                throw new CitaException("El médico no está disponible en la fecha y hora solicitadas (cita existente: "
+                        + conflictoMedico.getFechaHora() + ").", CitaException.Motivo.MEDICO_OCUPADO, conflictoMedico);
+            }
+
+            Cita conflictoSala = buscarConflicto("c.sala = :recurso", salaGestionada, fechaHora);
+            if (conflictoSala != null) {
+                throw new CitaException("La sala no está disponible en la fecha y hora solicitadas (cita existente: "
+                        + conflictoSala.getFechaHora() + ").", CitaException.Motivo.SALA_OCUPADA, conflictoSala);
+            }
+
+            // No se agrega a las colecciones de paciente/médico/sala: inicializarlas cargaría todo su historial
+            Cita cita = Cita.builder()
+                    .paciente(gestionada(paciente))
+                    .medico(medicoGestionado)
+                    .sala(salaGestionada)
+                    .fechaHora(fechaHora)
+                    .costo(costo)
+                    .build();
+            em.persist(cita);
+
+            confirmar(propia);
+            return cita;
+        } catch (CitaException | RuntimeException e) {
+            deshacer(propia);
+            throw e;
+        }
+    }
+
+    // Primera cita del recurso que se solapa con [fechaHora, fechaHora + duración): las que empiezan
+    // en el intervalo abierto (fechaHora - duración, fechaHora + duración). Equivale a un EXISTS con
+    // LIMIT 1, pero devuelve la cita para informarla en la excepción.
+    private Cita buscarConflicto(String condicion, Object recurso, LocalDateTime fechaHora) {
+        List<Cita> conflictos = em.createQuery(
+                        "SELECT c FROM Cita c WHERE " + condicion
+                                + " AND c.fechaHora > :desde AND c.fechaHora < :hasta ORDER BY c.fechaHora",
+                        Cita.class)
+                .setParameter("recurso", recurso)
+                .setParameter("desde", fechaHora.minus(DURACION_CITA))
+                .setParameter("hasta", fechaHora.plus(DURACION_CITA))
+                .setMaxResults(1)
+                .getResultList();
+        return conflictos.isEmpty() ? null : conflictos.get(0);
+    }
+
+    // Una entidad ya persistida pero desvinculada (p. ej. leída con otro EntityManager) se busca por id:
+    // merge cascadearía a sus colecciones de citas y las cargaría enteras en cada reserva.
+    // Solo las que todavía no tienen id se incorporan con merge.
+    private <T> T gestionada(T entidad) {
+        if (em.contains(entidad)) {
+            return entidad;
+        }
+        Object id = em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entidad);
+        if (id == null || Long.valueOf(0L).equals(id)) {
+            return em.merge(entidad);
+        }
+        @SuppressWarnings("unchecked")
+        Class<T> tipo = (Class<T>) Hibernate.getClass(entidad);
+        T gestionada = em.find(tipo, id);
+        return gestionada != null ? gestionada : em.merge(entidad);
+    }
+
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        return citasPor("c.paciente = :recurso", paciente).getResultList();
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        return citasPor("c.medico = :recurso", medico).getResultList();
+    }
+
+    @Override
+    public List<Cita> getCitasPorSala(Sala sala) {
+        return citasPor("c.sala = :recurso", sala).getResultList();
+    }
+
+    @Override
+    public List<LocalDateTime> getIniciosPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta) {
+        return iniciosPor("c.medico = :recurso", medico, desde, hasta);
+    }
+
+    @Override
+    public List<LocalDateTime> getIniciosPorSala(Sala sala, LocalDateTime desde, LocalDateTime hasta) {
+        return iniciosPor("c.sala = :recurso", sala, desde, hasta);
+    }
+
+    // Solo la columna fechaHora, resuelta sobre los índices (medico_id, fechaHora) / (sala_id, fechaHora)
+    private List<LocalDateTime> iniciosPor(String condicion, Object recurso, LocalDateTime desde, LocalDateTime hasta) {
+        return em.createQuery("SELECT c.fechaHora FROM Cita c WHERE " + condicion
+                        + " AND c.fechaHora >= :desde AND c.fechaHora < :hasta ORDER BY c.fechaHora", LocalDateTime.class)
+                .setParameter("recurso", recurso)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta)
+                .getResultList();
+    }
+
+    // Versiones paginadas (pagina desde 0), ordenadas por fecha
+    public List<Cita> getCitasPorPaciente(Paciente paciente, int pagina, int tamanoPagina) {
+        return paginar(citasPor("c.paciente = :recurso", paciente), pagina, tamanoPagina);
+    }
+
+    public List<Cita> getCitasPorMedico(Medico medico, int pagina, int tamanoPagina) {
+        return paginar(citasPor("c.medico = :recurso", medico), pagina, tamanoPagina);
+    }
+
+    public List<Cita> getCitasPorSala(Sala sala, int pagina, int tamanoPagina) {
+        return paginar(citasPor("c.sala = :recurso", sala), pagina, tamanoPagina);
+    }
+
+    private TypedQuery<Cita> citasPor(String condicion, Object recurso) {
+        return em.createQuery("SELECT c FROM Cita c WHERE " + condicion + " ORDER BY c.fechaHora, c.id", Cita.class)
+                .setParameter("recurso", recurso);
+    }
+
+    private static List<Cita> paginar(TypedQuery<Cita> consulta, int pagina, int tamanoPagina) {
+        if (pagina < 0) {
+            throw new IllegalArgumentException("La página no puede ser negativa");
+        }
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero");
+        }
+        return consulta
+                .setFirstResult(Math.multiplyExact(pagina, tamanoPagina))
+                .setMaxResults(tamanoPagina)
+                .getResultList();
+    }
+
+    // Se exporta por páginas según id con una proyección de las columnas del CSV (mismo formato que
+    // Cita.toCsvString()): no entran entidades al contexto, así las que el llamador tenga en este EntityManager
+    // no se tocan. Los cambios pendientes del llamador se ven si hay transacción (flush automático).
+    @Override
+    public void guardarCitas(String filename) throws IOException {
+        long inicio = System.nanoTime();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename, StandardCharsets.UTF_8))) {
+            long ultimoId = 0;
+            List<Object[]> pagina;
+            do {
+                pagina = em.createQuery("SELECT c.id, p.dni, m.dni, s.numero, c.fechaHora, c.costo, c.estado,"
+                                + " c.observaciones FROM Cita c JOIN c.paciente p JOIN c.medico m JOIN c.sala s"
+                                + " WHERE c.id > :ultimo ORDER BY c.id", Object[].class)
+                        .setParameter("ultimo", ultimoId)
+                        .setMaxResults(TAMANO_PAGINA_POR_DEFECTO)
+                        .getResultList();
+                for (Object[] fila : pagina) {
+                    String observaciones = (String) fila[7];
+                    writer.println(fila[1] + "," + fila[2] + "," + fila[3] + "," + fila[4] + "," + fila[5] + ","
+                            + ((EstadoCita) fila[6]).name() + ","
+                            + (observaciones != null ? observaciones.replace(',', ';') : ""));
+                    ultimoId = (Long) fila[0];
+                }
+                metricas.guardadas.add(pagina.size());
+            } while (pagina.size() == TAMANO_PAGINA_POR_DEFECTO);
+        } finally {
+            metricas.guardar.registrarDesde(inicio);
+        }
+    }
+
+    // Agrega a la base las citas del archivo (no borra las existentes). Se lee línea por línea
+    // y se persiste por lotes, así la memoria no depende del tamaño del archivo.
+    // Las entidades de los mapas deben estar persistidas.
+    @Override
+    public void cargarCitas(String filename, Map<String, Paciente> pacientes,
+                            Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, ClassNotFoundException, CitaException {
+        long inicio = System.nanoTime();
+        CargaMasivaService carga = new CargaMasivaService(em);
+        EntityTransaction propia = iniciarTransaccion();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8))) {
+            List<Cita> lote = new ArrayList<>(CargaMasivaService.TAMANO_LOTE_POR_DEFECTO);
+            int cargadas = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    lote.add(Cita.fromCsvString(line, pacientes, medicos, salas));
+                } catch (CitaException e) {
+                    System.err.println("Error al cargar cita desde CSV: " + line + " - " + e.getMessage());
+                    throw e;
+                }
+                if (lote.size() == CargaMasivaService.TAMANO_LOTE_POR_DEFECTO) {
+                    cargadas += carga.persistirDesvinculando(lote);
+                    lote.clear();
+                }
+            }
+            cargadas += carga.persistirDesvinculando(lote);
+            confirmar(propia);
+            metricas.cargadas.add(cargadas);
+        } catch (IOException | CitaException | RuntimeException e) {
+            deshacer(propia);
+            throw e;
+        } finally {
+            metricas.cargar.registrarDesde(inicio);
+        }
+    }
+
+    // Devuelve la transacción abierta por este servicio, o null si ya había una en curso
+    private EntityTransaction iniciarTransaccion() {
+        EntityTransaction tx = em.getTransaction();
+        if (tx.isActive()) {
+            return null;
+        }
+        tx.begin();
+        return tx;
+    }
+
+    private static void confirmar(EntityTransaction propia) {
+        if (propia != null) {
+            propia.commit();
+        }
+    }
+
+    private static void deshacer(EntityTransaction propia) {
+        if (propia != null && propia.isActive()) {
+            propia.rollback();
+        }
+    }
+}
@@ -1,195 +1,942 @@
-
-package org.example.servicio;
-
-import org.example.entidades.Cita;
-import org.example.entidades.Medico;
-import org.example.entidades.Paciente;
-import org.example.entidades.Sala;
-
-import java.io.*;
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-public class CitaManager implements CitaService {
-    private final List<Cita> citas = new ArrayList<>();
-    private final Map<Paciente, List<Cita>> citasPorPaciente = new ConcurrentHashMap<>();
-    private final Map<Medico, List<Cita>> citasPorMedico = new ConcurrentHashMap<>();
-    private final Map<Sala, List<Cita>> citasPorSala = new ConcurrentHashMap<>();
-
-    @Override
-    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
-                              LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
-
-        validarCita(fechaHora, costo);
-
-        if (!esMedicoDisponible(medico, fechaHora)) {
-            throw new CitaException("El médico no está disponible en la fecha y hora solicitadas.");
-        }
-
-        if (!esSalaDisponible(sala, fechaHora)) {
-            throw new CitaException("La sala no está disponible en la fecha y hora solicitadas.");
-        }
-
-        if (!medico.getEspecialidadMedica().equals(sala.getDepartamento().getEspecialidadMedica())) {
-            throw new CitaException("La especialidad del médico no coincide con el departamento de la sala.");
-        }
-
-        Cita cita = Cita.builder()
-                .paciente(paciente)
-                .medico(medico)
-                .sala(sala)
-                .fechaHora(fechaHora)
-                .costo(costo)
-                .build();
-        citas.add(cita);
-
-        actualizarIndicePaciente(paciente, cita);
-        actualizarIndiceMedico(medico, cita);
-        actualizarIndiceSala(sala, cita);
-
-        paciente.addCita(cita);
-        medico.addCita(cita);
-        sala.addCita(cita);
-
-        return cita;
-    }
-
-    private void validarCita(LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
-        if (fechaHora.isBefore(LocalDateTime.now())) {
-            throw new CitaException("No se puede programar una cita en el pasado.");
-        }
-
-        if (costo.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new CitaException("El costo debe ser mayor que cero.");
-        }
-    }
-
-    private boolean esMedicoDisponible(Medico medico, LocalDateTime fechaHora) {
-        List<Cita> citasExistentes = citasPorMedico.get(medico);
-        if (citasExistentes != null) {
-            for (Cita citaExistente : citasExistentes) {
-                if (Math.abs(citaExistente.getFechaHora().compareTo(fechaHora)) < 2) { // 2 horas de diferencia
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    private boolean esSalaDisponible(Sala sala, LocalDateTime fechaHora) {
-        List<Cita> citasExistentes = citasPorSala.get(sala);
-        if (citasExistentes != null) {
-            for (Cita citaExistente : citasExistentes) {
-                if (Math.abs(citaExistente.getFechaHora().compareTo(fechaHora)) < 2) { // 2 horas de diferencia
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    private void actualizarIndicePaciente(Paciente paciente, Cita cita) {
-        List<Cita> citasPaciente = citasPorPaciente.get(paciente);
-        if (citasPaciente == null) {
-            citasPaciente = new ArrayList<>();
-            citasPorPaciente.put(paciente, citasPaciente);
-        }
-        citasPaciente.add(cita);
-    }
-
-    private void actualizarIndiceMedico(Medico medico, Cita cita) {
-        List<Cita> citasMedico = citasPorMedico.get(medico);
-        if (citasMedico == null) {
-            citasMedico = new ArrayList<>();
-            citasPorMedico.put(medico, citasMedico);
-        }
-        citasMedico.add(cita);
-    }
-
-    private void actualizarIndiceSala(Sala sala, Cita cita) {
-        List<Cita> citasSala = citasPorSala.get(sala);
-        if (citasSala == null) {
-            citasSala = new ArrayList<>();
-            citasPorSala.put(sala, citasSala);
-        }
-        citasSala.add(cita);
-    }
-
-    @Override
-    public List<Cita> getCitasPorPaciente(Paciente paciente) {
-        List<Cita> citasPaciente = citasPorPaciente.get(paciente);
-        if (citasPaciente != null) {
-            return Collections.unmodifiableList(citasPaciente);
-        } else {
-            return Collections.emptyList();
-        }
-    }
-
-    @Override
-    public List<Cita> getCitasPorMedico(Medico medico) {
-        List<Cita> citasMedico = citasPorMedico.get(medico);
-        if (citasMedico != null) {
-            return Collections.unmodifiableList(citasMedico);
-        } else {
-            return Collections.emptyList();
-        }
-    }
-
-    @Override
-    public List<Cita> getCitasPorSala(Sala sala) {
-        List<Cita> citasSala = citasPorSala.get(sala);
-        if (citasSala != null) {
-            return Collections.unmodifiableList(citasSala);
-        } else {
-            return Collections.emptyList();
-        }
-    }
-
-    @Override
-    public void guardarCitas(String filename) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (Cita cita : citas) {
-                writer.println(cita.toCsvString());
-            }
-        }
-    }
-
-    public List<Cita> getCitas() {
-        if (!citas.isEmpty()) {
-            return Collections.unmodifiableList(citas);
-        } else {
-            return Collections.emptyList();
-        }
-    }
-
-    @Override
-    public void cargarCitas(String filename, Map<String, Paciente> pacientes,
-                            Map<String, Medico> medicos, Map<String, Sala> salas)
-            throws IOException, ClassNotFoundException, CitaException {
-        citas.clear();
-        citasPorPaciente.clear();
-        citasPorMedico.clear();
-        citasPorSala.clear();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                try {
-                    Cita cita = Cita.fromCsvString(line, pacientes, medicos, salas);
-                    citas.add(cita);
-                    actualizarIndicePaciente(cita.getPaciente(), cita);
-                    actualizarIndiceMedico(cita.getMedico(), cita);
-                    actualizarIndiceSala(cita.getSala(), cita);
-                } catch (CitaException e) {
-                    System.err.println("Error al cargar cita desde CSV: " + line + " - " + e.getMessage());
-                    throw e;
-                }
-            }
-        }
-    }
+
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.metricas.RegistroMetricas;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+
+public class CitaManager implements CitaService {
+    // Toda cita ocupa al médico y a la sala durante este lapso a partir de su fechaHora
+    public static final Duration DURACION_CITA = Duration.ofHours(2);
+
+    private static final int FRANJAS_POR_DEFECTO = 256;
+
+    // citas se protege con su propio monitor; cada lista de los índices, con la franja de su clave
+    private final List<Cita> citas = new ArrayList<>();
+    private final Map<Paciente, List<Cita>> citasPorPaciente = new ConcurrentHashMap<>();
+    private final Map<Medico, Agenda> citasPorMedico = new ConcurrentHashMap<>();
+    private final Map<Sala, Agenda> citasPorSala = new ConcurrentHashMap<>();
+    private final BloqueoPorFranjas bloqueos;
+    private final MetricasCitas metricas;
+    // Diario de cambios entre snapshots (ver abrirDiario); null si no se usa
+    private volatile DiarioCitas diario;
+    private Path snapshotDiario;
+    // Primer error del diario al hacer durable un cambio. Desde ahí la memoria puede tener cambios que el
+    // diario no tiene, así que se rechaza todo cambio nuevo hasta que una carga reemplace el estado.
+    private volatile IOException falloDiario;
+    // Guardado incremental (ver guardarIncremental): citas nuevas o modificadas desde el último guardado.
+    // Solo se registran mientras hay una base asociada, así no crece si nunca se usa.
+    private volatile GuardadoIncremental guardado;
+    private final Set<Cita> modificadas = ConcurrentHashMap.newKeySet();
+    private final Cita.Observador observador = new ObservadorCitas();
+
+    public CitaManager() {
+        this(FRANJAS_POR_DEFECTO);
+    }
+
+    // franjas: cantidad de locks (potencia de 2); más franjas, menos contención entre médicos/salas distintos
+    public CitaManager(int franjas) {
+        this(franjas, RegistroMetricas.global());
+    }
+
+    public CitaManager(int franjas, RegistroMetricas registro) {
+        this.bloqueos = new BloqueoPorFranjas(franjas);
+        this.metricas = new MetricasCitas(registro, "citaManager.");
+    }
+
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala,
+                              LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        long inicio = System.nanoTime();
+        try {
+            Cita cita = programar(paciente, medico, sala, fechaHora, costo);
+            metricas.programadas.increment();
+            return cita;
+        } catch (CitaException e) {
+            metricas.rechazo(e);
+            throw e;
+        } finally {
+            metricas.programar.registrarDesde(inicio);
+        }
+    }
+
+    private Cita programar(Paciente paciente, Medico medico, Sala sala,
+                           LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        validarCita(fechaHora, costo);
+        validarEspecialidad(medico, sala);
+        validarCostoDiario(costo);
+        verificarDiario();
+
+        // Chequeo y alta bajo las mismas franjas: dos hilos no pueden reservar el mismo médico o sala a la vez
+        int[] franjas = bloqueos.bloquear(paciente, medico, sala);
+        Cita cita;
+        long evento;
+        try {
+            cita = registrarCita(paciente, medico, sala, fechaHora, costo);
+            evento = registrarAlta(cita);
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+        // La espera del fsync va fuera de las franjas: mientras tanto otras reservas se suman al mismo lote
+        try {
+            esperarDiario(evento);
+        } catch (IOException e) {
+            throw new CitaException("La cita no se pudo registrar en el diario; el gestor queda en falla hasta "
+                    + "recuperarlo desde el diario", CitaException.Motivo.DIARIO_NO_DISPONIBLE, e);
+        }
+        return cita;
+    }
+
+    private Cita registrarCita(Paciente paciente, Medico medico, Sala sala,
+                               LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        Cita conflictoMedico = buscarConflictoMedico(medico, fechaHora);
+        if (conflictoMedico != null) {
+            throw new CitaException("El médico no está disponible en la fecha y hora solicitadas (cita existente: "
+                    + conflictoMedico.getFechaHora() + ").", CitaException.Motivo.MEDICO_OCUPADO, conflictoMedico);
+        }
+
+        Cita conflictoSala = buscarConflictoSala(sala, fechaHora);
+        if (conflictoSala != null) {
+            throw new CitaException("La sala no está disponible en la fecha y hora solicitadas (cita existente: "
+                    + conflictoSala.getFechaHora() + ").", CitaException.Motivo.SALA_OCUPADA, conflictoSala);
+        }
+
+        Cita cita = Cita.builder()
+                .paciente(paciente)
+                .medico(medico)
+                .sala(sala)
+                .fechaHora(fechaHora)
+                .costo(costo)
+                .build();
+        agregarAIndices(cita);
+        marcarModificada(cita);
+
+        paciente.addCita(cita);
+        medico.addCita(cita);
+        sala.addCita(cita);
+
+        return cita;
+    }
+
+    private void agregarAIndices(Cita cita) {
+        cita.setObservador(observador);
+        synchronized (citas) {
+            citas.add(cita);
+        }
+
+        actualizarIndicePaciente(cita.getPaciente(), cita);
+        actualizarIndiceMedico(cita.getMedico(), cita);
+        actualizarIndiceSala(cita.getSala(), cita);
+    }
+
+    // Reserva un lote completo (p. ej. la grilla semanal de una clínica) con un solo chequeo y una sola
+    // actualización de índices. Las solicitudes válidas se ordenan por fecha y se recorren una vez: cada una
+    // se compara con la agenda existente (O(log n)) y con la última aceptada del lote para su médico y su sala,
+    // que por el orden es la única del lote con la que puede superponerse. Entre dos solicitudes del lote que
+    // se superponen gana la más temprana. Devuelve un resultado por solicitud, en el orden recibido.
+    public List<ResultadoSolicitud> programarCitas(List<SolicitudCita> solicitudes) {
+        long inicio = System.nanoTime();
+        ResultadoSolicitud[] resultados = new ResultadoSolicitud[solicitudes.size()];
+        List<Integer> validas = new ArrayList<>(solicitudes.size());
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < solicitudes.size(); i++) {
+            SolicitudCita solicitud = solicitudes.get(i);
+            try {
+                validarCita(solicitud.fechaHora(), solicitud.costo(), ahora);
+                validarEspecialidad(solicitud.medico(), solicitud.sala());
+                validarCostoDiario(solicitud.costo());
+                verificarDiario();
+                validas.add(i);
+            } catch (CitaException e) {
+                resultados[i] = rechazar(solicitud, e);
+            }
+        }
+        // Orden estable: a igual fecha se respeta el orden del lote
+        validas.sort(Comparator.comparing(i -> solicitudes.get(i).fechaHora()));
+
+        Object[] claves = new Object[validas.size() * 3];
+        int c = 0;
+        for (int i : validas) {
+            SolicitudCita solicitud = solicitudes.get(i);
+            claves[c++] = solicitud.paciente();
+            claves[c++] = solicitud.medico();
+            claves[c++] = solicitud.sala();
+        }
+        int[] franjas = bloqueos.bloquear(claves);
+        long evento = 0;
+        int cantidadAceptadas = 0;
+        try {
+            Map<Medico, Cita> ultimaPorMedico = new HashMap<>();
+            Map<Sala, Cita> ultimaPorSala = new HashMap<>();
+            List<Cita> aceptadas = new ArrayList<>(validas.size());
+            for (int i : validas) {
+                SolicitudCita solicitud = solicitudes.get(i);
+                try {
+                    Cita cita = verificarEnLote(solicitud, ultimaPorMedico.get(solicitud.medico()),
+                            ultimaPorSala.get(solicitud.sala()));
+                    ultimaPorMedico.put(solicitud.medico(), cita);
+                    ultimaPorSala.put(solicitud.sala(), cita);
+                    aceptadas.add(cita);
+                    resultados[i] = ResultadoSolicitud.aceptada(solicitud, cita);
+                } catch (CitaException e) {
+                    resultados[i] = rechazar(solicitud, e);
+                }
+            }
+
+            // Alta de todas las aceptadas en una pasada, agrupadas para buscar cada índice una sola vez
+            for (Cita cita : aceptadas) {
+                cita.setObservador(observador);
+            }
+            synchronized (citas) {
+                citas.addAll(aceptadas);
+            }
+            if (guardado != null) {
+                modificadas.addAll(aceptadas);
+            }
+            Map<Paciente, List<Cita>> porPaciente = new HashMap<>();
+            Map<Medico, List<Cita>> porMedico = new HashMap<>();
+            Map<Sala, List<Cita>> porSala = new HashMap<>();
+            for (Cita cita : aceptadas) {
+                porPaciente.computeIfAbsent(cita.getPaciente(), p -> new ArrayList<>()).add(cita);
+                porMedico.computeIfAbsent(cita.getMedico(), m -> new ArrayList<>()).add(cita);
+                porSala.computeIfAbsent(cita.getSala(), x -> new ArrayList<>()).add(cita);
+            }
+            porPaciente.forEach((paciente, nuevas) -> {
+                citasPorPaciente.computeIfAbsent(paciente, p -> new ArrayList<>()).addAll(nuevas);
+                nuevas.forEach(paciente::addCita);
+            });
+            porMedico.forEach((medico, nuevas) -> {
+                Agenda agenda = citasPorMedico.computeIfAbsent(medico, m -> new Agenda(DURACION_CITA));
+                agenda.agregarTodas(nuevas);
+                nuevas.forEach(medico::addCita);
+            });
+            porSala.forEach((sala, nuevas) -> {
+                Agenda agenda = citasPorSala.computeIfAbsent(sala, x -> new Agenda(DURACION_CITA));
+                agenda.agregarTodas(nuevas);
+                nuevas.forEach(sala::addCita);
+            });
+            for (Cita cita : aceptadas) {
+                evento = registrarAlta(cita);
+            }
+            cantidadAceptadas = aceptadas.size();
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+        try {
+            // Un solo fsync para todo el lote
+            esperarDiario(evento);
+            metricas.programadas.add(cantidadAceptadas);
+        } catch (IOException e) {
+            // Ninguna aceptada del lote es durable: todas pasan a rechazadas con el error del diario
+            CitaException rechazo = new CitaException("El lote no se pudo registrar en el diario; el gestor queda "
+                    + "en falla hasta recuperarlo desde el diario", CitaException.Motivo.DIARIO_NO_DISPONIBLE, e);
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i].isAceptada()) {
+                    resultados[i] = rechazar(resultados[i].solicitud(), rechazo);
+                }
+            }
+        } finally {
+            metricas.programarLote.registrarDesde(inicio);
+        }
+        return Arrays.asList(resultados);
+    }
+
+    // Chequea contra la agenda existente y contra la última cita aceptada del lote para el mismo médico/sala
+    private Cita verificarEnLote(SolicitudCita solicitud, Cita ultimaMedico, Cita ultimaSala) throws CitaException {
+        LocalDateTime fechaHora = solicitud.fechaHora();
+        Cita conflictoMedico = buscarConflictoMedico(solicitud.medico(), fechaHora);
+        if (conflictoMedico == null && seSuperpone(ultimaMedico, fechaHora)) {
+            conflictoMedico = ultimaMedico;
+        }
+        if (conflictoMedico != null) {
+            throw new CitaException("El médico no está disponible en la fecha y hora solicitadas (cita existente: "
+                    + conflictoMedico.getFechaHora() + ").", CitaException.Motivo.MEDICO_OCUPADO, conflictoMedico);
+        }
+
+        Cita conflictoSala = buscarConflictoSala(solicitud.sala(), fechaHora);
+        if (conflictoSala == null && seSuperpone(ultimaSala, fechaHora)) {
+            conflictoSala = ultimaSala;
+        }
+        if (conflictoSala != null) {
+            throw new CitaException("La sala no está disponible en la fecha y hora solicitadas (cita existente: "
+                    + conflictoSala.getFechaHora() + ").", CitaException.Motivo.SALA_OCUPADA, conflictoSala);
+        }
+
+        return Cita.builder()
+                .paciente(solicitud.paciente())
+                .medico(solicitud.medico())
+                .sala(solicitud.sala())
+                .fechaHora(fechaHora)
+                .costo(solicitud.costo())
+                .build();
+    }
+
+    // anterior empieza antes o a la vez que fechaHora (el lote se recorre en orden cronológico)
+    private static boolean seSuperpone(Cita anterior, LocalDateTime fechaHora) {
+        return anterior != null && anterior.getFechaHora().plus(DURACION_CITA).isAfter(fechaHora);
+    }
+
+    private ResultadoSolicitud rechazar(SolicitudCita solicitud, CitaException e) {
+        metricas.rechazo(e);
+        return ResultadoSolicitud.rechazada(solicitud, e);
+    }
+
+    // Validaciones que no dependen de las citas existentes (compartidas con CitaJpaService)
+    static void validarCita(LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
+        validarCita(fechaHora, costo, LocalDateTime.now());
+    }
+
+    private static void validarCita(LocalDateTime fechaHora, BigDecimal costo, LocalDateTime ahora)
+            throws CitaException {
+        if (fechaHora.isBefore(ahora)) {
+            throw new CitaException("No se puede programar una cita en el pasado.", CitaException.Motivo.FECHA_PASADA);
+        }
+
+        if (costo.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new CitaException("El costo debe ser mayor que cero.", CitaException.Motivo.COSTO_INVALIDO);
+        }
+    }
+
+    static void validarEspecialidad(Medico medico, Sala sala) throws CitaException {
+        if (!medico.getEspecialidadMedica().equals(sala.getDepartamento().getEspecialidadMedica())) {
+            throw new CitaException("La especialidad del médico no coincide con el departamento de la sala.",
+                    CitaException.Motivo.ESPECIALIDAD_INCOMPATIBLE);
+        }
+    }
+
+    // Equivalen a los setters de Cita: sobre una cita de este manager, ObservadorCitas registra el cambio
+    // en el diario y lo marca para el guardado incremental. Si el diario falla lanzan IllegalStateException
+    // y la cita conserva el valor anterior.
+    public void cambiarEstado(Cita cita, EstadoCita estado) {
+        cita.setEstado(estado);
+    }
+
+    public void cambiarObservaciones(Cita cita, String observaciones) {
+        cita.setObservaciones(observaciones);
+    }
+
+    // Se entera de los setters de las citas que agregó este manager. Una cita que quedó afuera por una carga
+    // posterior ya no está en los índices y sus cambios se ignoran: en el diario pisarían a la cita que hoy
+    // ocupa el mismo médico y fechaHora.
+    private final class ObservadorCitas implements Cita.Observador {
+        @Override
+        public void estadoCambiado(Cita cita) {
+            int[] franjas = bloqueos.bloquear(cita.getMedico());
+            long evento = 0;
+            try {
+                if (estaIndexada(cita)) {
+                    verificarCambio();
+                    marcarModificada(cita);
+                    DiarioCitas actual = diario;
+                    if (actual != null) {
+                        evento = actual.registrarEstado(cita);
+                    }
+                }
+            } finally {
+                bloqueos.liberar(franjas);
+            }
+            confirmarCambio(evento);
+        }
+
+        @Override
+        public void observacionesCambiadas(Cita cita) {
+            int[] franjas = bloqueos.bloquear(cita.getMedico());
+            long evento = 0;
+            try {
+                if (estaIndexada(cita)) {
+                    verificarCambio();
+                    marcarModificada(cita);
+                    DiarioCitas actual = diario;
+                    if (actual != null) {
+                        evento = actual.registrarObservaciones(cita);
+                    }
+                }
+            } finally {
+                bloqueos.liberar(franjas);
+            }
+            confirmarCambio(evento);
+        }
+
+        // Un IllegalStateException hace que el setter de Cita vuelva al valor anterior
+        private void verificarCambio() {
+            IOException fallo = falloDiario;
+            if (fallo != null) {
+                throw new IllegalStateException("El diario de citas falló; no se aceptan cambios hasta recuperarlo",
+                        fallo);
+            }
+        }
+
+        private void confirmarCambio(long evento) {
+            try {
+                esperarDiario(evento);
+            } catch (IOException e) {
+                throw new IllegalStateException("El cambio no se pudo registrar en el diario; el gestor queda en "
+                        + "falla hasta recuperarlo desde el diario", e);
+            }
+        }
+
+        private boolean estaIndexada(Cita cita) {
+            Agenda agenda = citasPorMedico.get(cita.getMedico());
+            return agenda != null && agenda.contiene(cita);
+        }
+    }
+
+    private Cita buscarCita(Medico medico, LocalDateTime fechaHora) {
+        Agenda agenda = citasPorMedico.get(medico);
+        return agenda != null ? agenda.buscar(fechaHora) : null;
+    }
+
+    private void marcarModificada(Cita cita) {
+        if (guardado != null) {
+            modificadas.add(cita);
+        }
+    }
+
+    // Diario y snapshot guardan el costo en centavos: se rechaza antes de dar de alta algo que no se podría registrar
+    private void validarCostoDiario(BigDecimal costo) throws CitaException {
+        if (diario != null && costo.scale() > 2 && costo.stripTrailingZeros().scale() > 2) {
+            throw new CitaException("El costo no puede tener más de dos decimales.", CitaException.Motivo.COSTO_INVALIDO);
+        }
+    }
+
+    // Se llama bajo las franjas de la cita, así el diario queda en el mismo orden que los índices
+    private long registrarAlta(Cita cita) {
+        DiarioCitas actual = diario;
+        return actual != null ? actual.registrarAlta(cita) : 0;
+    }
+
+    // Si falla, el cambio ya está aplicado en memoria (y visible para otros hilos) pero no es durable: el
+    // gestor queda en falla (falloDiario) y quien llama lo informa como rechazo
+    private void esperarDiario(long evento) throws IOException {
+        DiarioCitas actual = diario;
+        if (actual == null || evento == 0) {
+            return;
+        }
+        try {
+            actual.esperar(evento);
+        } catch (IOException e) {
+            if (falloDiario == null) {
+                falloDiario = e;
+            }
+            throw e;
+        }
+    }
+
+    private void verificarDiario() throws CitaException {
+        IOException fallo = falloDiario;
+        if (fallo != null) {
+            throw new CitaException("El diario de citas falló; no se aceptan reservas hasta recuperarlo desde el "
+                    + "diario", CitaException.Motivo.DIARIO_NO_DISPONIBLE, fallo);
+        }
+    }
+
+    private Cita buscarConflictoMedico(Medico medico, LocalDateTime fechaHora) {
+        Agenda agenda = citasPorMedico.get(medico);
+        return agenda != null ? agenda.buscarConflicto(fechaHora) : null;
+    }
+
+    private Cita buscarConflictoSala(Sala sala, LocalDateTime fechaHora) {
+        Agenda agenda = citasPorSala.get(sala);
+        return agenda != null ? agenda.buscarConflicto(fechaHora) : null;
+    }
+
+    private void actualizarIndicePaciente(Paciente paciente, Cita cita) {
+        citasPorPaciente.computeIfAbsent(paciente, p -> new ArrayList<>()).add(cita);
+    }
+
+    private void actualizarIndiceMedico(Medico medico, Cita cita) {
+        citasPorMedico.computeIfAbsent(medico, m -> new Agenda(DURACION_CITA)).agregar(cita);
+    }
+
+    private void actualizarIndiceSala(Sala sala, Cita cita) {
+        citasPorSala.computeIfAbsent(sala, s -> new Agenda(DURACION_CITA)).agregar(cita);
+    }
+
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        int[] franjas = bloqueos.bloquear(paciente);
+        try {
+            List<Cita> citasPaciente = citasPorPaciente.get(paciente);
+            if (citasPaciente != null) {
+                return List.copyOf(citasPaciente);
+            } else {
+                return Collections.emptyList();
+            }
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        int[] franjas = bloqueos.bloquear(medico);
+        try {
+            Agenda agenda = citasPorMedico.get(medico);
+            if (agenda != null) {
+                return List.copyOf(agenda.getCitas());
+            } else {
+                return Collections.emptyList();
+            }
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+    }
+
+    @Override
+    public List<Cita> getCitasPorSala(Sala sala) {
+        int[] franjas = bloqueos.bloquear(sala);
+        try {
+            Agenda agenda = citasPorSala.get(sala);
+            if (agenda != null) {
+                return List.copyOf(agenda.getCitas());
+            } else {
+                return Collections.emptyList();
+            }
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+    }
+
+    @Override
+    public List<LocalDateTime> getIniciosPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta) {
+        int[] franjas = bloqueos.bloquear(medico);
+        try {
+            Agenda agenda = citasPorMedico.get(medico);
+            return agenda != null ? agenda.iniciosEntre(desde, hasta) : Collections.emptyList();
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+    }
+
+    @Override
+    public List<LocalDateTime> getIniciosPorSala(Sala sala, LocalDateTime desde, LocalDateTime hasta) {
+        int[] franjas = bloqueos.bloquear(sala);
+        try {
+            Agenda agenda = citasPorSala.get(sala);
+            return agenda != null ? agenda.iniciosEntre(desde, hasta) : Collections.emptyList();
+        } finally {
+            bloqueos.liberar(franjas);
+        }
+    }
+
+    @Override
+    public void guardarCitas(String filename) throws IOException {
+        long inicio = System.nanoTime();
+        List<Cita> aGuardar = getCitas();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename, StandardCharsets.UTF_8))) {
+            for (Cita cita : aGuardar) {
+                writer.println(cita.toCsvString());
+            }
+        } finally {
+            metricas.guardar.registrarDesde(inicio);
+        }
+        metricas.guardadas.add(aGuardar.size());
+    }
+
+    // Como guardarCitas, pero si el archivo es la base del guardado anterior solo escribe un segmento delta con
+    // las citas nuevas o modificadas (programarCita, programarCitas, cambiarEstado, cambiarObservaciones): el
+    // costo es proporcional a los cambios. Cada SEGMENTOS_PARA_COMPACTAR segmentos se mezclan con la base en
+    // segundo plano. Con otro archivo, o después de cargar desde otro lado, se reescribe la base completa.
+    public void guardarIncremental(String filename) throws IOException {
+        long inicio = System.nanoTime();
+        GuardadoIncremental actual = guardado;
+        Path base = GuardadoIncremental.ruta(Path.of(filename));
+        if (actual != null && actual.getBase().equals(base) && Files.exists(base)) {
+            // Se saca cada cita del conjunto antes de escribirla: si se modifica mientras tanto vuelve a
+            // entrar y sale en el próximo segmento
+            List<Cita> cambios = new ArrayList<>();
+            for (Cita cita : modificadas) {
+                if (modificadas.remove(cita)) {
+                    cambios.add(cita);
+                }
+            }
+            try {
+                actual.guardarSegmento(cambios);
+            } catch (IOException | RuntimeException e) {
+                // El segmento no se escribió: los cambios vuelven al conjunto para el próximo guardado
+                modificadas.addAll(cambios);
+                throw e;
+            }
+            metricas.guardadas.add(cambios.size());
+            metricas.guardarIncremental.registrarDesde(inicio);
+            return;
+        }
+
+        GuardadoIncremental nuevo = GuardadoIncremental.adquirir(base, metricas.compactarGuardado,
+                metricas.compactacionesFallidas);
+        GuardadoIncremental anterior;
+        List<Cita> todas;
+        // Con todas las franjas tomadas, cada cambio queda en la copia o en el conjunto de modificadas
+        bloqueos.bloquearTodas();
+        try {
+            anterior = guardado;
+            guardado = nuevo;
+            modificadas.clear();
+            todas = getCitas();
+        } finally {
+            bloqueos.liberarTodas();
+        }
+        if (anterior != null) {
+            anterior.liberar();
+        }
+        try {
+            nuevo.guardarCompleto(todas);
+        } catch (IOException | RuntimeException e) {
+            // Sin la base escrita, un guardado por segmentos sobre la base anterior perdería lo ya descartado de
+            // modificadas: el próximo vuelve a ser completo
+            boolean soltar;
+            bloqueos.bloquearTodas();
+            try {
+                soltar = guardado == nuevo;
+                if (soltar) {
+                    guardado = null;
+                }
+            } finally {
+                bloqueos.liberarTodas();
+            }
+            if (soltar) {
+                nuevo.liberar();
+            }
+            throw e;
+        }
+        metricas.guardadas.add(todas.size());
+        metricas.guardar.registrarDesde(inicio);
+    }
+
+    // Carga la base más sus segmentos (se compactan primero) y la deja asociada para guardarIncremental
+    public void cargarIncremental(String filename, Map<String, Paciente> pacientes,
+                                  Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, ClassNotFoundException, CitaException {
+        GuardadoIncremental nuevo = GuardadoIncremental.adquirir(Path.of(filename), metricas.compactarGuardado,
+                metricas.compactacionesFallidas);
+        try {
+            nuevo.compactar();
+        } catch (IOException | RuntimeException e) {
+            nuevo.liberar();
+            throw e;
+        }
+        cargarCsv(filename, pacientes, medicos, salas, nuevo);
+    }
+
+    // Deja de registrar cambios para guardarIncremental y suelta la base (si nadie más la usa, su hilo de
+    // compactación termina). El próximo guardarIncremental vuelve a escribir la base completa.
+    public void cerrarIncremental() {
+        GuardadoIncremental actual;
+        bloqueos.bloquearTodas();
+        try {
+            actual = guardado;
+            guardado = null;
+            modificadas.clear();
+        } finally {
+            bloqueos.liberarTodas();
+        }
+        if (actual != null) {
+            actual.liberar();
+        }
+    }
+
+    // Copia: la lista interna sigue creciendo mientras otros hilos reservan
+    public List<Cita> getCitas() {
+        synchronized (citas) {
+            if (!citas.isEmpty()) {
+                return List.copyOf(citas);
+            } else {
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    @Override
+    public void cargarCitas(String filename, Map<String, Paciente> pacientes,
+                            Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, ClassNotFoundException, CitaException {
+        cargarCsv(filename, pacientes, medicos, salas, null);
+    }
+
+    private void cargarCsv(String filename, Map<String, Paciente> pacientes, Map<String, Medico> medicos,
+                           Map<String, Sala> salas, GuardadoIncremental asociado)
+            throws IOException, CitaException {
+        // El parseo (paralelo) se hace sin bloquear; si el archivo tiene errores el estado actual no se toca
+        long inicio = System.nanoTime();
+        try {
+            CargadorCsvCitas cargador = new CargadorCsvCitas(pacientes, medicos, salas, DURACION_CITA,
+                    ForkJoinPool.commonPool(), CargadorCsvCitas.TAMANO_BLOQUE);
+            IndicesCitas resultado;
+            try {
+                resultado = cargador.cargar(Path.of(filename));
+            } catch (IOException | CitaException | RuntimeException e) {
+                // El estado no cambia y la base no llega a asociarse
+                if (asociado != null) {
+                    asociado.liberar();
+                }
+                throw e;
+            }
+            reemplazarEstado(resultado, asociado);
+            metricas.cargadas.add(resultado.citas.size());
+        } finally {
+            metricas.cargar.registrarDesde(inicio);
+        }
+    }
+
+    // Snapshot binario (ver SnapshotCitas): varias veces más chico que el CSV y mucho más rápido de leer
+    // El archivo anterior se reemplaza solo si se escribió completo.
+    public void guardarSnapshot(String filename) throws IOException {
+        List<Cita> citas = getCitas();
+        // programarCita acepta costos con más de 2 decimales y el snapshot no: se rechazan antes de escribir nada
+        long[] centavos = new long[citas.size()];
+        for (int i = 0; i < centavos.length; i++) {
+            centavos[i] = SnapshotCitas.aCentavos(citas.get(i).getCosto());
+        }
+        try (SnapshotCitas.Escritor escritor = new SnapshotCitas.Escritor(Path.of(filename))) {
+            for (int i = 0; i < centavos.length; i++) {
+                Cita cita = citas.get(i);
+                escritor.escribir(cita.getPaciente().getDni(), cita.getMedico().getDni(), cita.getSala().getNumero(),
+                        SnapshotCitas.aMinutos(cita.getFechaHora()), centavos[i], cita.getEstado(),
+                        cita.getObservaciones());
+            }
+            escritor.terminar();
+        }
+    }
+
+    public void cargarSnapshot(String filename, Map<String, Paciente> pacientes,
+                               Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, CitaException {
+        List<Cita> leidas;
+        try (SnapshotCitas.Lector lector = new SnapshotCitas.Lector(Path.of(filename))) {
+            // Cada clave del diccionario se resuelve una sola vez; los registros solo traen índices
+            Paciente[] porIndicePaciente = resolver(lector.getPacientes(), pacientes, "Paciente no encontrado: ", Paciente[]::new);
+            Medico[] porIndiceMedico = resolver(lector.getMedicos(), medicos, "Médico no encontrado: ", Medico[]::new);
+            Sala[] porIndiceSala = resolver(lector.getSalas(), salas, "Sala no encontrada: ", Sala[]::new);
+
+            leidas = new ArrayList<>((int) Math.min(lector.getCantidad(), Integer.MAX_VALUE));
+            List<Cita> destino = leidas;
+            long[] ultimoCentavos = {Long.MIN_VALUE};
+            BigDecimal[] ultimoCosto = {null};
+            lector.recorrer((paciente, medico, sala, minutos, centavos, estado, observaciones) -> {
+                // Los costos se repiten mucho: se reutiliza el último BigDecimal si coincide
+                if (centavos != ultimoCentavos[0]) {
+                    ultimoCentavos[0] = centavos;
+                    ultimoCosto[0] = SnapshotCitas.deCentavos(centavos);
+                }
+                destino.add(Cita.builder()
+                        .paciente(porIndicePaciente[paciente])
+                        .medico(porIndiceMedico[medico])
+                        .sala(porIndiceSala[sala])
+                        .fechaHora(SnapshotCitas.deMinutos(minutos))
+                        .costo(ultimoCosto[0])
+                        .estado(estado)
+                        .observaciones(observaciones)
+                        .build());
+            });
+        }
+        reemplazarEstado(IndicesCitas.construir(leidas, DURACION_CITA, ForkJoinPool.commonPool()), null);
+    }
+
+    private static <T> T[] resolver(String[] claves, Map<String, T> entidades, String mensaje,
+                                    IntFunction<T[]> nuevoArreglo) throws CitaException {
+        T[] resueltas = nuevoArreglo.apply(claves.length);
+        for (int i = 0; i < claves.length; i++) {
+            resueltas[i] = entidades.get(claves[i]);
+            if (resueltas[i] == null) {
+                throw new CitaException(mensaje + claves[i]);
+            }
+        }
+        return resueltas;
+    }
+
+    // asociado: base de guardarIncremental que coincide con lo cargado, o null. Queda a cargo de este
+    // manager (se libera al cambiar de base o en cerrarIncremental); la base anterior se libera acá.
+    private void reemplazarEstado(IndicesCitas resultado, GuardadoIncremental asociado) throws IOException {
+        GuardadoIncremental anterior = null;
+        // La carga reemplaza todo el estado: se excluye a cualquier reserva concurrente
+        bloqueos.bloquearTodas();
+        try {
+            synchronized (citas) {
+                citas.clear();
+                citasPorPaciente.clear();
+                citasPorMedico.clear();
+                citasPorSala.clear();
+
+                citas.addAll(resultado.citas);
+                for (Cita cita : resultado.citas) {
+                    cita.setObservador(observador);
+                }
+                citasPorPaciente.putAll(resultado.citasPorPaciente);
+                citasPorMedico.putAll(resultado.citasPorMedico);
+                citasPorSala.putAll(resultado.citasPorSala);
+            }
+            // Salvo que se haya cargado de ella, el estado ya no coincide con la base del guardado incremental
+            anterior = guardado;
+            guardado = asociado;
+            modificadas.clear();
+            // Con el diario abierto, lo anterior a la carga ya no se debe reproducir
+            if (diario != null) {
+                compactarBloqueado(diario);
+            }
+            // El estado nuevo ya no depende de lo que el diario no llegó a escribir
+            falloDiario = null;
+        } finally {
+            bloqueos.liberarTodas();
+            // Fuera de las franjas: liberar puede esperar a que termine una compactación
+            if (anterior != null) {
+                anterior.liberar();
+            }
+        }
+    }
+
+    // Recupera el estado a partir del último snapshot (si existe) más los cambios del diario, y deja el
+    // diario abierto: desde ahí programarCita, programarCitas, cambiarEstado y cambiarObservaciones quedan
+    // registrados con la durabilidad pedida. Al terminar de reproducir se compacta (snapshot nuevo y diario
+    // vacío), así la próxima recuperación no vuelve a recorrer los mismos cambios.
+    public void abrirDiario(String snapshot, String archivoDiario, DiarioCitas.Durabilidad durabilidad,
+                            Map<String, Paciente> pacientes, Map<String, Medico> medicos, Map<String, Sala> salas)
+            throws IOException, CitaException {
+        if (diario != null) {
+            throw new IllegalStateException("El diario ya está abierto");
+        }
+        long inicio = System.nanoTime();
+        if (Files.exists(Path.of(snapshot))) {
+            cargarSnapshot(snapshot, pacientes, medicos, salas);
+        }
+        bloqueos.bloquearTodas();
+        try {
+            long reproducidos = DiarioCitas.reproducir(Path.of(archivoDiario),
+                    new ReproduccionDiario(pacientes, medicos, salas));
+            metricas.cargadas.add(reproducidos);
+            DiarioCitas abierto = new DiarioCitas(Path.of(archivoDiario), durabilidad);
+            snapshotDiario = Path.of(snapshot);
+            diario = abierto;
+            compactarBloqueado(abierto);
+        } finally {
+            bloqueos.liberarTodas();
+            metricas.cargar.registrarDesde(inicio);
+        }
+    }
+
+    // Guarda un snapshot con el estado actual y vacía el diario. Las reservas esperan mientras se escribe.
+    public void compactar() throws IOException {
+        DiarioCitas actual = diario;
+        if (actual == null) {
+            throw new IllegalStateException("No hay un diario abierto");
+        }
+        if (falloDiario != null) {
+            // El snapshot haría durables cambios que ya se informaron como rechazados
+            throw new IllegalStateException("El diario de citas falló; hay que recuperarlo antes de compactar",
+                    falloDiario);
+        }
+        bloqueos.bloquearTodas();
+        try {
+            compactarBloqueado(actual);
+        } finally {
+            bloqueos.liberarTodas();
+        }
+    }
+
+    // guardarSnapshot escribe aparte y renombra: si el proceso cae a mitad de camino queda el anterior, y
+    // si cae entre el renombre y el vaciado, reproducir el diario sobre el nuevo snapshot da el mismo estado
+    private void compactarBloqueado(DiarioCitas actual) throws IOException {
+        guardarSnapshot(snapshotDiario.toString());
+        actual.reiniciar();
+    }
+
+    // Sincroniza lo pendiente y cierra el diario; los cambios siguientes ya no se registran
+    public void cerrarDiario() throws IOException {
+        DiarioCitas actual = diario;
+        if (actual != null) {
+            diario = null;
+            actual.close();
+        }
+    }
+
+    // Aplica los registros del diario sobre el estado cargado (sin chequear superposiciones: el diario solo
+    // tiene cambios que ya se aceptaron). Un alta que ya está en el snapshot se saltea; un cambio sobre una cita
+    // que no está (p. ej. de una cita ajena al manager) se descarta y se cuenta en diarioDescartados.
+    private final class ReproduccionDiario implements DiarioCitas.Visitante {
+        private final Map<String, Paciente> pacientes;
+        private final Map<String, Medico> medicos;
+        private final Map<String, Sala> salas;
+
+        ReproduccionDiario(Map<String, Paciente> pacientes, Map<String, Medico> medicos, Map<String, Sala> salas) {
+            this.pacientes = pacientes;
+            this.medicos = medicos;
+            this.salas = salas;
+        }
+
+        @Override
+        public void alta(String dniMedico, long minutos, String dniPaciente, String numeroSala, long centavos,
+                         EstadoCita estado, String observaciones) throws CitaException {
+            Medico medico = buscarEntidad(medicos, dniMedico, "Médico no encontrado: ");
+            LocalDateTime fechaHora = SnapshotCitas.deMinutos(minutos);
+            if (buscarCita(medico, fechaHora) != null) {
+                return;
+            }
+            Cita cita = Cita.builder()
+                    .paciente(buscarEntidad(pacientes, dniPaciente, "Paciente no encontrado: "))
+                    .medico(medico)
+                    .sala(buscarEntidad(salas, numeroSala, "Sala no encontrada: "))
+                    .fechaHora(fechaHora)
+                    .costo(SnapshotCitas.deCentavos(centavos))
+                    .estado(estado)
+                    .observaciones(observaciones)
+                    .build();
+            agregarAIndices(cita);
+            marcarModificada(cita);
+        }
+
+        @Override
+        public void estado(String dniMedico, long minutos, EstadoCita estado) throws CitaException {
+            // El diario todavía no está abierto: el observador solo la marca como modificada
+            Cita cita = citaDelDiario(dniMedico, minutos);
+            if (cita != null) {
+                cita.setEstado(estado);
+            }
+        }
+
+        @Override
+        public void observaciones(String dniMedico, long minutos, String observaciones) throws CitaException {
+            Cita cita = citaDelDiario(dniMedico, minutos);
+            if (cita != null) {
+                cita.setObservaciones(observaciones);
+            }
+        }
+
+        private Cita citaDelDiario(String dniMedico, long minutos) throws CitaException {
+            Cita cita = buscarCita(buscarEntidad(medicos, dniMedico, "Médico no encontrado: "),
+                    SnapshotCitas.deMinutos(minutos));
+            if (cita == null) {
+                metricas.diarioDescartados.increment();
+            }
+            return cita;
+        }
+
+        private <T> T buscarEntidad(Map<String, T> entidades, String clave, String mensaje) throws CitaException {
+            T entidad = entidades.get(clave);
+            if (entidad == null) {
+                throw new CitaException(mensaje + clave);
+            }
+            return entidad;
+        }
+    }
 }
\ No newline at end of file
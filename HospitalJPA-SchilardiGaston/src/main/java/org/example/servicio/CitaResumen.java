@@ -0,0 +1,17 @@
+package org.example.servicio;
+
+import org.example.entidades.EstadoCita;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Fila de solo lectura para listados de citas (proyección JPQL, no es una entidad gestionada)
+public record CitaResumen(Long id,
+                          LocalDateTime fechaHora,
+                          String pacienteApellido,
+                          String pacienteNombre,
+                          String medicoApellido,
+                          String sala,
+                          EstadoCita estado,
+                          BigDecimal costo) {
+}
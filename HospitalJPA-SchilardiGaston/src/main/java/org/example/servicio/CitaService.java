@@ -8,6 +8,7 @@ import org.example.entidades.Sala;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -21,9 +22,31 @@ interface CitaService {
 
     List<Cita> getCitasPorSala(Sala sala);
 
+    // Horas de inicio, ordenadas, de las citas que empiezan en [desde, hasta). Alcanzan para conocer la
+    // ocupación; las implementaciones con índice por fecha las resuelven sin recorrer todo el historial
+    default List<LocalDateTime> getIniciosPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta) {
+        return iniciosEntre(getCitasPorMedico(medico), desde, hasta);
+    }
+
+    default List<LocalDateTime> getIniciosPorSala(Sala sala, LocalDateTime desde, LocalDateTime hasta) {
+        return iniciosEntre(getCitasPorSala(sala), desde, hasta);
+    }
+
     void guardarCitas(String filename) throws IOException;
 
     void cargarCitas(String filename, Map<String, Paciente> pacientes,
                      Map<String, Medico> medicos, Map<String, Sala> salas)
             throws IOException, ClassNotFoundException, CitaException;
+
+    private static List<LocalDateTime> iniciosEntre(List<Cita> citas, LocalDateTime desde, LocalDateTime hasta) {
+        List<LocalDateTime> inicios = new ArrayList<>();
+        for (Cita cita : citas) {
+            LocalDateTime inicio = cita.getFechaHora();
+            if (!inicio.isBefore(desde) && inicio.isBefore(hasta)) {
+                inicios.add(inicio);
+            }
+        }
+        inicios.sort(null);
+        return inicios;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package org.example.servicio;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Posición de la última cita entregada: la página siguiente empieza estrictamente después de (fechaHora, id)
+public record CursorCita(LocalDateTime fechaHora, long id) {
+
+    public CursorCita {
+        Objects.requireNonNull(fechaHora, "La fecha y hora del cursor no puede ser nula");
+    }
+}
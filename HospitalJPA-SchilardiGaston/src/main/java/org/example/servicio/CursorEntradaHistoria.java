@@ -0,0 +1,12 @@
+package org.example.servicio;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Posición de la última entrada entregada: la página siguiente sigue con las anteriores a (fecha, id)
+public record CursorEntradaHistoria(LocalDateTime fecha, long id) {
+
+    public CursorEntradaHistoria {
+        Objects.requireNonNull(fecha, "La fecha del cursor no puede ser nula");
+    }
+}
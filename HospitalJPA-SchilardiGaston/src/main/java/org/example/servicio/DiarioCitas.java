@@ -0,0 +1,450 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.metricas.Histograma;
+import org.example.metricas.RegistroMetricas;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// Diario (write-ahead log) de los cambios de CitaManager entre dos snapshots: altas de citas y cambios de
+// estado u observaciones. Solo se agrega al final; al recuperar se reproduce sobre el último snapshot.
+//
+//   cabecera (8 bytes): magia "HDIA" | versión (short) | reservado (short)
+//   registros: largo del contenido (int) | CRC32 del contenido (int) | contenido
+//   contenido: tipo (byte) | DNI del médico | minutos desde epoch (long) | según el tipo:
+//              ALTA: DNI del paciente | número de sala | costo en centavos (long) | estado (byte) | observaciones
+//              ESTADO: estado (byte)
+//              OBSERVACIONES: observaciones
+//
+// Una cita se identifica por médico e inicio (un médico no puede tener dos citas que empiecen a la vez).
+// Como en SnapshotCitas, se pierden los segundos de fechaHora.
+//
+// Group commit: los registros se agregan a un buffer en memoria y el primer hilo que necesita durabilidad
+// escribe y sincroniza todo lo acumulado con un solo fsync; los que llegan mientras tanto esperan y salen
+// juntos en el siguiente. Con muchos hilos reservando, un fsync cubre muchas reservas.
+public final class DiarioCitas implements Closeable {
+
+    public enum Durabilidad {
+        // Cada cambio vuelve cuando está en disco (fsync agrupado con los cambios concurrentes)
+        SINCRONA,
+        // Un hilo sincroniza cada 'intervalo': un corte de luz puede perder los cambios del último intervalo
+        PERIODICA,
+        // Cada cambio se escribe al sistema operativo sin fsync: sobrevive a que muera el proceso, no a un corte
+        SIN_FSYNC
+    }
+
+    static final int MAGIA = 0x48444941;
+    static final short VERSION = 1;
+    static final int TAMANO_CABECERA = 8;
+    // Con durabilidad PERIODICA, si se acumula más que esto el hilo que agrega escribe sin esperar al intervalo
+    private static final int MAXIMO_PENDIENTE = 1024 * 1024;
+    private static final int MAXIMO_REGISTRO = 16 * 1024 * 1024;
+
+    private static final byte ALTA = 1;
+    private static final byte ESTADO = 2;
+    private static final byte OBSERVACIONES = 3;
+    private static final EstadoCita[] ESTADOS = EstadoCita.values();
+
+    private final Path archivo;
+    private final FileChannel canal;
+    private final Durabilidad durabilidad;
+    private final ScheduledExecutorService sincronizador;
+
+    // Estado del group commit, protegido por 'this'
+    private ByteBuffer pendiente = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer libre = ByteBuffer.allocate(64 * 1024);
+    private long agregados;
+    private long escritos;
+    private long sincronizados;
+    private boolean escribiendo;
+    private IOException fallo;
+    private boolean cerrado;
+
+    private final Histograma sincronizacion;
+    private final LongAdder eventos;
+    private final LongAdder sincronizaciones;
+
+    // Abre (o crea) el diario para agregar al final. Si tenía registros, primero hay que reproducirlos
+    // con reproducir(), que además descarta una cola incompleta.
+    public DiarioCitas(Path archivo, Durabilidad durabilidad, Duration intervalo, RegistroMetricas registro)
+            throws IOException {
+        this.archivo = archivo;
+        this.durabilidad = durabilidad;
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (canal.size() == 0) {
+                escribirCabecera();
+            } else {
+                leerCabecera(canal, archivo);
+            }
+            canal.position(canal.size());
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        this.sincronizacion = registro.histograma("diario.sincronizar");
+        this.eventos = registro.contador("diario.eventos");
+        this.sincronizaciones = registro.contador("diario.sincronizaciones");
+        if (durabilidad == Durabilidad.PERIODICA) {
+            long nanos = intervalo.toNanos();
+            sincronizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "diario-citas");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            sincronizador.scheduleWithFixedDelay(this::sincronizarPeriodico, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else {
+            sincronizador = null;
+        }
+    }
+
+    public DiarioCitas(Path archivo, Durabilidad durabilidad) throws IOException {
+        this(archivo, durabilidad, Duration.ofMillis(100), RegistroMetricas.global());
+    }
+
+    public Durabilidad getDurabilidad() {
+        return durabilidad;
+    }
+
+    // Los métodos de registro devuelven el número de evento para pasarlo a esperar(). Se llaman bajo la
+    // franja del médico, así el orden del diario coincide con el orden en que se aplicaron los cambios.
+    long registrarAlta(Cita cita) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            escribirClave(datos, ALTA, cita);
+            datos.writeUTF(cita.getPaciente().getDni());
+            datos.writeUTF(cita.getSala().getNumero());
+            datos.writeLong(SnapshotCitas.aCentavos(cita.getCosto()));
+            datos.writeByte(cita.getEstado().ordinal());
+            escribirCadena(datos, cita.getObservaciones());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return agregar(bytes.toByteArray());
+    }
+
+    long registrarEstado(Cita cita) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            escribirClave(datos, ESTADO, cita);
+            datos.writeByte(cita.getEstado().ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return agregar(bytes.toByteArray());
+    }
+
+    long registrarObservaciones(Cita cita) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream datos = new DataOutputStream(bytes)) {
+            escribirClave(datos, OBSERVACIONES, cita);
+            escribirCadena(datos, cita.getObservaciones());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return agregar(bytes.toByteArray());
+    }
+
+    private static void escribirClave(DataOutputStream datos, byte tipo, Cita cita) throws IOException {
+        datos.writeByte(tipo);
+        datos.writeUTF(cita.getMedico().getDni());
+        datos.writeLong(SnapshotCitas.aMinutos(cita.getFechaHora()));
+    }
+
+    // writeUTF corta en 64 KB; las observaciones van con largo int
+    private static void escribirCadena(DataOutputStream datos, String valor) throws IOException {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        datos.writeInt(bytes.length);
+        datos.write(bytes);
+    }
+
+    private synchronized long agregar(byte[] contenido) {
+        if (cerrado) {
+            throw new IllegalStateException("El diario está cerrado");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+        if (pendiente.remaining() < contenido.length + 8) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendiente.capacity() * 2, pendiente.position() + contenido.length + 8));
+            pendiente.flip();
+            mayor.put(pendiente);
+            pendiente = mayor;
+        }
+        pendiente.putInt(contenido.length).putInt((int) crc.getValue()).put(contenido);
+        eventos.increment();
+        return ++agregados;
+    }
+
+    // Vuelve cuando el evento está tan durable como pide la política: con SINCRONA, en disco; con SIN_FSYNC,
+    // escrito al sistema operativo; con PERIODICA no espera (salvo que lo pendiente supere MAXIMO_PENDIENTE)
+    void esperar(long evento) throws IOException {
+        if (durabilidad == Durabilidad.PERIODICA) {
+            synchronized (this) {
+                if (fallo != null) {
+                    throw new IOException("El diario quedó inutilizable tras un error de escritura", fallo);
+                }
+                if (pendiente.position() < MAXIMO_PENDIENTE) {
+                    return;
+                }
+            }
+        }
+        escribirHasta(evento, durabilidad == Durabilidad.SINCRONA);
+    }
+
+    // Fuerza a disco todo lo agregado hasta ahora, cualquiera sea la política
+    public void sincronizar() throws IOException {
+        long hasta;
+        synchronized (this) {
+            hasta = agregados;
+        }
+        escribirHasta(hasta, true);
+    }
+
+    private void escribirHasta(long evento, boolean fsync) throws IOException {
+        while (true) {
+            ByteBuffer lote;
+            long hasta;
+            synchronized (this) {
+                // Si otro hilo está escribiendo se espera a que termine: su fsync puede cubrir este evento,
+                // y si no, el próximo lote incluye todo lo agregado mientras tanto
+                while (escribiendo && fallo == null) {
+                    esperarMonitor();
+                }
+                if (fallo != null) {
+                    throw new IOException("El diario quedó inutilizable tras un error de escritura", fallo);
+                }
+                if ((fsync ? sincronizados : escritos) >= evento) {
+                    return;
+                }
+                escribiendo = true;
+                lote = pendiente;
+                pendiente = libre;
+                hasta = agregados;
+            }
+
+            long inicio = System.nanoTime();
+            IOException error = null;
+            try {
+                lote.flip();
+                while (lote.hasRemaining()) {
+                    canal.write(lote);
+                }
+                if (fsync) {
+                    canal.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (this) {
+                lote.clear();
+                libre = lote;
+                escribiendo = false;
+                if (error != null) {
+                    fallo = error;
+                } else {
+                    escritos = hasta;
+                    if (fsync) {
+                        sincronizados = hasta;
+                    }
+                    sincronizacion.registrarDesde(inicio);
+                    sincronizaciones.increment();
+                }
+                notifyAll();
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    private void esperarMonitor() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando al diario", e);
+        }
+    }
+
+    private void sincronizarPeriodico() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            // Queda registrado en 'fallo': el próximo esperar() o sincronizar() lo propaga
+        }
+    }
+
+    // Descarta todo el contenido (lo pendiente incluido) después de guardar un snapshot que ya lo refleja.
+    // Quien llama debe excluir a los que agregan registros (CitaManager toma todas las franjas).
+    synchronized void reiniciar() throws IOException {
+        while (escribiendo) {
+            esperarMonitor();
+        }
+        pendiente.clear();
+        canal.truncate(TAMANO_CABECERA);
+        canal.position(TAMANO_CABECERA);
+        canal.force(false);
+        // Los hilos que esperaban su evento ya lo tienen en el snapshot
+        escritos = agregados;
+        sincronizados = agregados;
+        fallo = null;
+        notifyAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sincronizador != null) {
+            sincronizador.shutdown();
+            try {
+                sincronizador.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            sincronizar();
+        } finally {
+            synchronized (this) {
+                cerrado = true;
+            }
+            canal.close();
+        }
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    private void escribirCabecera() throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).putInt(MAGIA).putShort(VERSION).putShort((short) 0);
+        cabecera.flip();
+        while (cabecera.hasRemaining()) {
+            canal.write(cabecera, cabecera.position());
+        }
+        canal.force(false);
+    }
+
+    private static void leerCabecera(FileChannel canal, Path archivo) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+        while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) > 0) {
+            // lectura completa de la cabecera
+        }
+        cabecera.flip();
+        if (cabecera.remaining() < TAMANO_CABECERA || cabecera.getInt() != MAGIA) {
+            throw new IOException("El archivo no es un diario de citas: " + archivo);
+        }
+        short version = cabecera.getShort();
+        if (version != VERSION) {
+            throw new IOException("Versión de diario no soportada: " + version);
+        }
+    }
+
+    interface Visitante {
+        void alta(String dniMedico, long minutos, String dniPaciente, String numeroSala, long centavos,
+                  EstadoCita estado, String observaciones) throws CitaException;
+
+        void estado(String dniMedico, long minutos, EstadoCita estado) throws CitaException;
+
+        void observaciones(String dniMedico, long minutos, String observaciones) throws CitaException;
+    }
+
+    // Recorre los registros válidos en orden. Un registro incompleto o con CRC inválido marca el final
+    // (escritura cortada por una caída): se trunca el archivo ahí para seguir agregando detrás de lo válido.
+    // Devuelve la cantidad de registros reproducidos; si el archivo no existe no hace nada.
+    static long reproducir(Path archivo, Visitante visitante) throws IOException, CitaException {
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        long leidos = 0;
+        long valido;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (canal.size() == 0) {
+                return 0;
+            }
+            leerCabecera(canal, archivo);
+            canal.position(TAMANO_CABECERA);
+            valido = TAMANO_CABECERA;
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal), 1 << 16));
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] contenido;
+                try {
+                    int largo = entrada.readInt();
+                    int esperado = entrada.readInt();
+                    if (largo <= 0 || largo > MAXIMO_REGISTRO) {
+                        break;
+                    }
+                    contenido = new byte[largo];
+                    entrada.readFully(contenido);
+                    crc.reset();
+                    crc.update(contenido);
+                    if ((int) crc.getValue() != esperado) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                aplicar(contenido, visitante);
+                valido += 8 + contenido.length;
+                leidos++;
+            }
+            if (valido < canal.size()) {
+                canal.truncate(valido);
+                canal.force(false);
+            }
+        }
+        return leidos;
+    }
+
+    private static void aplicar(byte[] contenido, Visitante visitante) throws IOException, CitaException {
+        DataInputStream datos = new DataInputStream(new ByteArrayInputStream(contenido));
+        byte tipo = datos.readByte();
+        String dniMedico = datos.readUTF();
+        long minutos = datos.readLong();
+        switch (tipo) {
+            case ALTA -> visitante.alta(dniMedico, minutos, datos.readUTF(), datos.readUTF(), datos.readLong(),
+                    leerEstado(datos), leerCadena(datos));
+            case ESTADO -> visitante.estado(dniMedico, minutos, leerEstado(datos));
+            case OBSERVACIONES -> visitante.observaciones(dniMedico, minutos, leerCadena(datos));
+            default -> throw new IOException("Tipo de registro desconocido en el diario: " + tipo);
+        }
+    }
+
+    private static EstadoCita leerEstado(DataInputStream datos) throws IOException {
+        int estado = datos.readByte();
+        if (estado < 0 || estado >= ESTADOS.length) {
+            throw new IOException("Estado inválido en el diario: " + estado);
+        }
+        return ESTADOS[estado];
+    }
+
+    private static String leerCadena(DataInputStream datos) throws IOException {
+        byte[] bytes = new byte[datos.readInt()];
+        datos.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
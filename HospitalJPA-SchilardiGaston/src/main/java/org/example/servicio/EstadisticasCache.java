@@ -0,0 +1,60 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+// Aciertos y fallos de la caché de segundo nivel y de la caché de consultas
+// (requiere hibernate.generate_statistics=true, ver persistence.xml)
+public class EstadisticasCache {
+
+    private final Statistics estadisticas;
+
+    public EstadisticasCache(EntityManagerFactory emf) {
+        this.estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public long getAciertos() {
+        return estadisticas.getSecondLevelCacheHitCount();
+    }
+
+    public long getFallos() {
+        return estadisticas.getSecondLevelCacheMissCount();
+    }
+
+    public long getAciertosConsultas() {
+        return estadisticas.getQueryCacheHitCount();
+    }
+
+    public long getFallosConsultas() {
+        return estadisticas.getQueryCacheMissCount();
+    }
+
+    public double getTasaAciertos() {
+        long total = getAciertos() + getFallos();
+        return total == 0 ? 0 : (double) getAciertos() / total;
+    }
+
+    public CacheRegionStatistics getRegion(String region) {
+        return estadisticas.getDomainDataRegionStatistics(region);
+    }
+
+    public String resumen() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Entidades/colecciones      : %d aciertos, %d fallos (%.0f%%)%n",
+                getAciertos(), getFallos(), getTasaAciertos() * 100));
+        sb.append(String.format("Consultas cacheadas        : %d aciertos, %d fallos%n",
+                getAciertosConsultas(), getFallosConsultas()));
+        // Los nombres incluyen la región de resultados de consultas una vez usada: getDomainDataRegionStatistics
+        // la rechaza con IllegalArgumentException, getCacheRegionStatistics acepta los dos tipos
+        for (String region : estadisticas.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics datos = estadisticas.getCacheRegionStatistics(region);
+            if (datos != null) {
+                sb.append(String.format("  %-34s %6d aciertos %6d fallos %6d altas%n",
+                        region, datos.getHitCount(), datos.getMissCount(), datos.getPutCount()));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.servicio;
+
+import lombok.Builder;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Sala;
+
+import java.time.LocalDateTime;
+
+// Criterios para recorrer citas con PaginadorCitas; los campos nulos no filtran.
+// El rango de fechas es abierto en ambos extremos: desde < fechaHora < hasta
+@Builder
+public record FiltroCitas(LocalDateTime desde,
+                          LocalDateTime hasta,
+                          Medico medico,
+                          Sala sala,
+                          EstadoCita estado) {
+
+    public static FiltroCitas todas() {
+        return builder().build();
+    }
+}
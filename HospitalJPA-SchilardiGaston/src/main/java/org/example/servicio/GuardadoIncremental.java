@@ -0,0 +1,300 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.metricas.Histograma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Guardado incremental del CSV de guardarCitas: un archivo base más segmentos delta (base.delta.000001, ...)
+// con las filas de las citas nuevas o modificadas desde el guardado anterior. Una cita se identifica por
+// médico y fechaHora; si aparece en varios segmentos vale la del último.
+//
+// Al acumularse segmentos, un hilo en segundo plano los mezcla con la base en una base nueva: recorre la
+// base una sola vez y solo tiene en memoria las filas de los segmentos. La base nueva se escribe aparte y
+// se renombra; si el proceso cae antes de borrar los segmentos, volver a aplicarlos da el mismo resultado.
+//
+// Hay una sola instancia por base (adquirir()): la compactación en segundo plano, la reescritura completa y
+// la numeración de segmentos de un mismo archivo quedan coordinadas aunque lo usen varios CitaManager o uno
+// que cambió de archivo y volvió. Las métricas son las de quien la creó. Cada adquirir() se corresponde con
+// un liberar(); al soltarla el último, la instancia sale del registro y su hilo de compactación se termina.
+final class GuardadoIncremental {
+
+    static final int SEGMENTOS_PARA_COMPACTAR = 8;
+    private static final String SUFIJO_DELTA = ".delta.";
+    private static final Map<Path, GuardadoIncremental> POR_BASE = new ConcurrentHashMap<>();
+
+    private final Path base;
+    private final int segmentosParaCompactar;
+    private final Histograma compactar;
+    // Compactaciones en segundo plano que fallaron (los segmentos siguen en disco y se reintenta)
+    private final LongAdder compactacionesFallidas;
+    // Excluye la compactación y la reescritura completa entre sí (las dos reemplazan la base)
+    private final ReentrantLock bloqueoBase = new ReentrantLock();
+    private final AtomicBoolean compactacionProgramada = new AtomicBoolean();
+    private final ExecutorService compactador;
+    private int ultimoSegmento;
+    // CitaManager que la tienen asociada; solo se toca dentro de POR_BASE.compute para esta base
+    private int usuarios;
+    // Último segmento ya mezclado en la base
+    private volatile int ultimoCompactado;
+
+    private GuardadoIncremental(Path base, int segmentosParaCompactar, Histograma compactar,
+                                LongAdder compactacionesFallidas) throws IOException {
+        this.base = base;
+        this.segmentosParaCompactar = segmentosParaCompactar;
+        this.compactar = compactar;
+        this.compactacionesFallidas = compactacionesFallidas;
+        List<Path> existentes = segmentos();
+        this.ultimoSegmento = existentes.isEmpty() ? 0 : numero(existentes.get(existentes.size() - 1));
+        this.ultimoCompactado = existentes.isEmpty() ? 0 : numero(existentes.get(0)) - 1;
+        // Un solo hilo que se termina solo si no hay nada que compactar
+        ThreadPoolExecutor ejecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "compactador-citas");
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        ejecutor.allowCoreThreadTimeOut(true);
+        this.compactador = ejecutor;
+    }
+
+    static GuardadoIncremental adquirir(Path base, Histograma compactar, LongAdder compactacionesFallidas)
+            throws IOException {
+        try {
+            return POR_BASE.compute(ruta(base), (ruta, existente) -> {
+                GuardadoIncremental guardado = existente;
+                if (guardado == null) {
+                    try {
+                        guardado = new GuardadoIncremental(ruta, SEGMENTOS_PARA_COMPACTAR, compactar,
+                                compactacionesFallidas);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                guardado.usuarios++;
+                return guardado;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Suelta una referencia obtenida con adquirir(). Con la última se espera a que termine una compactación en
+    // curso antes de sacarla del registro: si no, una instancia nueva para la misma base podría reescribirla
+    // mientras esta todavía la reemplaza con lo que leyó antes.
+    void liberar() {
+        POR_BASE.compute(base, (ruta, existente) -> {
+            if (existente != this) {
+                throw new IllegalStateException("Guardado incremental ya liberado: " + base);
+            }
+            if (--usuarios > 0) {
+                return this;
+            }
+            compactador.shutdown();
+            boolean interrumpido = false;
+            while (true) {
+                try {
+                    if (compactador.awaitTermination(1, TimeUnit.MINUTES)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+    }
+
+    // Instancia registrada para la base, o null si nadie la tiene adquirida
+    static GuardadoIncremental registrada(Path base) {
+        return POR_BASE.get(ruta(base));
+    }
+
+    boolean terminada() {
+        return compactador.isTerminated();
+    }
+
+    // Ruta con la que se identifica una base
+    static Path ruta(Path base) {
+        return base.toAbsolutePath().normalize();
+    }
+
+    Path getBase() {
+        return base;
+    }
+
+    // Reescribe la base con todas las citas y borra los segmentos (que quedan incluidos)
+    synchronized void guardarCompleto(Collection<Cita> citas) throws IOException {
+        bloqueoBase.lock();
+        try {
+            List<Path> anteriores = segmentos();
+            escribirYRenombrar(citas, base);
+            for (Path segmento : anteriores) {
+                Files.deleteIfExists(segmento);
+            }
+            ultimoCompactado = ultimoSegmento;
+        } finally {
+            bloqueoBase.unlock();
+        }
+    }
+
+    // Escribe un segmento con las citas dadas (no hace nada si no hay cambios)
+    synchronized void guardarSegmento(Collection<Cita> citas) throws IOException {
+        if (citas.isEmpty()) {
+            return;
+        }
+        Path segmento = base.resolveSibling(base.getFileName() + SUFIJO_DELTA + String.format("%06d", ++ultimoSegmento));
+        escribirYRenombrar(citas, segmento);
+        // Se vuelve a chequear en cada guardado: si una compactación sigue en curso, la próxima se programa después
+        if (ultimoSegmento - ultimoCompactado >= segmentosParaCompactar) {
+            programarCompactacion();
+        }
+    }
+
+    private void programarCompactacion() {
+        if (!compactacionProgramada.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactador.execute(() -> {
+                try {
+                    compactar();
+                } catch (IOException | RuntimeException e) {
+                    // Los segmentos quedan en disco: no se pierde nada y se reintenta en la próxima compactación
+                    compactacionesFallidas.increment();
+                } finally {
+                    compactacionProgramada.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Ya liberada (un guardado concurrente con el cambio de base): compacta la próxima instancia
+            compactacionProgramada.set(false);
+        }
+    }
+
+    // Mezcla en la base los segmentos existentes al empezar; los que se escriban mientras tanto quedan
+    // para la próxima vez
+    void compactar() throws IOException {
+        bloqueoBase.lock();
+        try {
+            List<Path> segmentos = segmentos();
+            if (segmentos.isEmpty()) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            Map<String, String> cambios = new LinkedHashMap<>();
+            for (Path segmento : segmentos) {
+                try (BufferedReader reader = Files.newBufferedReader(segmento, StandardCharsets.UTF_8)) {
+                    String linea;
+                    while ((linea = reader.readLine()) != null) {
+                        if (!linea.isEmpty()) {
+                            cambios.put(clave(linea), linea);
+                        }
+                    }
+                }
+            }
+
+            Path temporal = temporal(base);
+            try (BufferedWriter writer = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+                if (Files.exists(base)) {
+                    try (BufferedReader reader = Files.newBufferedReader(base, StandardCharsets.UTF_8)) {
+                        String linea;
+                        while ((linea = reader.readLine()) != null) {
+                            if (linea.isEmpty()) {
+                                continue;
+                            }
+                            String cambiada = cambios.remove(clave(linea));
+                            writer.write(cambiada != null ? cambiada : linea);
+                            writer.newLine();
+                        }
+                    }
+                }
+                // Lo que no estaba en la base son citas nuevas
+                for (String linea : cambios.values()) {
+                    writer.write(linea);
+                    writer.newLine();
+                }
+            }
+            Files.move(temporal, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Path segmento : segmentos) {
+                Files.deleteIfExists(segmento);
+            }
+            ultimoCompactado = numero(segmentos.get(segmentos.size() - 1));
+            compactar.registrarDesde(inicio);
+        } finally {
+            bloqueoBase.unlock();
+        }
+    }
+
+    // Médico y fechaHora: los campos 1 y 3 de Cita.toCsvString()
+    static String clave(String linea) throws IOException {
+        int primera = linea.indexOf(',');
+        int segunda = linea.indexOf(',', primera + 1);
+        int tercera = linea.indexOf(',', segunda + 1);
+        int cuarta = linea.indexOf(',', tercera + 1);
+        if (primera < 0 || segunda < 0 || tercera < 0 || cuarta < 0) {
+            throw new IOException("Formato de CSV inválido para Cita: " + linea);
+        }
+        return linea.substring(primera + 1, segunda) + "," + linea.substring(tercera + 1, cuarta);
+    }
+
+    // Segmentos existentes ordenados por número (los .tmp de una escritura en curso no cuentan)
+    private List<Path> segmentos() throws IOException {
+        Path directorio = base.getParent();
+        String prefijo = base.getFileName() + SUFIJO_DELTA;
+        List<Path> encontrados = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.filter(archivo -> {
+                String nombre = archivo.getFileName().toString();
+                return nombre.startsWith(prefijo) && !nombre.endsWith(".tmp");
+            }).forEach(encontrados::add);
+        }
+        encontrados.sort((a, b) -> Integer.compare(numero(a), numero(b)));
+        return encontrados;
+    }
+
+    private int numero(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Integer.parseInt(nombre.substring(nombre.lastIndexOf('.') + 1));
+    }
+
+    private static void escribirYRenombrar(Collection<Cita> citas, Path destino) throws IOException {
+        Path temporal = temporal(destino);
+        try (BufferedWriter writer = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            for (Cita cita : citas) {
+                writer.write(cita.toCsvString());
+                writer.newLine();
+            }
+        }
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path temporal(Path destino) {
+        return destino.resolveSibling(destino.getFileName() + ".tmp");
+    }
+}
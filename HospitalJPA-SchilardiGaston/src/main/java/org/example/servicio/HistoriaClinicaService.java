@@ -0,0 +1,147 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.HistoriaClinica;
+import org.example.entidades.TipoEntradaHistoria;
+import org.hibernate.Session;
+
+import java.util.List;
+import java.util.Objects;
+
+// Diagnósticos, tratamientos y alergias de una historia clínica. Agregar una entrada es un INSERT (la historia
+// puede ser una referencia de em.getReference, no se lee); las lecturas son páginas de la más nueva a la más
+// vieja con keyset sobre (fecha, id) y solo leen filas de esa historia, sin cargar el resto de la colección.
+// Si el EntityManager ya tiene una transacción activa se usa esa; si no, cada alta abre y confirma la suya.
+// Con un IndiceHistorias, cada entrada se indexa cuando se confirma su transacción.
+public class HistoriaClinicaService {
+
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 50;
+
+    private final EntityManager em;
+    private final int tamanoPagina;
+    private final IndiceHistorias indice;
+
+    public HistoriaClinicaService(EntityManager em) {
+        this(em, TAMANO_PAGINA_POR_DEFECTO, null);
+    }
+
+    public HistoriaClinicaService(EntityManager em, int tamanoPagina) {
+        this(em, tamanoPagina, null);
+    }
+
+    // indice null: las altas no se indexan
+    public HistoriaClinicaService(EntityManager em, int tamanoPagina, IndiceHistorias indice) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo");
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero");
+        }
+        this.tamanoPagina = tamanoPagina;
+        this.indice = indice;
+    }
+
+    public EntradaHistoria agregarDiagnostico(HistoriaClinica historia, String diagnostico) {
+        return agregar(historia, TipoEntradaHistoria.DIAGNOSTICO, diagnostico);
+    }
+
+    public EntradaHistoria agregarTratamiento(HistoriaClinica historia, String tratamiento) {
+        return agregar(historia, TipoEntradaHistoria.TRATAMIENTO, tratamiento);
+    }
+
+    public EntradaHistoria agregarAlergia(HistoriaClinica historia, String alergia) {
+        return agregar(historia, TipoEntradaHistoria.ALERGIA, alergia);
+    }
+
+    public EntradaHistoria agregar(HistoriaClinica historia, TipoEntradaHistoria tipo, String texto) {
+        EntradaHistoria entrada = EntradaHistoria.builder()
+                .historia(historia)
+                .tipo(tipo)
+                .texto(texto)
+                .build();
+        EntityTransaction propia = iniciarTransaccion();
+        try {
+            em.persist(entrada);
+            if (indice != null) {
+                indexarAlConfirmar(historia, entrada);
+            }
+            if (propia != null) {
+                propia.commit();
+            }
+            return entrada;
+        } finally {
+            if (propia != null && propia.isActive()) {
+                propia.rollback();
+            }
+        }
+    }
+
+    // Página de entradas de la más nueva a la más vieja; tipo null = todas, antesDe null = primera página
+    public List<EntradaHistoria> pagina(HistoriaClinica historia, TipoEntradaHistoria tipo, CursorEntradaHistoria antesDe) {
+        Objects.requireNonNull(historia, "La historia clínica no puede ser nula");
+        StringBuilder jpql = new StringBuilder("SELECT e FROM EntradaHistoria e WHERE e.historia = :historia");
+        if (tipo != null) {
+            jpql.append(" AND e.tipo = :tipo");
+        }
+        if (antesDe != null) {
+            jpql.append(" AND (e.fecha < :cursorFecha OR (e.fecha = :cursorFecha AND e.id < :cursorId))");
+        }
+        // Con tipo, empezar por las columnas de igualdad deja que H2 recorra ix_historia_entradas_tipo_fecha en
+        // orden y corte al completar la página
+        jpql.append(tipo != null ? " ORDER BY e.historia.idHC, e.tipo, e.fecha DESC, e.id DESC"
+                : " ORDER BY e.fecha DESC, e.id DESC");
+
+        TypedQuery<EntradaHistoria> query = em.createQuery(jpql.toString(), EntradaHistoria.class)
+                .setParameter("historia", historia)
+                .setMaxResults(tamanoPagina);
+        if (tipo != null) {
+            query.setParameter("tipo", tipo);
+        }
+        if (antesDe != null) {
+            query.setParameter("cursorFecha", antesDe.fecha());
+            query.setParameter("cursorId", antesDe.id());
+        }
+        return query.getResultList();
+    }
+
+    // Cursor para pedir la página que sigue a la dada (null si era la última)
+    public CursorEntradaHistoria siguiente(List<EntradaHistoria> pagina) {
+        if (pagina.size() < tamanoPagina) {
+            return null;
+        }
+        EntradaHistoria ultima = pagina.get(pagina.size() - 1);
+        return new CursorEntradaHistoria(ultima.getFecha(), ultima.getId());
+    }
+
+    // Después del commit: un rollback no deja en el índice entradas que no existen. El paciente se lee de la FK
+    // de la historia (una consulta por clave, la historia puede ser una referencia sin cargar).
+    private void indexarAlConfirmar(HistoriaClinica historia, EntradaHistoria entrada) {
+        long pacienteId = em.createQuery("SELECT h.paciente.idP FROM HistoriaClinica h WHERE h = :historia", Long.class)
+                .setParameter("historia", historia)
+                .getSingleResult();
+        em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado == Status.STATUS_COMMITTED) {
+                    indice.agregar(entrada.getId(), pacienteId, entrada.getTipo(), entrada.getTexto());
+                }
+            }
+        });
+    }
+
+    private EntityTransaction iniciarTransaccion() {
+        EntityTransaction tx = em.getTransaction();
+        if (tx.isActive()) {
+            return null;
+        }
+        tx.begin();
+        return tx;
+    }
+}
@@ -0,0 +1,606 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.TipoEntradaHistoria;
+import org.example.metricas.Histograma;
+import org.example.metricas.RegistroMetricas;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice invertido en memoria del texto de las entradas de historia clínica (EntradaHistoria) para buscar
+// pacientes por diagnóstico, tratamiento o alergia sin leer las historias. Cada entrada es un documento,
+// numerado en orden de alta; por tipo de entrada hay un diccionario ordenado término -> postings (prefijos
+// con un recorrido del TreeMap). Un posting guarda los documentos como deltas varint y, aparte, las
+// posiciones de cada documento: término y prefijo solo decodifican documentos, la frase además posiciones.
+//
+// Se mantiene al día con HistoriaClinicaService (agrega cada entrada cuando su transacción se confirma). Las
+// entradas borradas junto con su historia siguen en el índice hasta reconstruirlo. guardar/cargar lo pasan a
+// disco; reconstruir lo arma desde la base leyendo tramos de ids en paralelo.
+public final class IndiceHistorias {
+
+    static final int MAGIA = 0x48494458;
+    static final short VERSION = 1;
+    static final int TAMANO_LOTE = 10_000;
+    private static final long[] NINGUNO = new long[0];
+
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    // Un diccionario por tipo: buscar alergias no recorre diagnósticos
+    private final Map<TipoEntradaHistoria, TreeMap<String, Postings>> terminos =
+            new EnumMap<>(TipoEntradaHistoria.class);
+    // Paciente de cada documento
+    private long[] pacientes = new long[1024];
+    private int documentos;
+    // Mayor id de EntradaHistoria indexado (para saber si un índice cargado de disco quedó atrás de la base)
+    private long ultimaEntrada;
+    private final Histograma buscar;
+
+    public IndiceHistorias() {
+        for (TipoEntradaHistoria tipo : TipoEntradaHistoria.values()) {
+            terminos.put(tipo, new TreeMap<>());
+        }
+        this.buscar = RegistroMetricas.global().histograma("indiceHistorias.buscar");
+    }
+
+    public void agregar(long entradaId, long pacienteId, TipoEntradaHistoria tipo, String texto) {
+        // Posiciones por término de esta entrada, fuera del bloqueo
+        Map<String, ListaEnteros> posiciones = new LinkedHashMap<>();
+        TokenizadorClinico.tokenizar(texto, (termino, posicion) ->
+                posiciones.computeIfAbsent(termino, t -> new ListaEnteros()).agregar(posicion));
+        bloqueo.writeLock().lock();
+        try {
+            int documento = documentos++;
+            if (documento == pacientes.length) {
+                pacientes = Arrays.copyOf(pacientes, pacientes.length + (pacientes.length >> 1));
+            }
+            pacientes[documento] = pacienteId;
+            ultimaEntrada = Math.max(ultimaEntrada, entradaId);
+            TreeMap<String, Postings> diccionario = terminos.get(tipo);
+            for (Map.Entry<String, ListaEnteros> e : posiciones.entrySet()) {
+                diccionario.computeIfAbsent(e.getKey(), t -> new Postings()).agregar(documento, e.getValue());
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // Pacientes (ids ordenados, sin repetir) con alguna entrada que contiene la palabra; tipo null = cualquiera
+    public long[] buscarTermino(String palabra, TipoEntradaHistoria tipo) {
+        String termino = TokenizadorClinico.termino(palabra);
+        if (termino == null) {
+            return NINGUNO;
+        }
+        long inicio = System.nanoTime();
+        bloqueo.readLock().lock();
+        try {
+            Pacientes resultado = new Pacientes();
+            for (TreeMap<String, Postings> diccionario : diccionarios(tipo)) {
+                Postings postings = diccionario.get(termino);
+                if (postings != null) {
+                    postings.recolectar(pacientes, resultado);
+                }
+            }
+            return resultado.ordenados();
+        } finally {
+            bloqueo.readLock().unlock();
+            buscar.registrarDesde(inicio);
+        }
+    }
+
+    // Pacientes con alguna entrada que tiene una palabra que empieza con el prefijo ("penic" -> penicilina)
+    public long[] buscarPrefijo(String prefijo, TipoEntradaHistoria tipo) {
+        String normalizado = TokenizadorClinico.termino(prefijo);
+        if (normalizado == null) {
+            return NINGUNO;
+        }
+        long inicio = System.nanoTime();
+        bloqueo.readLock().lock();
+        try {
+            Pacientes resultado = new Pacientes();
+            for (TreeMap<String, Postings> diccionario : diccionarios(tipo)) {
+                for (Map.Entry<String, Postings> e : diccionario.tailMap(normalizado, true).entrySet()) {
+                    if (!e.getKey().startsWith(normalizado)) {
+                        break;
+                    }
+                    e.getValue().recolectar(pacientes, resultado);
+                }
+            }
+            return resultado.ordenados();
+        } finally {
+            bloqueo.readLock().unlock();
+            buscar.registrarDesde(inicio);
+        }
+    }
+
+    // Pacientes con alguna entrada que contiene las palabras seguidas en ese orden, dentro de la misma entrada.
+    // Las palabras vacías cuentan como posición: "alergia a la penicilina" no encuentra "alergia penicilina".
+    public long[] buscarFrase(String frase, TipoEntradaHistoria tipo) {
+        List<String> palabras = new ArrayList<>();
+        ListaEnteros desplazamientos = new ListaEnteros();
+        TokenizadorClinico.tokenizar(frase, (termino, posicion) -> {
+            palabras.add(termino);
+            desplazamientos.agregar(posicion);
+        });
+        if (palabras.isEmpty()) {
+            return NINGUNO;
+        }
+        long inicio = System.nanoTime();
+        bloqueo.readLock().lock();
+        try {
+            Pacientes resultado = new Pacientes();
+            for (TreeMap<String, Postings> diccionario : diccionarios(tipo)) {
+                buscarFrase(diccionario, palabras, desplazamientos, resultado);
+            }
+            return resultado.ordenados();
+        } finally {
+            bloqueo.readLock().unlock();
+            buscar.registrarDesde(inicio);
+        }
+    }
+
+    public int getDocumentos() {
+        bloqueo.readLock().lock();
+        try {
+            return documentos;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    public long getUltimaEntrada() {
+        bloqueo.readLock().lock();
+        try {
+            return ultimaEntrada;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    // Recorre los postings de todas las palabras a la vez (documentos en orden creciente) y en cada documento que
+    // las tiene a todas chequea las posiciones relativas
+    private void buscarFrase(TreeMap<String, Postings> diccionario, List<String> palabras,
+                             ListaEnteros desplazamientos, Pacientes resultado) {
+        Recorrido[] recorridos = new Recorrido[palabras.size()];
+        for (int i = 0; i < recorridos.length; i++) {
+            Postings postings = diccionario.get(palabras.get(i));
+            if (postings == null) {
+                return;
+            }
+            recorridos[i] = new Recorrido(postings);
+            if (!recorridos[i].siguiente()) {
+                return;
+            }
+        }
+        while (true) {
+            int objetivo = recorridos[0].documento;
+            boolean todos = true;
+            for (Recorrido recorrido : recorridos) {
+                while (recorrido.documento < objetivo) {
+                    if (!recorrido.siguiente()) {
+                        return;
+                    }
+                }
+                if (recorrido.documento > objetivo) {
+                    objetivo = recorrido.documento;
+                    todos = false;
+                }
+            }
+            if (!todos) {
+                // Avanzar el primero hasta el nuevo objetivo y volver a alinear el resto
+                while (recorridos[0].documento < objetivo) {
+                    if (!recorridos[0].siguiente()) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (frase(recorridos, desplazamientos)) {
+                resultado.agregar(pacientes[objetivo]);
+            }
+            if (!recorridos[0].siguiente()) {
+                return;
+            }
+        }
+    }
+
+    private static boolean frase(Recorrido[] recorridos, ListaEnteros desplazamientos) {
+        Recorrido primero = recorridos[0];
+        for (int p = 0; p < primero.cantidad; p++) {
+            int comienzo = primero.posicion(p) - desplazamientos.get(0);
+            boolean coincide = true;
+            for (int i = 1; i < recorridos.length && coincide; i++) {
+                coincide = recorridos[i].tienePosicion(comienzo + desplazamientos.get(i));
+            }
+            if (coincide) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<TreeMap<String, Postings>> diccionarios(TipoEntradaHistoria tipo) {
+        return tipo != null ? List.of(terminos.get(tipo)) : List.copyOf(terminos.values());
+    }
+
+    // --- Disco ---
+
+    // Escribe el índice en un archivo aparte y lo renombra: un corte a mitad de camino deja el anterior entero
+    public void guardar(Path archivo) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        bloqueo.readLock().lock();
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16))) {
+            salida.writeInt(MAGIA);
+            salida.writeShort(VERSION);
+            salida.writeInt(documentos);
+            salida.writeLong(ultimaEntrada);
+            for (int i = 0; i < documentos; i++) {
+                salida.writeLong(pacientes[i]);
+            }
+            for (TipoEntradaHistoria tipo : TipoEntradaHistoria.values()) {
+                TreeMap<String, Postings> diccionario = terminos.get(tipo);
+                salida.writeInt(diccionario.size());
+                for (Map.Entry<String, Postings> e : diccionario.entrySet()) {
+                    salida.writeUTF(e.getKey());
+                    e.getValue().escribir(salida);
+                }
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static IndiceHistorias cargar(Path archivo) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo), 1 << 16))) {
+            if (entrada.readInt() != MAGIA) {
+                throw new IOException("El archivo no es un índice de historias: " + archivo);
+            }
+            short version = entrada.readShort();
+            if (version != VERSION) {
+                throw new IOException("Versión de índice de historias no soportada: " + version);
+            }
+            IndiceHistorias indice = new IndiceHistorias();
+            indice.documentos = entrada.readInt();
+            indice.ultimaEntrada = entrada.readLong();
+            indice.pacientes = new long[Math.max(1024, indice.documentos)];
+            for (int i = 0; i < indice.documentos; i++) {
+                indice.pacientes[i] = entrada.readLong();
+            }
+            for (TipoEntradaHistoria tipo : TipoEntradaHistoria.values()) {
+                TreeMap<String, Postings> diccionario = indice.terminos.get(tipo);
+                int cantidad = entrada.readInt();
+                for (int i = 0; i < cantidad; i++) {
+                    diccionario.put(entrada.readUTF(), Postings.leer(entrada));
+                }
+            }
+            return indice;
+        }
+    }
+
+    // --- Reconstrucción desde la base ---
+
+    // Arma un índice nuevo con todas las entradas de la base. El rango de ids se parte en tramos que leen hilos
+    // distintos, cada uno con su EntityManager y en lotes por keyset; los índices parciales se concatenan en
+    // orden de id. Las entradas que se agreguen mientras tanto pueden quedar afuera: reemplazar el índice en
+    // uso por el nuevo y agregar desde entonces.
+    public static IndiceHistorias reconstruir(EntityManagerFactory emf, int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser mayor que cero");
+        }
+        Object[] rango;
+        EntityManager em = emf.createEntityManager();
+        try {
+            rango = em.createQuery("SELECT MIN(e.id), MAX(e.id) FROM EntradaHistoria e", Object[].class)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+        if (rango[0] == null) {
+            return new IndiceHistorias();
+        }
+        long minimo = (Long) rango[0] - 1;
+        long maximo = (Long) rango[1];
+        // Más tramos que hilos para repartir mejor si los ids no están parejos
+        int tramos = (int) Math.min(hilos * 4L, maximo - minimo);
+        List<Callable<IndiceHistorias>> tareas = new ArrayList<>();
+        for (int i = 0; i < tramos; i++) {
+            long desde = minimo + (maximo - minimo) * i / tramos;
+            long hasta = minimo + (maximo - minimo) * (i + 1) / tramos;
+            tareas.add(() -> leerTramo(emf, desde, hasta));
+        }
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "reconstruccion-indice-historias");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            IndiceHistorias indice = new IndiceHistorias();
+            for (Future<IndiceHistorias> parcial : ejecutor.invokeAll(tareas)) {
+                indice.anexar(parcial.get());
+            }
+            return indice;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrucción del índice de historias interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No se pudo reconstruir el índice de historias", e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    // Entradas con id en (desde, hasta], en orden de id
+    private static IndiceHistorias leerTramo(EntityManagerFactory emf, long desde, long hasta) {
+        IndiceHistorias parcial = new IndiceHistorias();
+        EntityManager em = emf.createEntityManager();
+        try {
+            long ultimo = desde;
+            while (true) {
+                List<Object[]> filas = em.createQuery(
+                                "SELECT e.id, h.paciente.idP, e.tipo, e.texto FROM EntradaHistoria e JOIN e.historia h "
+                                        + "WHERE e.id > :ultimo AND e.id <= :hasta ORDER BY e.id", Object[].class)
+                        .setParameter("ultimo", ultimo)
+                        .setParameter("hasta", hasta)
+                        .setMaxResults(TAMANO_LOTE)
+                        .getResultList();
+                for (Object[] fila : filas) {
+                    parcial.agregar((Long) fila[0], (Long) fila[1], (TipoEntradaHistoria) fila[2], (String) fila[3]);
+                }
+                if (filas.size() < TAMANO_LOTE) {
+                    return parcial;
+                }
+                ultimo = (Long) filas.get(filas.size() - 1)[0];
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    // Agrega al final los documentos de otro índice (que ya no se modifica), renumerados a continuación de estos
+    private void anexar(IndiceHistorias otro) {
+        bloqueo.writeLock().lock();
+        try {
+            int desplazamiento = documentos;
+            if (documentos + otro.documentos > pacientes.length) {
+                pacientes = Arrays.copyOf(pacientes,
+                        Math.max(documentos + otro.documentos, pacientes.length + (pacientes.length >> 1)));
+            }
+            System.arraycopy(otro.pacientes, 0, pacientes, documentos, otro.documentos);
+            documentos += otro.documentos;
+            ultimaEntrada = Math.max(ultimaEntrada, otro.ultimaEntrada);
+            for (TipoEntradaHistoria tipo : TipoEntradaHistoria.values()) {
+                TreeMap<String, Postings> diccionario = terminos.get(tipo);
+                for (Map.Entry<String, Postings> e : otro.terminos.get(tipo).entrySet()) {
+                    diccionario.computeIfAbsent(e.getKey(), t -> new Postings()).anexar(e.getValue(), desplazamiento);
+                }
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // Documentos (delta varint respecto del anterior) y, aparte, por documento la cantidad de posiciones y sus
+    // deltas. Los documentos llegan siempre en orden creciente.
+    private static final class Postings {
+        private final Bytes documentos = new Bytes();
+        private final Bytes posiciones = new Bytes();
+        private int ultimoDocumento;
+
+        void agregar(int documento, ListaEnteros posicionesDocumento) {
+            documentos.agregarVarint(documento - ultimoDocumento);
+            ultimoDocumento = documento;
+            posiciones.agregarVarint(posicionesDocumento.tamano());
+            int anterior = 0;
+            for (int i = 0; i < posicionesDocumento.tamano(); i++) {
+                posiciones.agregarVarint(posicionesDocumento.get(i) - anterior);
+                anterior = posicionesDocumento.get(i);
+            }
+        }
+
+        void recolectar(long[] pacientes, Pacientes resultado) {
+            byte[] datos = documentos.datos;
+            int largo = documentos.largo;
+            int documento = 0;
+            int i = 0;
+            while (i < largo) {
+                int delta = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = datos[i++];
+                    delta |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                documento += delta;
+                resultado.agregar(pacientes[documento]);
+            }
+        }
+
+        // El primer delta de 'otro' es relativo a 0: se reescribe relativo al último documento de este
+        void anexar(Postings otro, int desplazamiento) {
+            int[] lectura = {0};
+            int primero = leerVarint(otro.documentos.datos, lectura) + desplazamiento;
+            documentos.agregarVarint(primero - ultimoDocumento);
+            documentos.agregar(otro.documentos.datos, lectura[0], otro.documentos.largo);
+            ultimoDocumento = otro.ultimoDocumento + desplazamiento;
+            posiciones.agregar(otro.posiciones.datos, 0, otro.posiciones.largo);
+        }
+
+        void escribir(DataOutputStream salida) throws IOException {
+            salida.writeInt(ultimoDocumento);
+            documentos.escribir(salida);
+            posiciones.escribir(salida);
+        }
+
+        static Postings leer(DataInputStream entrada) throws IOException {
+            Postings postings = new Postings();
+            postings.ultimoDocumento = entrada.readInt();
+            postings.documentos.leer(entrada);
+            postings.posiciones.leer(entrada);
+            return postings;
+        }
+    }
+
+    private static final class Bytes {
+        private byte[] datos = new byte[4];
+        private int largo;
+
+        void agregarVarint(int valor) {
+            asegurar(largo + 5);
+            while ((valor & ~0x7F) != 0) {
+                datos[largo++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            datos[largo++] = (byte) valor;
+        }
+
+        void agregar(byte[] otros, int desde, int hasta) {
+            asegurar(largo + hasta - desde);
+            System.arraycopy(otros, desde, datos, largo, hasta - desde);
+            largo += hasta - desde;
+        }
+
+        void escribir(DataOutputStream salida) throws IOException {
+            salida.writeInt(largo);
+            salida.write(datos, 0, largo);
+        }
+
+        void leer(DataInputStream entrada) throws IOException {
+            int cantidad = entrada.readInt();
+            datos = entrada.readNBytes(cantidad);
+            if (datos.length != cantidad) {
+                throw new IOException("Índice de historias truncado");
+            }
+            largo = cantidad;
+        }
+
+        private void asegurar(int capacidad) {
+            if (capacidad > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(capacidad, datos.length + (datos.length >> 1)));
+            }
+        }
+    }
+
+    // Recorre un posting documento por documento. Las posiciones de un documento se decodifican solo si se piden
+    // (cuando todas las palabras de la frase están en él); si no, se saltean sin armar los valores.
+    private static final class Recorrido {
+        private final Postings postings;
+        private final int[] lecturaDocumentos = {0};
+        private final int[] lecturaPosiciones = {0};
+        // Posiciones del documento actual todavía sin leer del stream
+        private int pendientes;
+        int documento;
+        int cantidad;
+        int[] posiciones = new int[4];
+
+        Recorrido(Postings postings) {
+            this.postings = postings;
+        }
+
+        boolean siguiente() {
+            if (lecturaDocumentos[0] >= postings.documentos.largo) {
+                return false;
+            }
+            saltarPendientes();
+            documento += leerVarint(postings.documentos.datos, lecturaDocumentos);
+            cantidad = leerVarint(postings.posiciones.datos, lecturaPosiciones);
+            pendientes = cantidad;
+            return true;
+        }
+
+        boolean tienePosicion(int buscada) {
+            decodificarPosiciones();
+            return Arrays.binarySearch(posiciones, 0, cantidad, buscada) >= 0;
+        }
+
+        int posicion(int i) {
+            decodificarPosiciones();
+            return posiciones[i];
+        }
+
+        private void decodificarPosiciones() {
+            if (pendientes == 0) {
+                return;
+            }
+            if (cantidad > posiciones.length) {
+                posiciones = new int[cantidad];
+            }
+            int posicion = 0;
+            for (int i = 0; i < cantidad; i++) {
+                posicion += leerVarint(postings.posiciones.datos, lecturaPosiciones);
+                posiciones[i] = posicion;
+            }
+            pendientes = 0;
+        }
+
+        // Cada varint termina en un byte con el bit alto en 0
+        private void saltarPendientes() {
+            byte[] datos = postings.posiciones.datos;
+            int i = lecturaPosiciones[0];
+            while (pendientes > 0) {
+                if (datos[i++] >= 0) {
+                    pendientes--;
+                }
+            }
+            lecturaPosiciones[0] = i;
+        }
+    }
+
+    // Ids de pacientes encontrados; un paciente con varias entradas que coinciden aparece una sola vez al final
+    private static final class Pacientes {
+        private long[] ids = new long[64];
+        private int tamano;
+
+        void agregar(long id) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[tamano++] = id;
+        }
+
+        long[] ordenados() {
+            Arrays.sort(ids, 0, tamano);
+            int distintos = 0;
+            for (int i = 0; i < tamano; i++) {
+                if (distintos == 0 || ids[i] != ids[distintos - 1]) {
+                    ids[distintos++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, distintos);
+        }
+    }
+
+    private static int leerVarint(byte[] datos, int[] posicion) {
+        int valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = datos[posicion[0]++];
+            valor |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return valor;
+    }
+}
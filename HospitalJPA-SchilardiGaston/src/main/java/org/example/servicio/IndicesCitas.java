@@ -0,0 +1,59 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+// Estado completo que producen las cargas masivas (CSV, snapshot), listo para reemplazar el de CitaManager
+final class IndicesCitas {
+
+    final List<Cita> citas;
+    final Map<Paciente, List<Cita>> citasPorPaciente;
+    final Map<Medico, Agenda> citasPorMedico;
+    final Map<Sala, Agenda> citasPorSala;
+
+    private IndicesCitas(List<Cita> citas, Map<Paciente, List<Cita>> citasPorPaciente,
+                         Map<Medico, Agenda> citasPorMedico, Map<Sala, Agenda> citasPorSala) {
+        this.citas = citas;
+        this.citasPorPaciente = citasPorPaciente;
+        this.citasPorMedico = citasPorMedico;
+        this.citasPorSala = citasPorSala;
+    }
+
+    static IndicesCitas construir(List<Cita> citas, Duration duracionCita, ForkJoinPool pool) {
+        Map<Paciente, List<Cita>> porPaciente = new HashMap<>();
+        Map<Medico, List<Cita>> porMedico = new HashMap<>();
+        Map<Sala, List<Cita>> porSala = new HashMap<>();
+        for (Cita cita : citas) {
+            porPaciente.computeIfAbsent(cita.getPaciente(), p -> new ArrayList<>()).add(cita);
+            porMedico.computeIfAbsent(cita.getMedico(), m -> new ArrayList<>()).add(cita);
+            porSala.computeIfAbsent(cita.getSala(), s -> new ArrayList<>()).add(cita);
+        }
+        return construir(citas, porPaciente, porMedico, porSala, duracionCita, pool);
+    }
+
+    // Las listas por médico y por sala deben venir en el orden de citas
+    static IndicesCitas construir(List<Cita> citas, Map<Paciente, List<Cita>> porPaciente,
+                                  Map<Medico, List<Cita>> porMedico, Map<Sala, List<Cita>> porSala,
+                                  Duration duracionCita, ForkJoinPool pool) {
+        // Los TreeMap de cada agenda son independientes: se arman en paralelo
+        Map<Medico, Agenda> agendasMedico = new ConcurrentHashMap<>();
+        Map<Sala, Agenda> agendasSala = new ConcurrentHashMap<>();
+        pool.submit(() -> {
+            porMedico.entrySet().parallelStream()
+                    .forEach(e -> agendasMedico.put(e.getKey(), new Agenda(duracionCita, e.getValue())));
+            porSala.entrySet().parallelStream()
+                    .forEach(e -> agendasSala.put(e.getKey(), new Agenda(duracionCita, e.getValue())));
+        }).join();
+        return new IndicesCitas(citas, porPaciente, agendasMedico, agendasSala);
+    }
+}
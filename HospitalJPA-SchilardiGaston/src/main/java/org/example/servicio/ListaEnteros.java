@@ -0,0 +1,48 @@
+package org.example.servicio;
+
+import java.util.Arrays;
+
+// Lista de int sin boxing (4 bytes por elemento en lugar de ~20 de un Integer en un ArrayList)
+final class ListaEnteros {
+
+    private int[] datos;
+    private int tamano;
+
+    ListaEnteros() {
+        this(4);
+    }
+
+    ListaEnteros(int capacidad) {
+        this.datos = new int[Math.max(1, capacidad)];
+    }
+
+    void agregar(int valor) {
+        asegurar(tamano + 1);
+        datos[tamano++] = valor;
+    }
+
+    void insertar(int posicion, int valor) {
+        asegurar(tamano + 1);
+        System.arraycopy(datos, posicion, datos, posicion + 1, tamano - posicion);
+        datos[posicion] = valor;
+        tamano++;
+    }
+
+    int get(int posicion) {
+        return datos[posicion];
+    }
+
+    int tamano() {
+        return tamano;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(datos, tamano);
+    }
+
+    private void asegurar(int capacidad) {
+        if (capacidad > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(capacidad, datos.length + (datos.length >> 1)));
+        }
+    }
+}
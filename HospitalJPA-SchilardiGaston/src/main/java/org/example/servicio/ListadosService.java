@@ -0,0 +1,66 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.hibernate.jpa.SpecHints;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+// Consultas de listados con una cantidad fija de SELECT sin importar cuántas filas devuelvan:
+// - proyecciones a records para mostrar datos (no cargan entidades ni tocan el contexto de persistencia)
+// - variantes con entity graph / JOIN FETCH cuando se necesitan las entidades para modificarlas
+public class ListadosService {
+
+    // Proyección compartida con PaginadorCitas; el alias de Cita es "c"
+    static final String SELECT_RESUMEN =
+            "SELECT new org.example.servicio.CitaResumen(c.id, c.fechaHora, p.apellido, p.nombre,"
+                    + " m.apellido, s.numero, c.estado, c.costo)"
+                    + " FROM Cita c JOIN c.paciente p JOIN c.medico m JOIN c.sala s";
+
+    private final EntityManager em;
+
+    public ListadosService(EntityManager em) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo");
+    }
+
+    public List<CitaResumen> proximasCitas(LocalDateTime desde, int maximo) {
+        return em.createQuery(SELECT_RESUMEN + " WHERE c.fechaHora > :desde ORDER BY c.fechaHora ASC", CitaResumen.class)
+                .setParameter("desde", desde)
+                .setMaxResults(maximo)
+                .getResultList();
+    }
+
+    // Entidades con paciente, médico y sala inicializados (grafo Cita.completa)
+    public List<Cita> proximasCitasCompletas(LocalDateTime desde, int maximo) {
+        return em.createQuery("SELECT c FROM Cita c WHERE c.fechaHora > :desde ORDER BY c.fechaHora ASC", Cita.class)
+                .setParameter("desde", desde)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(Cita.GRAFO_COMPLETO))
+                .setMaxResults(maximo)
+                .getResultList();
+    }
+
+    // Misma carga que el grafo, escrita como JOIN FETCH (para quien arme sus propias consultas)
+    public List<Cita> citasDelDia(LocalDate dia) {
+        LocalDateTime inicio = dia.atStartOfDay();
+        return em.createQuery(
+                        "SELECT c FROM Cita c JOIN FETCH c.paciente p LEFT JOIN FETCH p.historiaClinica"
+                                + " JOIN FETCH c.medico JOIN FETCH c.sala"
+                                + " WHERE c.fechaHora >= :inicio AND c.fechaHora < :fin ORDER BY c.fechaHora", Cita.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fin", inicio.plusDays(1))
+                .getResultList();
+    }
+
+    public List<MedicoResumen> medicosPorEspecialidad(EspecialidadMedica especialidad, int maximo) {
+        return em.createQuery(
+                        "SELECT new org.example.servicio.MedicoResumen(m.idM, m.apellido, m.nombre, m.matricula.numero)"
+                                + " FROM Medico m WHERE m.especialidadMedica = :esp ORDER BY m.apellido", MedicoResumen.class)
+                .setParameter("esp", especialidad)
+                .setMaxResults(maximo)
+                .getResultList();
+    }
+}
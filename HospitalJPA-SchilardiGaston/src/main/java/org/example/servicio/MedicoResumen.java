@@ -0,0 +1,5 @@
+package org.example.servicio;
+
+// Fila de solo lectura para listados de médicos (proyección JPQL)
+public record MedicoResumen(long id, String apellido, String nombre, String matricula) {
+}
@@ -0,0 +1,49 @@
+package org.example.servicio;
+
+import org.example.metricas.Histograma;
+import org.example.metricas.RegistroMetricas;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Métricas de un servicio de citas bajo un prefijo (p. ej. "citaManager."): latencia de reservas,
+// cargas y guardados, citas procesadas y reservas rechazadas por motivo
+final class MetricasCitas {
+
+    final Histograma programar;
+    final Histograma programarLote;
+    final Histograma cargar;
+    final Histograma guardar;
+    final Histograma guardarIncremental;
+    final Histograma compactarGuardado;
+    final LongAdder compactacionesFallidas;
+    final LongAdder programadas;
+    final LongAdder cargadas;
+    final LongAdder guardadas;
+    // Cambios del diario sobre citas que no estaban al reproducirlo
+    final LongAdder diarioDescartados;
+    private final Map<CitaException.Motivo, LongAdder> rechazos = new EnumMap<>(CitaException.Motivo.class);
+
+    MetricasCitas(RegistroMetricas registro, String prefijo) {
+        this.programar = registro.histograma(prefijo + "programarCita");
+        this.programarLote = registro.histograma(prefijo + "programarCitas");
+        this.cargar = registro.histograma(prefijo + "cargarCitas");
+        this.guardar = registro.histograma(prefijo + "guardarCitas");
+        this.guardarIncremental = registro.histograma(prefijo + "guardarIncremental");
+        this.compactarGuardado = registro.histograma(prefijo + "compactarGuardado");
+        this.compactacionesFallidas = registro.contador(prefijo + "compactacionesFallidas");
+        this.programadas = registro.contador(prefijo + "citasProgramadas");
+        this.cargadas = registro.contador(prefijo + "citasCargadas");
+        this.guardadas = registro.contador(prefijo + "citasGuardadas");
+        this.diarioDescartados = registro.contador(prefijo + "diarioDescartados");
+        // Todos los motivos se registran de entrada, así figuran en JMX aunque estén en cero
+        for (CitaException.Motivo motivo : CitaException.Motivo.values()) {
+            rechazos.put(motivo, registro.contador(prefijo + "rechazos." + motivo.name()));
+        }
+    }
+
+    void rechazo(CitaException e) {
+        rechazos.get(e.getMotivo()).increment();
+    }
+}
@@ -0,0 +1,276 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Migraciones versionadas del esquema: scripts V<n>__<descripcion>.sql en db/migracion (classpath) que se
+// aplican en orden y quedan registrados en historial_esquema con su checksum. Reemplaza a hbm2ddl update:
+// al arrancar solo se lee el historial, en lugar de inspeccionar y comparar todo el esquema.
+//
+// Una migración ya aplicada no se edita (el checksum no coincidiría): los cambios van en una versión nueva.
+// H2 confirma cada DDL por separado, así que una migración que falla a la mitad puede quedar aplicada en parte;
+// los scripts se escriben para poder repetirse (IF EXISTS / IF NOT EXISTS) y se vuelve a correr al arrancar.
+public final class MigradorEsquema {
+
+    public static final String UBICACION = "db/migracion";
+
+    private static final Pattern NOMBRE = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String CREAR_HISTORIAL = """
+            CREATE TABLE IF NOT EXISTS historial_esquema (
+                version INT PRIMARY KEY,
+                descripcion VARCHAR(200) NOT NULL,
+                checksum BIGINT NOT NULL,
+                aplicada TIMESTAMP NOT NULL,
+                duracion_ms BIGINT NOT NULL
+            )""";
+
+    record Migracion(int version, String descripcion, String sql, long checksum) {
+    }
+
+    private final List<Migracion> migraciones;
+
+    public MigradorEsquema() {
+        this(UBICACION);
+    }
+
+    MigradorEsquema(String ubicacion) {
+        try {
+            this.migraciones = cargar(ubicacion);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron leer las migraciones de " + ubicacion, e);
+        }
+    }
+
+    // Migra con una conexión del pool de la unidad de persistencia (con hbm2ddl.auto en none o validate)
+    public static int migrar(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            MigradorEsquema migrador = new MigradorEsquema();
+            return em.unwrap(Session.class).doReturningWork(migrador::migrar);
+        } finally {
+            em.close();
+        }
+    }
+
+    // Aplica las versiones pendientes en orden y devuelve cuántas aplicó
+    public int migrar(Connection conexion) throws SQLException {
+        boolean autoCommit = conexion.getAutoCommit();
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute(CREAR_HISTORIAL);
+            Map<Integer, Long> aplicadas = aplicadas(sentencia);
+            validar(aplicadas);
+            conexion.setAutoCommit(false);
+            int nuevas = 0;
+            for (Migracion migracion : migraciones) {
+                if (!aplicadas.containsKey(migracion.version())) {
+                    aplicar(conexion, sentencia, migracion);
+                    nuevas++;
+                }
+            }
+            return nuevas;
+        } finally {
+            conexion.setAutoCommit(autoCommit);
+        }
+    }
+
+    public int getUltimaVersion() {
+        return migraciones.isEmpty() ? 0 : migraciones.get(migraciones.size() - 1).version();
+    }
+
+    List<Migracion> getMigraciones() {
+        return Collections.unmodifiableList(migraciones);
+    }
+
+    private static Map<Integer, Long> aplicadas(Statement sentencia) throws SQLException {
+        Map<Integer, Long> aplicadas = new TreeMap<>();
+        try (ResultSet rs = sentencia.executeQuery("SELECT version, checksum FROM historial_esquema")) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return aplicadas;
+    }
+
+    // Las aplicadas tienen que seguir existiendo sin cambios y las pendientes tienen que ser posteriores
+    private void validar(Map<Integer, Long> aplicadas) {
+        Map<Integer, Migracion> porVersion = new TreeMap<>();
+        for (Migracion migracion : migraciones) {
+            porVersion.put(migracion.version(), migracion);
+        }
+        int ultimaAplicada = 0;
+        for (Map.Entry<Integer, Long> aplicada : aplicadas.entrySet()) {
+            Migracion migracion = porVersion.get(aplicada.getKey());
+            if (migracion == null) {
+                throw new IllegalStateException("La base tiene la migración V" + aplicada.getKey()
+                        + ", que no está en " + UBICACION + " (¿base de una versión más nueva de la aplicación?)");
+            }
+            if (migracion.checksum() != aplicada.getValue()) {
+                throw new IllegalStateException("La migración V" + migracion.version() + " ("
+                        + migracion.descripcion() + ") cambió después de aplicarse: agregar una versión nueva");
+            }
+            ultimaAplicada = migracion.version();
+        }
+        for (Migracion migracion : migraciones) {
+            if (!aplicadas.containsKey(migracion.version()) && migracion.version() < ultimaAplicada) {
+                throw new IllegalStateException("La migración V" + migracion.version()
+                        + " está pendiente pero la base ya tiene V" + ultimaAplicada);
+            }
+        }
+    }
+
+    private static void aplicar(Connection conexion, Statement sentencia, Migracion migracion) throws SQLException {
+        long inicio = System.nanoTime();
+        verificarAntes(sentencia, migracion);
+        for (String sql : sentencias(migracion.sql())) {
+            try {
+                sentencia.execute(sql);
+            } catch (SQLException e) {
+                conexion.rollback();
+                throw new SQLException("Falló la migración V" + migracion.version() + " ("
+                        + migracion.descripcion() + ") en: " + sql.strip(), e.getSQLState(), e.getErrorCode(), e);
+            }
+        }
+        try (PreparedStatement registro = conexion.prepareStatement(
+                "INSERT INTO historial_esquema (version, descripcion, checksum, aplicada, duracion_ms) VALUES (?, ?, ?, ?, ?)")) {
+            registro.setInt(1, migracion.version());
+            registro.setString(2, migracion.descripcion());
+            registro.setLong(3, migracion.checksum());
+            registro.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            registro.setLong(5, (System.nanoTime() - inicio) / 1_000_000);
+            registro.executeUpdate();
+        }
+        conexion.commit();
+    }
+
+    // Datos que harían fallar una migración con un error de H2 poco claro: se buscan antes y se informan todos
+    // juntos. Va acá y no en el script porque V4 ya está aplicada en otras bases (cambiaría su checksum).
+    private static void verificarAntes(Statement sentencia, Migracion migracion) throws SQLException {
+        if (migracion.version() != 4) {
+            return;
+        }
+        List<String> problemas = new ArrayList<>();
+        buscarRepetidos(sentencia, "Medicos", "dni", "DNI de médico", problemas);
+        buscarRepetidos(sentencia, "Medicos", "numero", "matrícula", problemas);
+        buscarRepetidos(sentencia, "Pacientes", "dni", "DNI de paciente", problemas);
+        buscarRepetidos(sentencia, "Salas", "numero", "número de sala", problemas);
+        if (!problemas.isEmpty()) {
+            throw new IllegalStateException("No se puede aplicar la migración V4 (" + migracion.descripcion()
+                    + "): " + String.join("; ", problemas) + ". Corregir o borrar esos registros y volver a"
+                    + " arrancar, o recrear la base desde cero con RESET_DB = true en Main (borra todos los datos).");
+        }
+    }
+
+    // Valores repetidos (con la cantidad de filas de cada uno) y filas sin valor de la columna
+    private static void buscarRepetidos(Statement sentencia, String tabla, String columna, String nombre,
+                                        List<String> problemas) throws SQLException {
+        List<String> repetidos = new ArrayList<>();
+        try (ResultSet rs = sentencia.executeQuery("SELECT " + columna + ", COUNT(*) FROM " + tabla
+                + " WHERE " + columna + " IS NOT NULL GROUP BY " + columna + " HAVING COUNT(*) > 1 ORDER BY "
+                + columna)) {
+            while (rs.next()) {
+                repetidos.add(rs.getString(1) + " (" + rs.getLong(2) + " veces)");
+            }
+        }
+        if (!repetidos.isEmpty()) {
+            problemas.add("valores repetidos de " + nombre + " en " + tabla + ": " + String.join(", ", repetidos));
+        }
+        try (ResultSet rs = sentencia.executeQuery("SELECT COUNT(*) FROM " + tabla + " WHERE " + columna + " IS NULL")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                problemas.add(rs.getLong(1) + " filas de " + tabla + " sin " + nombre);
+            }
+        }
+    }
+
+    // Sentencias separadas por ';' al final de la línea; se saltean las líneas de comentario (--)
+    static List<String> sentencias(String sql) {
+        List<String> resultado = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (String linea : sql.split("\n")) {
+            String recortada = linea.strip();
+            if (recortada.isEmpty() || recortada.startsWith("--")) {
+                continue;
+            }
+            actual.append(linea).append('\n');
+            if (recortada.endsWith(";")) {
+                resultado.add(actual.substring(0, actual.lastIndexOf(";")));
+                actual.setLength(0);
+            }
+        }
+        if (!actual.toString().isBlank()) {
+            resultado.add(actual.toString());
+        }
+        return resultado;
+    }
+
+    private static List<Migracion> cargar(String ubicacion) throws IOException {
+        URL url = MigradorEsquema.class.getClassLoader().getResource(ubicacion);
+        if (url == null) {
+            throw new IOException("No está en el classpath");
+        }
+        try {
+            URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try (FileSystem jar = FileSystems.newFileSystem(uri, Map.of())) {
+                    return leer(jar.getPath(ubicacion));
+                }
+            }
+            return leer(Path.of(uri));
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static List<Migracion> leer(Path directorio) throws IOException {
+        List<Migracion> leidas = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path archivo : archivos.toList()) {
+                Matcher nombre = NOMBRE.matcher(archivo.getFileName().toString());
+                if (!nombre.matches()) {
+                    continue;
+                }
+                // Fin de línea normalizado: el checksum no cambia si git convierte el script a CRLF
+                String sql = Files.readString(archivo, StandardCharsets.UTF_8).replace("\r\n", "\n");
+                CRC32 crc = new CRC32();
+                crc.update(sql.getBytes(StandardCharsets.UTF_8));
+                leidas.add(new Migracion(Integer.parseInt(nombre.group(1)), nombre.group(2).replace('_', ' '),
+                        sql, crc.getValue()));
+            }
+        }
+        leidas.sort((a, b) -> Integer.compare(a.version(), b.version()));
+        for (int i = 1; i < leidas.size(); i++) {
+            if (leidas.get(i).version() == leidas.get(i - 1).version()) {
+                throw new IOException("Hay dos migraciones V" + leidas.get(i).version());
+            }
+        }
+        return leidas;
+    }
+}
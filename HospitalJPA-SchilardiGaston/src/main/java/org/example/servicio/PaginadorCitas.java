@@ -0,0 +1,171 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.entidades.Cita;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Recorrido de citas por páginas con keyset sobre (fechaHora, id): cada página es un SELECT que arranca
+// después de la última fila entregada (usa el índice ix_citas_fecha), sin OFFSET que recorra lo ya leído.
+// Los streams piden páginas a medida que se consumen, así se pueden recorrer meses de agenda en memoria constante.
+public class PaginadorCitas {
+
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 500;
+
+    private final EntityManager em;
+    private final int tamanoPagina;
+    private final int fetchSize;
+
+    public PaginadorCitas(EntityManager em) {
+        this(em, TAMANO_PAGINA_POR_DEFECTO, TAMANO_PAGINA_POR_DEFECTO);
+    }
+
+    // fetchSize: filas que el driver JDBC trae por viaje al recorrer el ResultSet de cada página
+    public PaginadorCitas(EntityManager em, int tamanoPagina, int fetchSize) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo");
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero");
+        }
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("El fetch size debe ser mayor que cero");
+        }
+        this.tamanoPagina = tamanoPagina;
+        this.fetchSize = fetchSize;
+    }
+
+    // Página de entidades (con paciente, médico y sala inicializados); despuesDe null = primera página
+    public List<Cita> pagina(FiltroCitas filtro, CursorCita despuesDe) {
+        return consulta("SELECT c FROM Cita c", Cita.class, filtro, despuesDe)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(Cita.GRAFO_COMPLETO))
+                .getResultList();
+    }
+
+    public List<CitaResumen> paginaResumen(FiltroCitas filtro, CursorCita despuesDe) {
+        return consulta(ListadosService.SELECT_RESUMEN, CitaResumen.class, filtro, despuesDe).getResultList();
+    }
+
+    // Stream de solo lectura. Entre página y página se vacía el contexto de persistencia: las citas ya
+    // entregadas quedan detached (igual que cualquier otra entidad que el llamador tenga en este EntityManager)
+    // y lo que se les cambie después ya no se guarda. Antes de vaciarlo, lo pendiente se escribe con flush si hay
+    // una transacción; sin transacción no hay dónde escribirlo y el stream falla en vez de descartarlo.
+    public Stream<Cita> stream(FiltroCitas filtro) {
+        return recorrer(cursor -> {
+            if (cursor != null) {
+                vaciarContexto();
+            }
+            return pagina(filtro, cursor);
+        }, cita -> new CursorCita(cita.getFechaHora(), cita.getId()));
+    }
+
+    private void vaciarContexto() {
+        if (em.isJoinedToTransaction()) {
+            em.flush();
+        } else if (em.unwrap(Session.class).isDirty()) {
+            throw new IllegalStateException("El EntityManager tiene cambios sin guardar y no hay una transacción "
+                    + "activa: vaciarlo para la página siguiente los descartaría");
+        }
+        em.clear();
+    }
+
+    // Las proyecciones no entran al contexto de persistencia: no hace falta vaciarlo
+    public Stream<CitaResumen> streamResumen(FiltroCitas filtro) {
+        return recorrer(cursor -> paginaResumen(filtro, cursor),
+                resumen -> new CursorCita(resumen.fechaHora(), resumen.id()));
+    }
+
+    private <T> TypedQuery<T> consulta(String select, Class<T> tipo, FiltroCitas filtro, CursorCita despuesDe) {
+        StringBuilder jpql = new StringBuilder(select).append(" WHERE 1 = 1");
+        if (filtro.desde() != null) {
+            jpql.append(" AND c.fechaHora > :desde");
+        }
+        if (filtro.hasta() != null) {
+            jpql.append(" AND c.fechaHora < :hasta");
+        }
+        if (filtro.medico() != null) {
+            jpql.append(" AND c.medico = :medico");
+        }
+        if (filtro.sala() != null) {
+            jpql.append(" AND c.sala = :sala");
+        }
+        if (filtro.estado() != null) {
+            jpql.append(" AND c.estado = :estado");
+        }
+        if (despuesDe != null) {
+            jpql.append(" AND (c.fechaHora > :cursorFecha OR (c.fechaHora = :cursorFecha AND c.id > :cursorId))");
+        }
+        jpql.append(" ORDER BY c.fechaHora, c.id");
+
+        TypedQuery<T> query = em.createQuery(jpql.toString(), tipo)
+                .setMaxResults(tamanoPagina)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        if (filtro.desde() != null) {
+            query.setParameter("desde", filtro.desde());
+        }
+        if (filtro.hasta() != null) {
+            query.setParameter("hasta", filtro.hasta());
+        }
+        if (filtro.medico() != null) {
+            query.setParameter("medico", filtro.medico());
+        }
+        if (filtro.sala() != null) {
+            query.setParameter("sala", filtro.sala());
+        }
+        if (filtro.estado() != null) {
+            query.setParameter("estado", filtro.estado());
+        }
+        if (despuesDe != null) {
+            query.setParameter("cursorFecha", despuesDe.fechaHora());
+            query.setParameter("cursorId", despuesDe.id());
+        }
+        return query;
+    }
+
+    private <T> Stream<T> recorrer(Function<CursorCita, List<T>> siguientePagina, Function<T, CursorCita> cursorDe) {
+        Iterator<T> iterador = new Iterator<>() {
+            private List<T> actual = List.of();
+            private int posicion;
+            private CursorCita cursor;
+            private boolean ultimaPagina;
+
+            @Override
+            public boolean hasNext() {
+                if (posicion < actual.size()) {
+                    return true;
+                }
+                if (ultimaPagina) {
+                    return false;
+                }
+                actual = siguientePagina.apply(cursor);
+                posicion = 0;
+                ultimaPagina = actual.size() < tamanoPagina;
+                if (actual.isEmpty()) {
+                    return false;
+                }
+                cursor = cursorDe.apply(actual.get(actual.size() - 1));
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return actual.get(posicion++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterador,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
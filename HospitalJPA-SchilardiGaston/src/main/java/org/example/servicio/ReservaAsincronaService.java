@@ -0,0 +1,161 @@
+package org.example.servicio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.metricas.Histograma;
+import org.example.metricas.RegistroMetricas;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fachada asíncrona de reservas sobre la base: cada pedido corre en su propia tarea con un EntityManager
+// y un CitaJpaService propios, y devuelve un CompletableFuture (si la reserva se rechaza, el futuro falla
+// con la CitaException). Un semáforo limita las tareas que usan JDBC a la vez al tamaño del pool de
+// conexiones, así una ráfaga de pedidos espera en el semáforo y no en connectionTimeout de Hikari.
+// Con Java 21+ cada tarea corre en un hilo virtual; en 17 se usa un pool fijo del tamaño del límite con
+// cola sin tope, de modo que miles de pedidos encolados no crean miles de hilos de plataforma.
+public class ReservaAsincronaService implements AutoCloseable {
+
+    private static final String PROPIEDAD_TAMANO_POOL = "hibernate.hikari.maximumPoolSize";
+    private static final int TAMANO_POOL_POR_DEFECTO = 10;
+    private static final AtomicInteger INSTANCIAS = new AtomicInteger();
+
+    private final EntityManagerFactory emf;
+    private final ExecutorService ejecutor;
+    private final boolean ejecutorPropio;
+    private final Semaphore permisos;
+    private final int maxConcurrencia;
+    private final RegistroMetricas registro;
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final Histograma esperaPermiso;
+    // Los indicadores leen el estado de esta instancia: van bajo su propio prefijo (reservaAsincrona.N.)
+    private final String prefijoIndicadores;
+
+    // Límite = tamaño del pool de Hikari configurado en la unidad de persistencia
+    public ReservaAsincronaService(EntityManagerFactory emf) {
+        this(emf, tamanoPool(emf));
+    }
+
+    public ReservaAsincronaService(EntityManagerFactory emf, int maxConcurrencia) {
+        this(emf, maxConcurrencia, crearEjecutor(maxConcurrencia), true, RegistroMetricas.global());
+    }
+
+    // Con un ejecutor externo (que no se cierra en close), p. ej. para comparar contra otro tipo de pool
+    public ReservaAsincronaService(EntityManagerFactory emf, int maxConcurrencia, ExecutorService ejecutor) {
+        this(emf, maxConcurrencia, ejecutor, false, RegistroMetricas.global());
+    }
+
+    private ReservaAsincronaService(EntityManagerFactory emf, int maxConcurrencia, ExecutorService ejecutor,
+                                    boolean ejecutorPropio, RegistroMetricas registro) {
+        if (maxConcurrencia <= 0) {
+            throw new IllegalArgumentException("La concurrencia máxima debe ser mayor que cero");
+        }
+        this.emf = Objects.requireNonNull(emf, "El EntityManagerFactory no puede ser nulo");
+        this.ejecutor = Objects.requireNonNull(ejecutor, "El ejecutor no puede ser nulo");
+        this.ejecutorPropio = ejecutorPropio;
+        this.maxConcurrencia = maxConcurrencia;
+        this.permisos = new Semaphore(maxConcurrencia, true);
+        this.registro = registro;
+        this.esperaPermiso = registro.histograma("reservaAsincrona.esperaPermiso");
+        this.prefijoIndicadores = "reservaAsincrona." + INSTANCIAS.incrementAndGet() + ".";
+        registro.indicador(prefijoIndicadores + "pendientes", pendientes::get);
+        registro.indicador(prefijoIndicadores + "enCurso", () -> maxConcurrencia - permisos.availablePermits());
+    }
+
+    public CompletableFuture<Cita> programarCita(Paciente paciente, Medico medico, Sala sala,
+                                                 LocalDateTime fechaHora, BigDecimal costo) {
+        CompletableFuture<Cita> resultado = new CompletableFuture<>();
+        pendientes.incrementAndGet();
+        try {
+            ejecutor.execute(() -> reservar(resultado, paciente, medico, sala, fechaHora, costo));
+        } catch (RuntimeException e) {
+            // Ejecutor cerrado o saturado: el pedido falla sin haber tocado la base
+            pendientes.decrementAndGet();
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+
+    private void reservar(CompletableFuture<Cita> resultado, Paciente paciente, Medico medico, Sala sala,
+                          LocalDateTime fechaHora, BigDecimal costo) {
+        long inicio = System.nanoTime();
+        try {
+            permisos.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendientes.decrementAndGet();
+            resultado.completeExceptionally(e);
+            return;
+        }
+        esperaPermiso.registrarDesde(inicio);
+        EntityManager em = null;
+        try {
+            em = emf.createEntityManager();
+            resultado.complete(new CitaJpaService(em, registro).programarCita(paciente, medico, sala, fechaHora, costo));
+        } catch (CitaException | RuntimeException e) {
+            resultado.completeExceptionally(e);
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+            permisos.release();
+            pendientes.decrementAndGet();
+        }
+    }
+
+    public int getMaxConcurrencia() {
+        return maxConcurrencia;
+    }
+
+    // Pedidos aceptados que todavía no terminaron (esperando permiso o en curso)
+    public int getPendientes() {
+        return pendientes.get();
+    }
+
+    // Deja de aceptar pedidos y espera a que terminen los ya aceptados
+    @Override
+    public void close() throws InterruptedException {
+        registro.quitarIndicadores(prefijoIndicadores);
+        if (ejecutorPropio) {
+            ejecutor.shutdown();
+            // Mientras tanto getPendientes() dice cuántas faltan
+            ejecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static int tamanoPool(EntityManagerFactory emf) {
+        Object valor = emf.getProperties().get(PROPIEDAD_TAMANO_POOL);
+        return valor != null ? Integer.parseInt(valor.toString()) : TAMANO_POOL_POR_DEFECTO;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() existe desde Java 21; se busca por reflexión para
+    // seguir compilando con --release 17
+    private static ExecutorService crearEjecutor(int maxConcurrencia) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrencia, hilosDeReserva());
+        }
+    }
+
+    private static ThreadFactory hilosDeReserva() {
+        AtomicInteger numero = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, "reserva-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+
+// Resultado de una solicitud de un lote: la cita creada o el motivo del rechazo (uno de los dos es null)
+public record ResultadoSolicitud(SolicitudCita solicitud, Cita cita, CitaException rechazo) {
+
+    static ResultadoSolicitud aceptada(SolicitudCita solicitud, Cita cita) {
+        return new ResultadoSolicitud(solicitud, cita, null);
+    }
+
+    static ResultadoSolicitud rechazada(SolicitudCita solicitud, CitaException rechazo) {
+        return new ResultadoSolicitud(solicitud, null, rechazo);
+    }
+
+    public boolean isAceptada() {
+        return cita != null;
+    }
+}
@@ -0,0 +1,419 @@
+package org.example.servicio;
+
+import org.example.entidades.EstadoCita;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Formato binario versionado de citas, alternativa compacta al CSV de guardarCitas/cargarCitas.
+//
+//   cabecera (24 bytes): magia "HCIT" | versión (short) | reservado (short) | cantidad (long) | posición de diccionarios (long)
+//   registros: paciente, médico y sala como índices varint en los diccionarios | minutos desde epoch como delta
+//              zigzag respecto del registro anterior | costo en centavos (zigzag) | estado (byte) | observaciones (largo + UTF-8)
+//   diccionarios: DNIs de pacientes, DNIs de médicos y números de sala (cantidad + cadenas)
+//
+// Los diccionarios van al final para escribir en una sola pasada; el lector los lee antes que los registros.
+// Se pierden los segundos de fechaHora y el costo se guarda con escala 2 (costos con más decimales se rechazan).
+// El Escritor trabaja sobre <archivo>.tmp y solo reemplaza el archivo en terminar(): si algo falla antes, el
+// snapshot anterior queda como estaba.
+public final class SnapshotCitas {
+
+    static final int MAGIA = 0x48434954;
+    static final short VERSION = 1;
+    static final int TAMANO_CABECERA = 24;
+    static final int TAMANO_BUFFER = 4 * 1024 * 1024;
+    private static final EstadoCita[] ESTADOS = EstadoCita.values();
+
+    private SnapshotCitas() {
+    }
+
+    // Conversión CSV (formato de guardarCitas) -> snapshot, sin necesidad de las entidades
+    public static void csvASnapshot(String csv, String snapshot) throws IOException, CitaException {
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(csv), StandardCharsets.UTF_8);
+             Escritor escritor = new Escritor(Path.of(snapshot))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] values = line.split(",", -1);
+                if (values.length != 7) {
+                    throw new CitaException("Formato de CSV inválido para Cita: " + line);
+                }
+                try {
+                    escritor.escribir(values[0], values[1], values[2],
+                            aMinutos(LocalDateTime.parse(values[3])),
+                            aCentavos(new BigDecimal(values[4])),
+                            EstadoCita.valueOf(values[5]),
+                            values[6].replace(';', ','));
+                } catch (DateTimeException | IllegalArgumentException e) {
+                    throw new CitaException("Formato de CSV inválido para Cita: " + line, e);
+                }
+            }
+            escritor.terminar();
+        }
+    }
+
+    // Conversión snapshot -> CSV con el mismo formato que Cita.toCsvString()
+    public static void snapshotACsv(String snapshot, String csv) throws IOException, CitaException {
+        try (Lector lector = new Lector(Path.of(snapshot));
+             PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(csv), StandardCharsets.UTF_8))) {
+            String[] pacientes = lector.getPacientes();
+            String[] medicos = lector.getMedicos();
+            String[] salas = lector.getSalas();
+            lector.recorrer((paciente, medico, sala, minutos, centavos, estado, observaciones) ->
+                    writer.println(pacientes[paciente] + "," + medicos[medico] + "," + salas[sala] + ","
+                            + deMinutos(minutos) + "," + deCentavos(centavos) + "," + estado.name() + ","
+                            + observaciones.replace(',', ';')));
+        }
+    }
+
+    static long aMinutos(LocalDateTime fechaHora) {
+        return Math.floorDiv(fechaHora.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime deMinutos(long minutos) {
+        return LocalDateTime.ofEpochSecond(minutos * 60, 0, ZoneOffset.UTC);
+    }
+
+    static long aCentavos(BigDecimal costo) {
+        try {
+            return costo.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Costo no representable en centavos: " + costo, e);
+        }
+    }
+
+    static BigDecimal deCentavos(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    interface Visitante {
+        void registro(int paciente, int medico, int sala, long minutos, long centavos,
+                      EstadoCita estado, String observaciones) throws CitaException;
+    }
+
+    static final class Escritor implements Closeable {
+        private final Path destino;
+        private final Path temporal;
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final Diccionario pacientes = new Diccionario();
+        private final Diccionario medicos = new Diccionario();
+        private final Diccionario salas = new Diccionario();
+        private long cantidad;
+        private long minutosAnterior;
+        private boolean terminado;
+
+        Escritor(Path archivo) throws IOException {
+            this.destino = archivo;
+            this.temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            this.canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            canal.position(TAMANO_CABECERA);
+        }
+
+        void escribir(String dniPaciente, String dniMedico, String numeroSala, long minutos, long centavos,
+                      EstadoCita estado, String observaciones) throws IOException {
+            // Peor caso sin observaciones: 3 índices de 5 bytes + 2 longs de 10 + estado + largo
+            asegurar(46);
+            escribirVarint(pacientes.indice(dniPaciente));
+            escribirVarint(medicos.indice(dniMedico));
+            escribirVarint(salas.indice(numeroSala));
+            escribirVarint(zigzag(minutos - minutosAnterior));
+            escribirVarint(zigzag(centavos));
+            buffer.put((byte) estado.ordinal());
+            escribirCadena(observaciones);
+            minutosAnterior = minutos;
+            cantidad++;
+        }
+
+        private void escribirCadena(String valor) throws IOException {
+            if (valor == null || valor.isEmpty()) {
+                asegurar(1);
+                buffer.put((byte) 0);
+                return;
+            }
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            asegurar(5);
+            escribirVarint(bytes.length);
+            if (bytes.length <= buffer.capacity()) {
+                asegurar(bytes.length);
+                buffer.put(bytes);
+            } else {
+                vaciar();
+                escribirTodo(ByteBuffer.wrap(bytes));
+            }
+        }
+
+        private void escribirVarint(long valor) {
+            while ((valor & ~0x7FL) != 0) {
+                buffer.put((byte) ((valor & 0x7F) | 0x80));
+                valor >>>= 7;
+            }
+            buffer.put((byte) valor);
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                vaciar();
+            }
+        }
+
+        private void vaciar() throws IOException {
+            buffer.flip();
+            escribirTodo(buffer);
+            buffer.clear();
+        }
+
+        private void escribirTodo(ByteBuffer datos) throws IOException {
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+        }
+
+        // Diccionarios y cabecera, a disco, y recién ahí reemplaza el archivo. Sin terminar(), close() descarta
+        // lo escrito: un error a mitad de la escritura no deja un archivo truncado con cabecera válida.
+        void terminar() throws IOException {
+            vaciar();
+            long posicionDiccionarios = canal.position();
+            for (Diccionario diccionario : new Diccionario[]{pacientes, medicos, salas}) {
+                asegurar(5);
+                escribirVarint(diccionario.valores.size());
+                for (String valor : diccionario.valores) {
+                    escribirCadena(valor);
+                }
+            }
+            vaciar();
+
+            buffer.putInt(MAGIA).putShort(VERSION).putShort((short) 0).putLong(cantidad).putLong(posicionDiccionarios);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer, buffer.position());
+            }
+            buffer.clear();
+            // Con el contenido en disco antes del renombre, un corte no deja el nombre apuntando a datos incompletos
+            canal.force(true);
+            canal.close();
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            terminado = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!terminado) {
+                canal.close();
+                Files.deleteIfExists(temporal);
+            }
+        }
+    }
+
+    static final class Lector implements Closeable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final long cantidad;
+        private final long finRegistros;
+        private final String[] pacientes;
+        private final String[] medicos;
+        private final String[] salas;
+        private long posicion;
+
+        Lector(Path archivo) throws IOException {
+            this.canal = FileChannel.open(archivo, StandardOpenOption.READ);
+            try {
+                ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+                while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) > 0) {
+                    // lectura completa de la cabecera
+                }
+                cabecera.flip();
+                if (cabecera.remaining() < TAMANO_CABECERA || cabecera.getInt() != MAGIA) {
+                    throw new IOException("El archivo no es un snapshot de citas: " + archivo);
+                }
+                short version = cabecera.getShort();
+                if (version != VERSION) {
+                    throw new IOException("Versión de snapshot no soportada: " + version);
+                }
+                cabecera.getShort();
+                this.cantidad = cabecera.getLong();
+                this.finRegistros = cabecera.getLong();
+                if (cantidad < 0 || finRegistros < TAMANO_CABECERA || finRegistros > canal.size()) {
+                    throw new IOException("Cabecera de snapshot dañada: " + archivo);
+                }
+
+                posicion = finRegistros;
+                buffer.limit(0);
+                this.pacientes = leerDiccionario(canal.size());
+                this.medicos = leerDiccionario(canal.size());
+                this.salas = leerDiccionario(canal.size());
+
+                posicion = TAMANO_CABECERA;
+                buffer.clear().limit(0);
+            } catch (IOException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        long getCantidad() {
+            return cantidad;
+        }
+
+        String[] getPacientes() {
+            return pacientes;
+        }
+
+        String[] getMedicos() {
+            return medicos;
+        }
+
+        String[] getSalas() {
+            return salas;
+        }
+
+        void recorrer(Visitante visitante) throws IOException, CitaException {
+            long minutos = 0;
+            for (long i = 0; i < cantidad; i++) {
+                asegurar(46, finRegistros);
+                int paciente = leerIndice(pacientes.length, i);
+                int medico = leerIndice(medicos.length, i);
+                int sala = leerIndice(salas.length, i);
+                minutos += dezigzag(leerVarint());
+                long centavos = dezigzag(leerVarint());
+                int estado = buffer.get();
+                if (estado < 0 || estado >= ESTADOS.length) {
+                    throw new IOException("Estado inválido en el registro " + i);
+                }
+                String observaciones = leerCadena(finRegistros);
+                visitante.registro(paciente, medico, sala, minutos, centavos, ESTADOS[estado], observaciones);
+            }
+        }
+
+        private int leerIndice(int tamanoDiccionario, long registro) throws IOException {
+            long indice = leerVarint();
+            if (indice < 0 || indice >= tamanoDiccionario) {
+                throw new IOException("Índice de diccionario inválido en el registro " + registro);
+            }
+            return (int) indice;
+        }
+
+        private String[] leerDiccionario(long fin) throws IOException {
+            asegurar(5, fin);
+            // Cada valor ocupa al menos un byte (su largo)
+            int tamano = leerTamano(fin);
+            String[] valores = new String[tamano];
+            for (int i = 0; i < tamano; i++) {
+                valores[i] = leerCadena(fin);
+            }
+            return valores;
+        }
+
+        private String leerCadena(long fin) throws IOException {
+            asegurar(5, fin);
+            int largo = leerTamano(fin);
+            if (largo == 0) {
+                return "";
+            }
+            byte[] bytes = new byte[largo];
+            int leidos = 0;
+            while (leidos < largo) {
+                asegurar(1, fin);
+                int parte = Math.min(largo - leidos, buffer.remaining());
+                if (parte == 0) {
+                    throw new IOException("Snapshot truncado");
+                }
+                buffer.get(bytes, leidos, parte);
+                leidos += parte;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Un largo o una cantidad que no entra en lo que queda hasta 'fin' viene de un archivo truncado o dañado
+        private int leerTamano(long fin) throws IOException {
+            long tamano = leerVarint();
+            if (tamano < 0 || tamano > Integer.MAX_VALUE - 8 || tamano > fin - posicion + buffer.remaining()) {
+                throw new IOException("Snapshot truncado o dañado: tamaño " + tamano + " fuera de rango");
+            }
+            return (int) tamano;
+        }
+
+        private long leerVarint() throws IOException {
+            long valor = 0;
+            for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+                if (!buffer.hasRemaining()) {
+                    throw new IOException("Snapshot truncado");
+                }
+                byte b = buffer.get();
+                valor |= (long) (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) {
+                    return valor;
+                }
+            }
+            throw new IOException("Varint inválido en el snapshot");
+        }
+
+        // Garantiza 'bytes' disponibles en el buffer, salvo que se llegue antes a 'fin'
+        private void asegurar(int bytes, long fin) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes && posicion < fin) {
+                int limiteLectura = (int) Math.min(buffer.capacity(), buffer.position() + (fin - posicion));
+                buffer.limit(limiteLectura);
+                int leidos = canal.read(buffer, posicion);
+                if (leidos < 0) {
+                    break;
+                }
+                posicion += leidos;
+            }
+            buffer.limit(buffer.capacity());
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    private static final class Diccionario {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> valores = new ArrayList<>();
+
+        int indice(String valor) {
+            Integer indice = indices.get(valor);
+            if (indice == null) {
+                indice = valores.size();
+                indices.put(valor, indice);
+                valores.add(valor);
+            }
+            return indice;
+        }
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long dezigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+}
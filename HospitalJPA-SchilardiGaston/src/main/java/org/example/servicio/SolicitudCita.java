@@ -0,0 +1,16 @@
+package org.example.servicio;
+
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Pedido de reserva para programarCitas (mismos datos que recibe programarCita)
+public record SolicitudCita(Paciente paciente,
+                            Medico medico,
+                            Sala sala,
+                            LocalDateTime fechaHora,
+                            BigDecimal costo) {
+}
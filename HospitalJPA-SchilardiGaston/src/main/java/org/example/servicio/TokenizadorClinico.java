@@ -0,0 +1,73 @@
+package org.example.servicio;
+
+import java.text.Normalizer;
+import java.util.Set;
+
+// Separa el texto de una entrada de historia clínica en términos en minúscula y sin acentos (la ñ se conserva):
+// "Alergia a la Penicilina" -> alergia(0), penicilina(3). Las palabras vacías no se indexan pero ocupan su
+// posición, así una frase las respeta sin guardarlas. Todo lo que no es letra ni dígito separa términos.
+final class TokenizadorClinico {
+
+    private static final Set<String> VACIAS = Set.of("a", "al", "con", "de", "del", "el", "en", "la", "las", "lo",
+            "los", "o", "para", "por", "se", "su", "sus", "un", "una", "y");
+
+    interface Destino {
+        void termino(String termino, int posicion);
+    }
+
+    private TokenizadorClinico() {
+    }
+
+    static void tokenizar(String texto, Destino destino) {
+        StringBuilder actual = new StringBuilder();
+        int posicion = 0;
+        for (int i = 0; i <= texto.length(); i++) {
+            char c = i < texto.length() ? plegar(texto.charAt(i)) : 0;
+            if (c != 0) {
+                actual.append(c);
+            } else if (!actual.isEmpty()) {
+                String termino = actual.toString();
+                if (!VACIAS.contains(termino)) {
+                    destino.termino(termino, posicion);
+                }
+                posicion++;
+                actual.setLength(0);
+            }
+        }
+    }
+
+    // Un término de búsqueda normalizado como al indexar ("Penicilína" -> "penicilina"); null si es una palabra
+    // vacía o no tiene letras ni dígitos
+    static String termino(String texto) {
+        String[] resultado = new String[1];
+        tokenizar(texto, (termino, posicion) -> {
+            if (resultado[0] != null) {
+                throw new IllegalArgumentException("Se esperaba una sola palabra (para varias, buscarFrase): " + texto);
+            }
+            resultado[0] = termino;
+        });
+        return resultado[0];
+    }
+
+    // Letra o dígito en minúscula y sin acento; 0 si separa términos
+    static char plegar(char c) {
+        if (c < 128) {
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                return c;
+            }
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : 0;
+        }
+        char minuscula = Character.toLowerCase(c);
+        return switch (minuscula) {
+            case 'á', 'à', 'â', 'ä' -> 'a';
+            case 'é', 'è', 'ê', 'ë' -> 'e';
+            case 'í', 'ì', 'î', 'ï' -> 'i';
+            case 'ó', 'ò', 'ô', 'ö' -> 'o';
+            case 'ú', 'ù', 'û', 'ü' -> 'u';
+            case 'ñ' -> 'ñ';
+            // Otras letras acentuadas: la letra base de la descomposición
+            default -> Character.isLetterOrDigit(minuscula)
+                    ? Normalizer.normalize(String.valueOf(minuscula), Normalizer.Form.NFD).charAt(0) : 0;
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.servicio;
+
+import org.example.entidades.Medico;
+import org.example.entidades.Sala;
+
+import java.time.LocalDateTime;
+
+// Turno disponible: médico y sala libres durante toda una cita que empiece en fechaHora
+public record TurnoLibre(LocalDateTime fechaHora, Medico medico, Sala sala) {
+}
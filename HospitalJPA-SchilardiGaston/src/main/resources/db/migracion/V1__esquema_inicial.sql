@@ -0,0 +1,97 @@
+-- Esquema tal como lo generaba hbm2ddl cuando los ids eran IDENTITY (el de data/hospidb).
+-- IF NOT EXISTS: en una base creada por hbm2ddl antes de las migraciones esta versión no cambia nada.
+
+CREATE TABLE IF NOT EXISTS Hospitales (
+    idH BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    direccion VARCHAR(255),
+    nombre VARCHAR(255),
+    telefono VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS Departamentos (
+    idDto BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    especialidadMedica VARCHAR(255) CHECK (especialidadMedica IN ('CARDIOLOGIA', 'NEUROLOGIA', 'PEDIATRIA',
+        'TRAUMATOLOGIA', 'GINECOLOGIA', 'UROLOGIA', 'OFTALMOLOGIA', 'DERMATOLOGIA', 'PSIQUIATRIA',
+        'MEDICINA_GENERAL', 'CIRUGIA_GENERAL', 'ANESTESIOLOGIA')),
+    nombre VARCHAR(255),
+    hospital_id BIGINT,
+    CONSTRAINT fk_departamentos_hospital FOREIGN KEY (hospital_id) REFERENCES Hospitales (idH)
+);
+
+CREATE TABLE IF NOT EXISTS Salas (
+    idS BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    numero VARCHAR(255),
+    tipo VARCHAR(255),
+    departamento_id BIGINT,
+    CONSTRAINT fk_salas_departamento FOREIGN KEY (departamento_id) REFERENCES Departamentos (idDto)
+);
+
+CREATE TABLE IF NOT EXISTS Medicos (
+    idM BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    apellido VARCHAR(255),
+    dni VARCHAR(255),
+    fechaNacimiento DATE,
+    nombre VARCHAR(255),
+    tipoSangre VARCHAR(255) CHECK (tipoSangre IN ('A_POSITIVO', 'A_NEGATIVO', 'B_POSITIVO', 'B_NEGATIVO',
+        'AB_POSITIVO', 'AB_NEGATIVO', 'O_POSITIVO', 'O_NEGATIVO')),
+    especialidadMedica VARCHAR(255) NOT NULL CHECK (especialidadMedica IN ('CARDIOLOGIA', 'NEUROLOGIA',
+        'PEDIATRIA', 'TRAUMATOLOGIA', 'GINECOLOGIA', 'UROLOGIA', 'OFTALMOLOGIA', 'DERMATOLOGIA', 'PSIQUIATRIA',
+        'MEDICINA_GENERAL', 'CIRUGIA_GENERAL', 'ANESTESIOLOGIA')),
+    numero VARCHAR(255),
+    departamento_id BIGINT,
+    CONSTRAINT fk_medicos_departamento FOREIGN KEY (departamento_id) REFERENCES Departamentos (idDto)
+);
+
+CREATE TABLE IF NOT EXISTS Pacientes (
+    idP BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    apellido VARCHAR(255),
+    dni VARCHAR(255),
+    fechaNacimiento DATE,
+    nombre VARCHAR(255),
+    tipoSangre VARCHAR(255) CHECK (tipoSangre IN ('A_POSITIVO', 'A_NEGATIVO', 'B_POSITIVO', 'B_NEGATIVO',
+        'AB_POSITIVO', 'AB_NEGATIVO', 'O_POSITIVO', 'O_NEGATIVO')),
+    direccion VARCHAR(255),
+    telefono VARCHAR(255),
+    hospital_id BIGINT,
+    CONSTRAINT fk_pacientes_hospital FOREIGN KEY (hospital_id) REFERENCES Hospitales (idH)
+);
+
+CREATE TABLE IF NOT EXISTS Historias_Clinicas (
+    idHC BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fechaCreacion TIMESTAMP(6),
+    numeroHistoria VARCHAR(255),
+    paciente_id BIGINT NOT NULL UNIQUE,
+    CONSTRAINT fk_historias_paciente FOREIGN KEY (paciente_id) REFERENCES Pacientes (idP)
+);
+
+CREATE TABLE IF NOT EXISTS historia_diagnosticos (
+    historia_id BIGINT NOT NULL,
+    diagnostico VARCHAR(255),
+    CONSTRAINT fk_diagnosticos_historia FOREIGN KEY (historia_id) REFERENCES Historias_Clinicas (idHC)
+);
+
+CREATE TABLE IF NOT EXISTS historia_tratamientos (
+    historia_id BIGINT NOT NULL,
+    tratamiento VARCHAR(255),
+    CONSTRAINT fk_tratamientos_historia FOREIGN KEY (historia_id) REFERENCES Historias_Clinicas (idHC)
+);
+
+CREATE TABLE IF NOT EXISTS historia_alergias (
+    historia_id BIGINT NOT NULL,
+    alergia VARCHAR(255),
+    CONSTRAINT fk_alergias_historia FOREIGN KEY (historia_id) REFERENCES Historias_Clinicas (idHC)
+);
+
+CREATE TABLE IF NOT EXISTS Citas (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    costo NUMERIC(38, 2),
+    estado VARCHAR(255) CHECK (estado IN ('PROGRAMADA', 'EN_CURSO', 'COMPLETADA', 'CANCELADA', 'NO_ASISTIO')),
+    fechaHora TIMESTAMP(6),
+    observaciones VARCHAR(255),
+    medico_id BIGINT NOT NULL,
+    paciente_id BIGINT NOT NULL,
+    sala_id BIGINT NOT NULL,
+    CONSTRAINT fk_citas_medico FOREIGN KEY (medico_id) REFERENCES Medicos (idM),
+    CONSTRAINT fk_citas_paciente FOREIGN KEY (paciente_id) REFERENCES Pacientes (idP),
+    CONSTRAINT fk_citas_sala FOREIGN KEY (sala_id) REFERENCES Salas (idS)
+);
@@ -0,0 +1,27 @@
+-- Ids por secuencia en lugar de IDENTITY (necesario para el batch de INSERT). Cada secuencia arranca en
+-- max(id) + 50: el optimizador pooled de Hibernate toma el valor leído como tope del bloque de 50 ids, así el
+-- primer bloque empieza después de los ids existentes. Se recrean porque hbm2ddl update las creaba desde 1.
+
+ALTER TABLE Hospitales ALTER COLUMN idH DROP IDENTITY;
+ALTER TABLE Departamentos ALTER COLUMN idDto DROP IDENTITY;
+ALTER TABLE Salas ALTER COLUMN idS DROP IDENTITY;
+ALTER TABLE Medicos ALTER COLUMN idM DROP IDENTITY;
+ALTER TABLE Pacientes ALTER COLUMN idP DROP IDENTITY;
+ALTER TABLE Historias_Clinicas ALTER COLUMN idHC DROP IDENTITY;
+ALTER TABLE Citas ALTER COLUMN id DROP IDENTITY;
+
+DROP SEQUENCE IF EXISTS hospitales_seq;
+DROP SEQUENCE IF EXISTS departamentos_seq;
+DROP SEQUENCE IF EXISTS salas_seq;
+DROP SEQUENCE IF EXISTS medicos_seq;
+DROP SEQUENCE IF EXISTS pacientes_seq;
+DROP SEQUENCE IF EXISTS historias_clinicas_seq;
+DROP SEQUENCE IF EXISTS citas_seq;
+
+CREATE SEQUENCE hospitales_seq START WITH (SELECT COALESCE(MAX(idH), 0) + 50 FROM Hospitales) INCREMENT BY 50;
+CREATE SEQUENCE departamentos_seq START WITH (SELECT COALESCE(MAX(idDto), 0) + 50 FROM Departamentos) INCREMENT BY 50;
+CREATE SEQUENCE salas_seq START WITH (SELECT COALESCE(MAX(idS), 0) + 50 FROM Salas) INCREMENT BY 50;
+CREATE SEQUENCE medicos_seq START WITH (SELECT COALESCE(MAX(idM), 0) + 50 FROM Medicos) INCREMENT BY 50;
+CREATE SEQUENCE pacientes_seq START WITH (SELECT COALESCE(MAX(idP), 0) + 50 FROM Pacientes) INCREMENT BY 50;
+CREATE SEQUENCE historias_clinicas_seq START WITH (SELECT COALESCE(MAX(idHC), 0) + 50 FROM Historias_Clinicas) INCREMENT BY 50;
+CREATE SEQUENCE citas_seq START WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM Citas) INCREMENT BY 50;
@@ -0,0 +1,6 @@
+-- Índices de Cita (@Table(indexes)): listados por fecha con keyset, agenda por médico y por sala, filtro por estado
+
+CREATE INDEX IF NOT EXISTS ix_citas_fecha ON Citas (fechaHora, id);
+CREATE INDEX IF NOT EXISTS ix_citas_medico_fecha ON Citas (medico_id, fechaHora);
+CREATE INDEX IF NOT EXISTS ix_citas_sala_fecha ON Citas (sala_id, fechaHora);
+CREATE INDEX IF NOT EXISTS ix_citas_estado ON Citas (estado);
@@ -0,0 +1,16 @@
+-- DNI (Persona), matrícula (Matricula) y número de sala obligatorios y únicos. Falla si la base tiene
+-- duplicados: hbm2ddl update los ignoraba en silencio y dejaba las tablas sin estas restricciones.
+
+ALTER TABLE Medicos ALTER COLUMN dni SET DATA TYPE VARCHAR(8);
+ALTER TABLE Medicos ALTER COLUMN dni SET NOT NULL;
+ALTER TABLE Medicos ADD CONSTRAINT IF NOT EXISTS uk_medicos_dni UNIQUE (dni);
+ALTER TABLE Medicos ALTER COLUMN numero SET DATA TYPE VARCHAR(9);
+ALTER TABLE Medicos ALTER COLUMN numero SET NOT NULL;
+ALTER TABLE Medicos ADD CONSTRAINT IF NOT EXISTS uk_medicos_matricula UNIQUE (numero);
+
+ALTER TABLE Pacientes ALTER COLUMN dni SET DATA TYPE VARCHAR(8);
+ALTER TABLE Pacientes ALTER COLUMN dni SET NOT NULL;
+ALTER TABLE Pacientes ADD CONSTRAINT IF NOT EXISTS uk_pacientes_dni UNIQUE (dni);
+
+ALTER TABLE Salas ALTER COLUMN numero SET NOT NULL;
+ALTER TABLE Salas ADD CONSTRAINT IF NOT EXISTS uk_salas_numero UNIQUE (numero);
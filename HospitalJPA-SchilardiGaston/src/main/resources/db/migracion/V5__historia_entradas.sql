@@ -0,0 +1,46 @@
+-- Diagnósticos, tratamientos y alergias pasan de las tres colecciones (bags de Hibernate: agregar uno borraba
+-- y reinsertaba toda la colección) a una tabla de entradas con fecha, donde agregar es un INSERT.
+-- Las entradas existentes no tienen fecha propia: toman la de creación de la historia. Si se repite después
+-- de una falla, no se vuelven a copiar las historias que ya tienen entradas de ese tipo.
+
+CREATE TABLE IF NOT EXISTS historia_entradas (
+    id BIGINT PRIMARY KEY,
+    historia_id BIGINT NOT NULL,
+    tipo VARCHAR(255) NOT NULL CHECK (tipo IN ('DIAGNOSTICO', 'TRATAMIENTO', 'ALERGIA')),
+    texto VARCHAR(255) NOT NULL,
+    fecha TIMESTAMP(6) NOT NULL
+);
+
+-- Páginas de una historia de la más nueva a la más vieja: las de un tipo salen ordenadas de este índice; las de
+-- todos los tipos usan el índice de la FK sobre historia_id (H2 ordena las entradas de un solo paciente)
+CREATE INDEX IF NOT EXISTS ix_historia_entradas_tipo_fecha ON historia_entradas (historia_id, tipo, fecha DESC, id DESC);
+-- ON DELETE CASCADE: borrar la historia (orphanRemoval desde Paciente) borra sus entradas, como las colecciones
+ALTER TABLE historia_entradas ADD CONSTRAINT IF NOT EXISTS fk_entradas_historia
+    FOREIGN KEY (historia_id) REFERENCES Historias_Clinicas (idHC) ON DELETE CASCADE;
+
+CREATE SEQUENCE IF NOT EXISTS historia_entradas_seq START WITH 50 INCREMENT BY 50;
+
+INSERT INTO historia_entradas (id, historia_id, tipo, texto, fecha)
+SELECT NEXT VALUE FOR historia_entradas_seq, d.historia_id, 'DIAGNOSTICO', d.diagnostico,
+       COALESCE(h.fechaCreacion, CURRENT_TIMESTAMP)
+FROM historia_diagnosticos d JOIN Historias_Clinicas h ON h.idHC = d.historia_id
+WHERE TRIM(d.diagnostico) <> ''
+  AND NOT EXISTS (SELECT 1 FROM historia_entradas e WHERE e.historia_id = d.historia_id AND e.tipo = 'DIAGNOSTICO');
+
+INSERT INTO historia_entradas (id, historia_id, tipo, texto, fecha)
+SELECT NEXT VALUE FOR historia_entradas_seq, t.historia_id, 'TRATAMIENTO', t.tratamiento,
+       COALESCE(h.fechaCreacion, CURRENT_TIMESTAMP)
+FROM historia_tratamientos t JOIN Historias_Clinicas h ON h.idHC = t.historia_id
+WHERE TRIM(t.tratamiento) <> ''
+  AND NOT EXISTS (SELECT 1 FROM historia_entradas e WHERE e.historia_id = t.historia_id AND e.tipo = 'TRATAMIENTO');
+
+INSERT INTO historia_entradas (id, historia_id, tipo, texto, fecha)
+SELECT NEXT VALUE FOR historia_entradas_seq, a.historia_id, 'ALERGIA', a.alergia,
+       COALESCE(h.fechaCreacion, CURRENT_TIMESTAMP)
+FROM historia_alergias a JOIN Historias_Clinicas h ON h.idHC = a.historia_id
+WHERE TRIM(a.alergia) <> ''
+  AND NOT EXISTS (SELECT 1 FROM historia_entradas e WHERE e.historia_id = a.historia_id AND e.tipo = 'ALERGIA');
+
+DROP TABLE IF EXISTS historia_diagnosticos;
+DROP TABLE IF EXISTS historia_tratamientos;
+DROP TABLE IF EXISTS historia_alergias;
@@ -0,0 +1,3 @@
+-- Rangos de fechas por paciente (Paciente.getCitasEntre/getCitasDelDia sin cargar la colección)
+
+CREATE INDEX IF NOT EXISTS ix_citas_paciente_fecha ON Citas (paciente_id, fechaHora);
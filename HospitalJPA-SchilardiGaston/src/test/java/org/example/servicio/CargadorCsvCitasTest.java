@@ -0,0 +1,126 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// La carga paralela por bloques tiene que dar lo mismo que parsear el archivo línea por línea
+class CargadorCsvCitasTest {
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directorio;
+
+    private final DatosPrueba datos = new DatosPrueba(50, 7, 5);
+
+    @BeforeAll
+    static void crearPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void cerrarPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void cargaParalelaIgualASecuencial() throws Exception {
+        Path archivo = escribirCsv(2_000);
+        List<String> lineas = Files.readAllLines(archivo, StandardCharsets.UTF_8);
+
+        // Bloques de pocos bytes: muchos cortes, varios en medio de una línea
+        IndicesCitas paralela = cargador(97).cargar(archivo);
+        IndicesCitas secuencial = IndicesCitas.construir(secuencial(lineas), CitaManager.DURACION_CITA, pool);
+
+        assertEquals(lineas, csv(paralela.citas));
+        assertEquals(csv(secuencial.citas), csv(paralela.citas));
+        assertEquals(secuencial.citasPorPaciente.keySet(), paralela.citasPorPaciente.keySet());
+        for (Map.Entry<Paciente, List<Cita>> entrada : secuencial.citasPorPaciente.entrySet()) {
+            assertEquals(csv(entrada.getValue()), csv(paralela.citasPorPaciente.get(entrada.getKey())));
+        }
+        assertEquals(secuencial.citasPorMedico.keySet(), paralela.citasPorMedico.keySet());
+        for (Map.Entry<Medico, Agenda> entrada : secuencial.citasPorMedico.entrySet()) {
+            assertEquals(csv(entrada.getValue().getCitas()), csv(paralela.citasPorMedico.get(entrada.getKey()).getCitas()));
+        }
+        assertEquals(secuencial.citasPorSala.keySet(), paralela.citasPorSala.keySet());
+        for (Map.Entry<Sala, Agenda> entrada : secuencial.citasPorSala.entrySet()) {
+            assertEquals(csv(entrada.getValue().getCitas()), csv(paralela.citasPorSala.get(entrada.getKey()).getCitas()));
+        }
+    }
+
+    @Test
+    void unBloqueOMuchosDanLoMismo() throws Exception {
+        Path archivo = escribirCsv(500);
+        assertEquals(csv(cargador(CargadorCsvCitas.TAMANO_BLOQUE).cargar(archivo).citas),
+                csv(cargador(1).cargar(archivo).citas));
+    }
+
+    @Test
+    void lineaInvalidaRechazaLaCarga() throws Exception {
+        Path archivo = escribirCsv(300);
+        List<String> lineas = new ArrayList<>(Files.readAllLines(archivo, StandardCharsets.UTF_8));
+        lineas.set(250, lineas.get(250).replace(datos.medico(250 % 7).getDni(), "99999999"));
+        Files.write(archivo, lineas, StandardCharsets.UTF_8);
+        assertThrows(CitaException.class, () -> cargador(97).cargar(archivo));
+    }
+
+    private CargadorCsvCitas cargador(int tamanoBloque) {
+        return new CargadorCsvCitas(datos.pacientes, datos.medicos, datos.salas, CitaManager.DURACION_CITA, pool,
+                tamanoBloque);
+    }
+
+    // Citas de cada médico cada 2 horas, con todos los estados y observaciones con ';' y caracteres no ASCII
+    private Path escribirCsv(int cantidad) throws Exception {
+        EstadoCita[] estados = EstadoCita.values();
+        List<String> lineas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Cita cita = Cita.builder()
+                    .paciente(datos.paciente(i % 50))
+                    .medico(datos.medico(i % 7))
+                    .sala(datos.sala(i % 5))
+                    .fechaHora(DatosPrueba.INICIO.plusHours(2L * (i / 7)))
+                    .costo(DatosPrueba.COSTO.add(BigDecimal.valueOf(i, 2)))
+                    .estado(estados[i % estados.length])
+                    .observaciones(i % 3 == 0 ? "" : "control, año " + i)
+                    .build();
+            lineas.add(cita.toCsvString());
+        }
+        Path archivo = directorio.resolve("citas.csv");
+        Files.write(archivo, lineas, StandardCharsets.UTF_8);
+        return archivo;
+    }
+
+    private List<Cita> secuencial(List<String> lineas) throws CitaException {
+        List<Cita> citas = new ArrayList<>(lineas.size());
+        for (String linea : lineas) {
+            citas.add(Cita.fromCsvString(linea, datos.pacientes, datos.medicos, datos.salas));
+        }
+        return citas;
+    }
+
+    private static List<String> csv(List<Cita> citas) {
+        List<String> lineas = new ArrayList<>(citas.size());
+        for (Cita cita : citas) {
+            lineas.add(cita.toCsvString());
+        }
+        return lineas;
+    }
+}
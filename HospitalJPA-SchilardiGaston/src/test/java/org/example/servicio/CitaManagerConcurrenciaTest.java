@@ -0,0 +1,95 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.metricas.RegistroMetricas;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Reservas simultáneas sobre médicos y salas compartidos: con las franjas, ningún par de citas aceptadas
+// se superpone y cada rechazo es por un conflicto real
+class CitaManagerConcurrenciaTest {
+
+    private static final int HILOS = 8;
+    private static final int TURNOS = 120;
+    private static final int RONDAS = 30;
+
+    @Test
+    void reservasConcurrentesNoSeSuperponen() throws Exception {
+        DatosPrueba datos = new DatosPrueba(HILOS, 2, 2);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        try {
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                ronda(datos, ejecutor, ronda);
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    private void ronda(DatosPrueba datos, ExecutorService ejecutor, int ronda) throws Exception {
+        // Pocas franjas: claves distintas comparten lock y se ejercita también ese caso
+        CitaManager manager = new CitaManager(4, new RegistroMetricas());
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<List<Cita>>> resultados = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            resultados.add(ejecutor.submit(() -> {
+                // Turnos cada 30 minutos (las citas duran 2 horas). En las rondas pares todos los hilos van en
+                // el mismo orden y compiten por el mismo turno a la vez; en las impares, cada uno en otro orden.
+                List<Integer> turnos = new ArrayList<>();
+                for (int t = 0; t < TURNOS; t++) {
+                    turnos.add(t);
+                }
+                if (ronda % 2 == 1) {
+                    Collections.shuffle(turnos, new Random(ronda * HILOS + hilo));
+                }
+                List<Cita> aceptadas = new ArrayList<>();
+                largada.await();
+                for (int t : turnos) {
+                    try {
+                        aceptadas.add(manager.programarCita(datos.paciente(hilo), datos.medico(hilo % 2),
+                                datos.sala(t % 2), DatosPrueba.INICIO.plusMinutes(30L * t), DatosPrueba.COSTO));
+                    } catch (CitaException e) {
+                        assertTrue(e.getMotivo() == CitaException.Motivo.MEDICO_OCUPADO
+                                || e.getMotivo() == CitaException.Motivo.SALA_OCUPADA, e.getMessage());
+                    }
+                }
+                return aceptadas;
+            }));
+        }
+        largada.countDown();
+        List<Cita> aceptadas = new ArrayList<>();
+        for (Future<List<Cita>> resultado : resultados) {
+            aceptadas.addAll(resultado.get(1, TimeUnit.MINUTES));
+        }
+
+        assertFalse(aceptadas.isEmpty());
+        assertEquals(aceptadas.size(), manager.getCitas().size());
+        for (int i = 0; i < aceptadas.size(); i++) {
+            for (int j = i + 1; j < aceptadas.size(); j++) {
+                Cita a = aceptadas.get(i);
+                Cita b = aceptadas.get(j);
+                if (seSuperponen(a.getFechaHora(), b.getFechaHora())) {
+                    assertNotSame(a.getMedico(), b.getMedico(), "Médico con dos citas superpuestas");
+                    assertNotSame(a.getSala(), b.getSala(), "Sala con dos citas superpuestas");
+                }
+            }
+        }
+    }
+
+    private static boolean seSuperponen(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b.plus(CitaManager.DURACION_CITA)) && b.isBefore(a.plus(CitaManager.DURACION_CITA));
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.servicio;
+
+import org.example.entidades.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Entidades en memoria para los tests (DNIs, matrículas y salas únicos por índice)
+final class DatosPrueba {
+
+    static final LocalDateTime INICIO = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+    static final BigDecimal COSTO = new BigDecimal("15000.00");
+
+    final Departamento departamento = Departamento.builder()
+            .nombre("Cardiología")
+            .especialidad(EspecialidadMedica.CARDIOLOGIA)
+            .build();
+    final Map<String, Paciente> pacientes = new LinkedHashMap<>();
+    final Map<String, Medico> medicos = new LinkedHashMap<>();
+    final Map<String, Sala> salas = new LinkedHashMap<>();
+
+    DatosPrueba(int cantidadPacientes, int cantidadMedicos, int cantidadSalas) {
+        for (int i = 0; i < cantidadPacientes; i++) {
+            Paciente paciente = Paciente.builder()
+                    .nombre("Paciente").apellido("Apellido" + i).dni(String.valueOf(20_000_000 + i))
+                    .fechaNacimiento(LocalDate.of(1990, Month.JUNE, 15))
+                    .tipoSangre(TipoSangre.A_POSITIVO)
+                    .telefono("+54 261 600-0000")
+                    .direccion("Calle " + i)
+                    .build();
+            pacientes.put(paciente.getDni(), paciente);
+        }
+        for (int i = 0; i < cantidadMedicos; i++) {
+            Medico medico = Medico.builder()
+                    .nombre("Medico").apellido("Apellido" + i).dni(String.valueOf(10_000_000 + i))
+                    .fechaNacimiento(LocalDate.of(1980, Month.MARCH, 1))
+                    .tipoSangre(TipoSangre.O_POSITIVO)
+                    .especialidadMedica(EspecialidadMedica.CARDIOLOGIA)
+                    .matricula(new Matricula("MP-" + (100_000 + i)))
+                    .build();
+            departamento.agregarMedico(medico);
+            medicos.put(medico.getDni(), medico);
+        }
+        for (int i = 0; i < cantidadSalas; i++) {
+            Sala sala = departamento.crearSala("S-" + i, "Consultorio " + i);
+            salas.put(sala.getNumero(), sala);
+        }
+    }
+
+    Paciente paciente(int i) {
+        return pacientes.get(String.valueOf(20_000_000 + i));
+    }
+
+    Medico medico(int i) {
+        return medicos.get(String.valueOf(10_000_000 + i));
+    }
+
+    Sala sala(int i) {
+        return salas.get("S-" + i);
+    }
+}
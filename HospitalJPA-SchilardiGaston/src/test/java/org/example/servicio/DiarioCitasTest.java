@@ -0,0 +1,147 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.metricas.RegistroMetricas;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioCitasTest {
+
+    @TempDir
+    Path directorio;
+
+    private final DatosPrueba datos = new DatosPrueba(10, 3, 3);
+
+    // Se registra una serie de cambios y después se simula una caída a mitad del último registro (cada
+    // largo posible) o con el último registro dañado: la recuperación tiene que dar el estado previo a él.
+    @Test
+    void recuperaHastaElUltimoRegistroCompleto() throws Exception {
+        Path snapshot = directorio.resolve("citas.snap");
+        Path diario = directorio.resolve("citas.wal");
+        CitaManager manager = nuevoManager();
+        manager.abrirDiario(snapshot.toString(), diario.toString(), DiarioCitas.Durabilidad.SINCRONA,
+                datos.pacientes, datos.medicos, datos.salas);
+
+        List<Long> tamanos = new ArrayList<>();
+        List<List<String>> estados = new ArrayList<>();
+        tamanos.add(Files.size(diario));
+        estados.add(csv(manager.getCitas()));
+        List<Cita> citas = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            citas.add(manager.programarCita(datos.paciente(i % 10), datos.medico(i % 3), datos.sala(i % 3),
+                    DatosPrueba.INICIO.plusHours(2L * (i / 3)), DatosPrueba.COSTO));
+            tamanos.add(Files.size(diario));
+            estados.add(csv(manager.getCitas()));
+        }
+        manager.cambiarEstado(citas.get(4), EstadoCita.EN_CURSO);
+        tamanos.add(Files.size(diario));
+        estados.add(csv(manager.getCitas()));
+        manager.cambiarObservaciones(citas.get(7), "llega tarde, avisó por teléfono");
+        tamanos.add(Files.size(diario));
+        estados.add(csv(manager.getCitas()));
+
+        byte[] completo = Files.readAllBytes(diario);
+        byte[] snapshotBytes = Files.readAllBytes(snapshot);
+        manager.cerrarDiario();
+        int ultimo = tamanos.size() - 1;
+        assertEquals(completo.length, tamanos.get(ultimo));
+
+        assertEquals(estados.get(ultimo), recuperar(snapshotBytes, completo));
+        int inicioUltimo = tamanos.get(ultimo - 1).intValue();
+        for (int largo = inicioUltimo; largo < completo.length; largo++) {
+            assertEquals(estados.get(ultimo - 1), recuperar(snapshotBytes, Arrays.copyOf(completo, largo)),
+                    "diario cortado en " + largo);
+        }
+        byte[] danado = completo.clone();
+        danado[danado.length - 1] ^= 0x01;
+        assertEquals(estados.get(ultimo - 1), recuperar(snapshotBytes, danado));
+
+        // Un corte en el medio de un alta deja afuera esa cita y todo lo posterior
+        int medio = tamanos.get(6).intValue() + 5;
+        assertEquals(estados.get(6), recuperar(snapshotBytes, Arrays.copyOf(completo, medio)));
+    }
+
+    // El diario se trunca al último registro válido, y lo que se agrega después se recupera bien
+    @Test
+    void truncaElRegistroCortadoYSigueAgregando() throws Exception {
+        Path snapshot = directorio.resolve("citas.snap");
+        Path diario = directorio.resolve("citas.wal");
+        CitaManager manager = nuevoManager();
+        manager.abrirDiario(snapshot.toString(), diario.toString(), DiarioCitas.Durabilidad.SINCRONA,
+                datos.pacientes, datos.medicos, datos.salas);
+        manager.programarCita(datos.paciente(0), datos.medico(0), datos.sala(0), DatosPrueba.INICIO, DatosPrueba.COSTO);
+        long valido = Files.size(diario);
+        manager.programarCita(datos.paciente(1), datos.medico(1), datos.sala(1), DatosPrueba.INICIO, DatosPrueba.COSTO);
+        byte[] completo = Files.readAllBytes(diario);
+        manager.cerrarDiario();
+        Files.write(diario, Arrays.copyOf(completo, completo.length - 3));
+
+        List<String> altas = new ArrayList<>();
+        long reproducidos = DiarioCitas.reproducir(diario, new DiarioCitas.Visitante() {
+            @Override
+            public void alta(String dniMedico, long minutos, String dniPaciente, String numeroSala, long centavos,
+                             EstadoCita estado, String observaciones) {
+                altas.add(dniMedico);
+            }
+
+            @Override
+            public void estado(String dniMedico, long minutos, EstadoCita estado) {
+                fail("no hay cambios de estado");
+            }
+
+            @Override
+            public void observaciones(String dniMedico, long minutos, String observaciones) {
+                fail("no hay cambios de observaciones");
+            }
+        });
+        assertEquals(1, reproducidos);
+        assertEquals(List.of(datos.medico(0).getDni()), altas);
+        assertEquals(valido, Files.size(diario));
+
+        CitaManager recuperado = nuevoManager();
+        recuperado.abrirDiario(snapshot.toString(), diario.toString(), DiarioCitas.Durabilidad.SINCRONA,
+                datos.pacientes, datos.medicos, datos.salas);
+        recuperado.programarCita(datos.paciente(2), datos.medico(2), datos.sala(2), DatosPrueba.INICIO, DatosPrueba.COSTO);
+        List<String> esperado = csv(recuperado.getCitas());
+        recuperado.cerrarDiario();
+
+        CitaManager otraVez = nuevoManager();
+        otraVez.abrirDiario(snapshot.toString(), diario.toString(), DiarioCitas.Durabilidad.SINCRONA,
+                datos.pacientes, datos.medicos, datos.salas);
+        assertEquals(esperado, csv(otraVez.getCitas()));
+        assertEquals(2, esperado.size());
+        otraVez.cerrarDiario();
+    }
+
+    // Recupera en un directorio aparte, a partir del snapshot y el diario que habría dejado la caída
+    private List<String> recuperar(byte[] snapshotBytes, byte[] diarioBytes) throws Exception {
+        Path caida = Files.createTempDirectory(directorio, "caida");
+        Path snapshot = caida.resolve("citas.snap");
+        Path diario = caida.resolve("citas.wal");
+        Files.write(snapshot, snapshotBytes);
+        Files.write(diario, diarioBytes);
+        CitaManager recuperado = nuevoManager();
+        recuperado.abrirDiario(snapshot.toString(), diario.toString(), DiarioCitas.Durabilidad.SIN_FSYNC,
+                datos.pacientes, datos.medicos, datos.salas);
+        recuperado.cerrarDiario();
+        return csv(recuperado.getCitas());
+    }
+
+    private CitaManager nuevoManager() {
+        return new CitaManager(16, new RegistroMetricas());
+    }
+
+    private static List<String> csv(List<Cita> citas) {
+        return citas.stream().map(Cita::toCsvString).sorted().toList();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.metricas.RegistroMetricas;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuardadoIncrementalTest {
+
+    @TempDir
+    Path directorio;
+
+    private final DatosPrueba datos = new DatosPrueba(30, 6, 6);
+
+    // Varias rondas de altas y cambios guardadas como segmentos (más de las que disparan la compactación):
+    // la base más los segmentos tiene que dar lo mismo que un guardado completo
+    @Test
+    void baseMasSegmentosIgualAGuardadoCompleto() throws Exception {
+        CitaManager manager = new CitaManager(16, new RegistroMetricas());
+        Path base = directorio.resolve("citas.csv");
+        Path completo = directorio.resolve("completo.csv");
+        Random random = new Random(7);
+        EstadoCita[] estados = EstadoCita.values();
+        int altas = 0;
+        altas = programar(manager, altas, 60);
+        manager.guardarIncremental(base.toString());
+
+        for (int ronda = 0; ronda < 3 * GuardadoIncremental.SEGMENTOS_PARA_COMPACTAR; ronda++) {
+            List<Cita> citas = manager.getCitas();
+            for (int i = 0; i < 10; i++) {
+                Cita cita = citas.get(random.nextInt(citas.size()));
+                if (random.nextBoolean()) {
+                    manager.cambiarEstado(cita, estados[random.nextInt(estados.length)]);
+                } else {
+                    manager.cambiarObservaciones(cita, "ronda " + ronda + ", cambio " + i);
+                }
+            }
+            altas = programar(manager, altas, 5);
+            manager.guardarIncremental(base.toString());
+
+            manager.guardarCitas(completo.toString());
+            CitaManager cargado = new CitaManager(16, new RegistroMetricas());
+            cargado.cargarIncremental(base.toString(), datos.pacientes, datos.medicos, datos.salas);
+            assertEquals(lineas(completo), csv(cargado.getCitas()), "ronda " + ronda);
+            cargado.cerrarIncremental();
+        }
+        // cargarIncremental compacta antes de leer: la base queda sola y con todo
+        CitaManager cargado = new CitaManager(16, new RegistroMetricas());
+        cargado.cargarIncremental(base.toString(), datos.pacientes, datos.medicos, datos.salas);
+        assertEquals(lineas(completo), lineas(base));
+        try (var archivos = Files.list(directorio)) {
+            assertTrue(archivos.noneMatch(archivo -> archivo.getFileName().toString().contains(".delta.")));
+        }
+        cargado.cerrarIncremental();
+        manager.cerrarIncremental();
+    }
+
+    // La instancia de una base vive mientras algún manager la tenga asociada
+    @Test
+    void laBaseSeLiberaConElUltimoManager() throws Exception {
+        Path base = directorio.resolve("citas.csv");
+        Path otra = directorio.resolve("otra.csv");
+        CitaManager uno = new CitaManager(16, new RegistroMetricas());
+        CitaManager dos = new CitaManager(16, new RegistroMetricas());
+        programar(uno, 0, 12);
+        uno.guardarIncremental(base.toString());
+        dos.cargarIncremental(base.toString(), datos.pacientes, datos.medicos, datos.salas);
+        GuardadoIncremental compartida = GuardadoIncremental.registrada(base);
+        assertNotNull(compartida);
+
+        uno.guardarIncremental(otra.toString());
+        assertSame(compartida, GuardadoIncremental.registrada(base));
+        // Cargar de otro lado también suelta la base
+        dos.cargarCitas(otra.toString(), datos.pacientes, datos.medicos, datos.salas);
+        assertNull(GuardadoIncremental.registrada(base));
+        assertTrue(compartida.terminada());
+
+        uno.cerrarIncremental();
+        assertNull(GuardadoIncremental.registrada(otra));
+
+        // Una carga que falla no deja la base adquirida
+        Files.writeString(base, "no es una cita\n");
+        assertThrows(CitaException.class,
+                () -> dos.cargarIncremental(base.toString(), datos.pacientes, datos.medicos, datos.salas));
+        assertNull(GuardadoIncremental.registrada(base));
+    }
+
+    private int programar(CitaManager manager, int desde, int cantidad) throws CitaException {
+        for (int i = desde; i < desde + cantidad; i++) {
+            manager.programarCita(datos.paciente(i % 30), datos.medico(i % 6), datos.sala(i % 6),
+                    DatosPrueba.INICIO.plusHours(2L * (i / 6)), DatosPrueba.COSTO);
+        }
+        return desde + cantidad;
+    }
+
+    private static List<String> lineas(Path archivo) throws Exception {
+        return Files.readAllLines(archivo).stream().filter(linea -> !linea.isEmpty()).sorted().toList();
+    }
+
+    private static List<String> csv(List<Cita> citas) {
+        return citas.stream().map(Cita::toCsvString).sorted().toList();
+    }
+}
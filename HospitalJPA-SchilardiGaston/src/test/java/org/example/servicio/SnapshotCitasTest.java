@@ -0,0 +1,124 @@
+package org.example.servicio;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.metricas.RegistroMetricas;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCitasTest {
+
+    @TempDir
+    Path directorio;
+
+    private final DatosPrueba datos = new DatosPrueba(20, 4, 4);
+
+    @Test
+    void guardarYCargarDevuelveLasMismasCitas() throws Exception {
+        CitaManager original = managerConCitas(300);
+        Path snapshot = directorio.resolve("citas.snap");
+        original.guardarSnapshot(snapshot.toString());
+
+        CitaManager cargado = nuevoManager();
+        cargado.cargarSnapshot(snapshot.toString(), datos.pacientes, datos.medicos, datos.salas);
+
+        assertEquals(csv(original.getCitas()), csv(cargado.getCitas()));
+        assertEquals(csv(original.getCitasPorMedico(datos.medico(1))), csv(cargado.getCitasPorMedico(datos.medico(1))));
+    }
+
+    @Test
+    void snapshotVacio() throws Exception {
+        Path snapshot = directorio.resolve("vacio.snap");
+        nuevoManager().guardarSnapshot(snapshot.toString());
+        CitaManager cargado = managerConCitas(3);
+        cargado.cargarSnapshot(snapshot.toString(), datos.pacientes, datos.medicos, datos.salas);
+        assertTrue(cargado.getCitas().isEmpty());
+    }
+
+    // Cada largo posible menor al completo: siempre IOException (nunca un bucle ni otro tipo de error)
+    // y el estado cargado antes no se toca
+    @Test
+    void snapshotTruncadoDaIOException() throws Exception {
+        Path snapshot = directorio.resolve("citas.snap");
+        managerConCitas(40).guardarSnapshot(snapshot.toString());
+        byte[] completo = Files.readAllBytes(snapshot);
+        Path truncado = directorio.resolve("truncado.snap");
+        CitaManager manager = managerConCitas(5);
+        List<String> antes = csv(manager.getCitas());
+        for (int largo = 0; largo < completo.length; largo++) {
+            Files.write(truncado, Arrays.copyOf(completo, largo));
+            int cortado = largo;
+            assertThrows(IOException.class,
+                    () -> manager.cargarSnapshot(truncado.toString(), datos.pacientes, datos.medicos, datos.salas),
+                    () -> "largo " + cortado + " de " + completo.length);
+            assertEquals(antes, csv(manager.getCitas()));
+        }
+    }
+
+    @Test
+    void largoDeCadenaDanadoDaIOException() throws Exception {
+        Path snapshot = directorio.resolve("citas.snap");
+        managerConCitas(10).guardarSnapshot(snapshot.toString());
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // Primer byte de los diccionarios (cantidad de pacientes): un varint enorme
+        int diccionarios = (int) java.nio.ByteBuffer.wrap(bytes, 16, 8).getLong();
+        byte[] danado = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, danado, 0, diccionarios);
+        danado[diccionarios] = (byte) 0xFF;
+        danado[diccionarios + 1] = (byte) 0xFF;
+        danado[diccionarios + 2] = (byte) 0xFF;
+        danado[diccionarios + 3] = (byte) 0xFF;
+        danado[diccionarios + 4] = (byte) 0x07;
+        System.arraycopy(bytes, diccionarios + 1, danado, diccionarios + 5, bytes.length - diccionarios - 1);
+        Files.write(snapshot, danado);
+        assertThrows(IOException.class, () -> new SnapshotCitas.Lector(snapshot).close());
+    }
+
+    // Un costo que no entra en centavos hace fallar la escritura: el snapshot anterior queda intacto
+    @Test
+    void escrituraFallidaNoReemplazaElAnterior() throws Exception {
+        Path snapshot = directorio.resolve("citas.snap");
+        CitaManager manager = managerConCitas(10);
+        manager.guardarSnapshot(snapshot.toString());
+        byte[] anterior = Files.readAllBytes(snapshot);
+
+        manager.programarCita(datos.paciente(0), datos.medico(0), datos.sala(0),
+                DatosPrueba.INICIO.plusYears(1), new BigDecimal("10.005"));
+        assertThrows(IllegalArgumentException.class, () -> manager.guardarSnapshot(snapshot.toString()));
+
+        assertArrayEquals(anterior, Files.readAllBytes(snapshot));
+        assertFalse(Files.exists(directorio.resolve("citas.snap.tmp")));
+    }
+
+    private CitaManager nuevoManager() {
+        return new CitaManager(16, new RegistroMetricas());
+    }
+
+    // Citas cada 2 horas repartidas entre médicos y salas, con todos los estados y algunas observaciones
+    private CitaManager managerConCitas(int cantidad) throws CitaException {
+        CitaManager manager = nuevoManager();
+        EstadoCita[] estados = EstadoCita.values();
+        for (int i = 0; i < cantidad; i++) {
+            Cita cita = manager.programarCita(datos.paciente(i % 20), datos.medico(i % 4), datos.sala(i % 4),
+                    DatosPrueba.INICIO.plusHours(2L * (i / 4)), DatosPrueba.COSTO.add(BigDecimal.valueOf(i, 2)));
+            cita.setEstado(estados[i % estados.length]);
+            if (i % 3 != 0) {
+                cita.setObservaciones("control, año " + i);
+            }
+        }
+        return manager;
+    }
+
+    private static List<String> csv(List<Cita> citas) {
+        return citas.stream().map(Cita::toCsvString).toList();
+    }
+}